@@ -37,6 +37,9 @@ public class DatabaseMigrationConfig {
             } else {
                 log.debug("Column 'rental_period' already exists in properties table");
             }
+
+            // Index (sender_id, receiver_id) remplacé par idx_sender_receiver_created, qui le couvre
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_sender_receiver");
         } catch (Exception e) {
             log.error("Error executing database migration: {}", e.getMessage(), e);
             // Don't throw exception to allow application to start even if migration fails
@@ -44,4 +47,3 @@ public class DatabaseMigrationConfig {
         }
     }
 }
-
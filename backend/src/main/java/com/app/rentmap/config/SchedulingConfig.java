@@ -0,0 +1,22 @@
+package com.app.rentmap.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    // @Scheduled jobs resolve the bean named taskScheduler; without it they would fall back to the
+    // STOMP broker's scheduler, and the long batch jobs would delay heartbeats and the typing sweep
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.rentmap.config;
 
+import com.app.rentmap.entity.User;
 import com.app.rentmap.security.JwtTokenProvider;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -7,8 +8,6 @@ import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
@@ -45,9 +44,9 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
                         if (jwtTokenProvider.validateToken(token)) {
                             String email = jwtTokenProvider.getEmailFromToken(token);
                             UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                            Authentication authentication = new UsernamePasswordAuthenticationToken(
-                                    userDetails, null, userDetails.getAuthorities());
-                            accessor.setUser(authentication);
+                            if (userDetails instanceof User user) {
+                                accessor.setUser(new WebSocketUserAuthentication(user));
+                            }
                         }
                     }
                 }
@@ -1,25 +1,80 @@
 package com.app.rentmap.config;
 
+import com.app.rentmap.websocket.PresenceInterceptor;
+import com.app.rentmap.websocket.SessionInflightLimiter;
+import com.app.rentmap.websocket.StompChannelExecutors;
+import com.app.rentmap.websocket.StompClusterRelay;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final StompClusterRelay stompClusterRelay;
+    private final SessionInflightLimiter sessionInflightLimiter;
+    private final PresenceInterceptor presenceInterceptor;
+    private final StompChannelExecutors channelExecutors;
+    private final Counter slowConsumerCounter;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+    private final int messageSizeLimit;
+    private final long heartbeatMs;
+    private TaskScheduler messageBrokerTaskScheduler;
 
-    public WebSocketConfig(WebSocketAuthInterceptor webSocketAuthInterceptor) {
+    public WebSocketConfig(WebSocketAuthInterceptor webSocketAuthInterceptor,
+                           StompClusterRelay stompClusterRelay,
+                           SessionInflightLimiter sessionInflightLimiter,
+                           PresenceInterceptor presenceInterceptor,
+                           StompChannelExecutors channelExecutors,
+                           MeterRegistry meterRegistry,
+                           @Value("${websocket.transport.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                           @Value("${websocket.transport.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                           @Value("${websocket.transport.message-size-limit:65536}") int messageSizeLimit,
+                           @Value("${websocket.heartbeat-ms:10000}") long heartbeatMs) {
         this.webSocketAuthInterceptor = webSocketAuthInterceptor;
+        this.stompClusterRelay = stompClusterRelay;
+        this.sessionInflightLimiter = sessionInflightLimiter;
+        this.presenceInterceptor = presenceInterceptor;
+        this.channelExecutors = channelExecutors;
+        this.slowConsumerCounter = meterRegistry.counter("websocket.sessions.closed", "reason", "slow-consumer");
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    // The broker scheduler is created by the messaging configuration this class contributes to
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue carries per-user destinations (/user/queue/... resolved to the user's sessions)
+        // Heartbeats keep presence last-seen timestamps fresh on otherwise idle sessions
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app");
+        // Relays sends to the other nodes when a cluster bus is configured
+        config.configureBrokerChannel().interceptors(stompClusterRelay);
     }
 
     @Override
@@ -31,7 +86,30 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketAuthInterceptor);
+        registration.taskExecutor(channelExecutors.inbound());
+        registration.interceptors(webSocketAuthInterceptor, presenceInterceptor, sessionInflightLimiter);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutors.outbound());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // A session whose pending sends exceed either limit is closed as a slow consumer
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                    @Override
+                    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                        if (closeStatus.getCode() == CloseStatus.SESSION_NOT_RELIABLE.getCode()) {
+                            slowConsumerCounter.increment();
+                        }
+                        super.afterConnectionClosed(session, closeStatus);
+                    }
+                });
     }
 }
 
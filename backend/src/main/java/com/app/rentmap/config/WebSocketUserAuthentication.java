@@ -0,0 +1,25 @@
+package com.app.rentmap.config;
+
+import com.app.rentmap.entity.User;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/**
+ * Authentication attached to a STOMP session. Its name is the user id, so that
+ * convertAndSendToUser(String.valueOf(userId), ...) reaches the user's sessions
+ * and clients subscribe to /user/queue/... without exposing their id.
+ */
+public class WebSocketUserAuthentication extends UsernamePasswordAuthenticationToken {
+
+    public WebSocketUserAuthentication(User user) {
+        super(user, null, user.getAuthorities());
+    }
+
+    public User getUser() {
+        return (User) getPrincipal();
+    }
+
+    @Override
+    public String getName() {
+        return String.valueOf(getUser().getId());
+    }
+}
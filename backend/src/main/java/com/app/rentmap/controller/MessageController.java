@@ -1,6 +1,7 @@
 package com.app.rentmap.controller;
 
 import com.app.rentmap.dto.MessageDto;
+import com.app.rentmap.security.SecurityUtils;
 import com.app.rentmap.service.FileStorageService;
 import com.app.rentmap.service.MessageService;
 import org.springframework.http.ResponseEntity;
@@ -26,10 +27,13 @@ public class MessageController {
     @GetMapping("/conversation/{otherUserId}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<MessageDto>> getConversation(Authentication authentication,
-                                                            @PathVariable Long otherUserId) {
+                                                            @PathVariable Long otherUserId,
+                                                            @RequestParam(required = false) Long before,
+                                                            @RequestParam(defaultValue = "50") int limit) {
         String email = authentication.getName();
         String role = authentication.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
-        List<MessageDto> messages = messageService.getConversation(email, role, otherUserId);
+        List<MessageDto> messages = messageService.getConversation(email, role, otherUserId, before,
+                Math.min(Math.max(limit, 1), 200));
         return ResponseEntity.ok(messages);
     }
 
@@ -42,12 +46,12 @@ public class MessageController {
 
     @PutMapping("/conversation/{otherUserId}/read")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Void> markConversationAsRead(Authentication authentication,
-                                                       @PathVariable Long otherUserId) {
+    public ResponseEntity<Integer> markConversationAsRead(Authentication authentication,
+                                                          @PathVariable Long otherUserId) {
         String email = authentication.getName();
         String role = authentication.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
-        messageService.markConversationAsRead(email, role, otherUserId);
-        return ResponseEntity.ok().build();
+        int updated = messageService.markConversationAsRead(email, role, otherUserId);
+        return ResponseEntity.ok(updated);
     }
 
     @GetMapping("/conversations")
@@ -126,9 +130,7 @@ public class MessageController {
     @GetMapping("/unread-count")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Long> getUnreadCount(Authentication authentication) {
-        String email = authentication.getName();
-        String role = authentication.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
-        long count = messageService.getUnreadCount(email, role);
+        long count = messageService.getUnreadCount(SecurityUtils.currentUserId(authentication));
         return ResponseEntity.ok(count);
     }
 
@@ -136,9 +138,7 @@ public class MessageController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Long> getUnreadCountForConversation(Authentication authentication,
                                                                @PathVariable Long otherUserId) {
-        String email = authentication.getName();
-        String role = authentication.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
-        long count = messageService.getUnreadCountForConversation(email, role, otherUserId);
+        long count = messageService.getUnreadCountForConversation(SecurityUtils.currentUserId(authentication), otherUserId);
         return ResponseEntity.ok(count);
     }
 
@@ -1,6 +1,7 @@
 package com.app.rentmap.controller;
 
 import com.app.rentmap.dto.NotificationDto;
+import com.app.rentmap.security.SecurityUtils;
 import com.app.rentmap.service.NotificationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -36,8 +37,7 @@ public class NotificationController {
 
     @GetMapping("/unread-count")
     public ResponseEntity<Long> getUnreadCount(Authentication authentication) {
-        String email = authentication.getName();
-        long count = notificationService.getUnreadCount(email);
+        long count = notificationService.getUnreadCount(SecurityUtils.currentUserId(authentication));
         return ResponseEntity.ok(count);
     }
 }
@@ -0,0 +1,37 @@
+package com.app.rentmap.controller;
+
+import com.app.rentmap.dto.PresenceDto;
+import com.app.rentmap.security.SecurityUtils;
+import com.app.rentmap.service.PresenceService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+@CrossOrigin(origins = "http://localhost:5173")
+public class PresenceController {
+    private static final int MAX_USER_IDS = 200;
+
+    private final PresenceService presenceService;
+
+    public PresenceController(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    // Seuls les interlocuteurs de l'utilisateur courant sont renvoyés, les autres identifiants sont ignorés
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<PresenceDto>> getPresence(Authentication authentication,
+                                                         @RequestParam List<Long> userIds) {
+        if (userIds.size() > MAX_USER_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(presenceService.getPartnerPresence(SecurityUtils.currentUserId(authentication),
+                new LinkedHashSet<>(userIds)));
+    }
+}
@@ -3,6 +3,7 @@ package com.app.rentmap.controller;
 import com.app.rentmap.dto.PropertyCreateDto;
 import com.app.rentmap.dto.PropertyDto;
 import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.security.SecurityUtils;
 import com.app.rentmap.service.FileStorageService;
 import com.app.rentmap.service.PropertyService;
 import com.app.rentmap.service.RecommendationService;
@@ -67,25 +68,22 @@ public class PropertyController {
         Pageable pageable = PageRequest.of(page, size);
         Page<PropertyDto> properties = propertyService.getAllProperties(region, maxPrice, pageable);
         
-        // Enregistrer l'interaction SEARCH si l'utilisateur est un tenant
-        if (authentication != null && authentication.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_TENANT"))) {
+        // Enregistrer la recherche si l'utilisateur est un tenant (asynchrone, hors du temps de réponse)
+        if (isTenant(authentication)) {
             try {
-                String searchQuery = (region != null ? "region:" + region : "") + 
-                                   (maxPrice != null ? " maxPrice:" + maxPrice : "");
-                // Enregistrer pour chaque propriété dans les résultats
-                properties.getContent().forEach(property -> {
-                    try {
-                        recommendationService.recordInteractionByEmail(
-                            authentication.getName(),
-                            property.getId(),
-                            UserInteraction.InteractionType.SEARCH,
-                            searchQuery.isEmpty() ? "all" : searchQuery
-                        );
-                    } catch (Exception e) {
-                        // Ignorer les erreurs
-                    }
-                });
+                List<Long> propertyIds = properties.getContent().stream()
+                        .map(PropertyDto::getId)
+                        .toList();
+                recommendationService.recordSearchAsync(
+                    authentication.getName(),
+                    SecurityUtils.currentUserId(authentication),
+                    region,
+                    maxPrice,
+                    page,
+                    size,
+                    properties.getTotalElements(),
+                    propertyIds
+                );
             } catch (Exception e) {
                 // Ignorer les erreurs de tracking
             }
@@ -105,12 +103,12 @@ public class PropertyController {
         PropertyDto property = propertyService.getPropertyById(id);
         
         // Enregistrer l'interaction VIEW si l'utilisateur est un tenant
-        if (authentication != null && authentication.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_TENANT"))) {
+        if (isTenant(authentication)) {
             try {
-                recommendationService.recordInteractionByEmail(
+                recommendationService.recordInteractionsAsync(
                     authentication.getName(), 
-                    id, 
+                    SecurityUtils.currentUserId(authentication),
+                    List.of(id), 
                     UserInteraction.InteractionType.VIEW, 
                     null
                 );
@@ -122,6 +120,13 @@ public class PropertyController {
         return ResponseEntity.ok(property);
     }
 
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<PropertyDto>> getSimilarProperties(@PathVariable Long id,
+                                                                  @RequestParam(defaultValue = "10") int limit) {
+        List<PropertyDto> properties = propertyService.getSimilarProperties(id, Math.min(Math.max(limit, 1), 50));
+        return ResponseEntity.ok(properties);
+    }
+
     @GetMapping("/my-properties")
     @PreAuthorize("hasRole('OWNER')")
     public ResponseEntity<List<PropertyDto>> getMyProperties(Authentication authentication) {
@@ -129,5 +134,9 @@ public class PropertyController {
         List<PropertyDto> properties = propertyService.getPropertiesByOwner(email);
         return ResponseEntity.ok(properties);
     }
-}
 
+    private boolean isTenant(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_TENANT"));
+    }
+}
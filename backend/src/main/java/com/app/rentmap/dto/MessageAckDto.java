@@ -0,0 +1,16 @@
+package com.app.rentmap.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageAckDto {
+    private Long messageId;
+    private String status; // PERSISTED, FAILED
+    private LocalDateTime at;
+}
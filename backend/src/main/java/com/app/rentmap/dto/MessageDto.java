@@ -22,4 +22,5 @@ public class MessageDto {
     private Boolean read;
     private LocalDateTime createdAt;
     private Map<String, Long> reactions; // Map<emoji, count>
+    private Integer unreadCount; // Inbox only: unread messages in the conversation for the current user
 }
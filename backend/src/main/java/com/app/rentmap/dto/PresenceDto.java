@@ -0,0 +1,16 @@
+package com.app.rentmap.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDto {
+    private Long userId;
+    private Boolean online; // At least one live STOMP session; null (unknown) when clustered and none on this node
+    private LocalDateTime lastSeenAt; // Null when the user has not been seen since startup
+}
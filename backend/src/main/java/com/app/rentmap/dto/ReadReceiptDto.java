@@ -0,0 +1,17 @@
+package com.app.rentmap.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptDto {
+    private Long readerId; // User who read the messages
+    private Long senderId; // Author of the messages that were read
+    private Integer count;
+    private LocalDateTime readAt;
+}
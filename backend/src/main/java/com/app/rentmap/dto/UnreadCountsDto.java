@@ -0,0 +1,13 @@
+package com.app.rentmap.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountsDto {
+    private long messages;
+    private long notifications;
+}
@@ -0,0 +1,75 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Résumé d'une conversation entre deux utilisateurs pour la boîte de réception : dernier message
+ * et nombre de messages non lus de chaque participant. La paire est normalisée
+ * (user_low_id &lt; user_high_id) et tenue à jour dans la même transaction que les messages.
+ */
+@Entity
+@Table(name = "conversations", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_conversation_pair", columnNames = {"user_low_id", "user_high_id"})
+}, indexes = {
+    @Index(name = "idx_conversation_low_last", columnList = "user_low_id,last_message_at"),
+    @Index(name = "idx_conversation_high_last", columnList = "user_high_id,last_message_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Conversation {
+    public static final int PREVIEW_LENGTH = 200;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_low_id", nullable = false)
+    private User userLow;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_high_id", nullable = false)
+    private User userHigh;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_message_id", nullable = false)
+    private Message lastMessage;
+
+    @Column(nullable = false, length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Column(nullable = false)
+    private Integer unreadLow; // Messages non lus par userLow
+
+    @Column(nullable = false)
+    private Integer unreadHigh; // Messages non lus par userHigh
+
+    /**
+     * Aperçu stocké pour un contenu de message, tronqué sans couper une paire de substitution
+     */
+    public static String previewOf(String content) {
+        if (content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        int end = PREVIEW_LENGTH;
+        if (Character.isHighSurrogate(content.charAt(end - 1))) {
+            end--;
+        }
+        return content.substring(0, end);
+    }
+
+    public int getUnreadFor(Long userId) {
+        return userId.equals(userLow.getId()) ? unreadLow : unreadHigh;
+    }
+}
@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "messages", indexes = {
-    @Index(name = "idx_sender_receiver", columnList = "sender_id,receiver_id"),
+    @Index(name = "idx_sender_receiver_created", columnList = "sender_id,receiver_id,created_at"),
     @Index(name = "idx_receiver_read", columnList = "receiver_id,read"),
     @Index(name = "idx_created_at", columnList = "created_at")
 })
@@ -19,6 +19,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Message {
+    public static final int CONTENT_MAX_LENGTH = 2000;
+    public static final int FILE_URL_MAX_LENGTH = 255;
+    public static final int MESSAGE_TYPE_MAX_LENGTH = 50;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -31,13 +35,13 @@ public class Message {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
-    @Column(nullable = false, length = 2000)
+    @Column(nullable = false, length = CONTENT_MAX_LENGTH)
     private String content;
 
-    @Column(nullable = true)
+    @Column(nullable = true, length = FILE_URL_MAX_LENGTH)
     private String fileUrl;
 
-    @Column(nullable = true, length = 50)
+    @Column(nullable = true, length = MESSAGE_TYPE_MAX_LENGTH)
     private String messageType; // TEXT, FILE, VOICE
 
     @Column(nullable = false)
@@ -0,0 +1,48 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Recherche effectuée par un tenant : filtres normalisés et identifiants des propriétés affichées,
+ * une ligne par recherche (et non par résultat)
+ */
+@Entity
+@Table(name = "search_events", indexes = {
+    @Index(name = "idx_search_event_tenant_created", columnList = "tenant_id,created_at"),
+    @Index(name = "idx_search_event_created", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private Long tenantId;
+
+    private String region; // Filtre normalisé (minuscules), null si absent
+    private BigDecimal maxPrice;
+
+    private Integer pageNumber;
+    private Integer pageSize;
+    private Long totalResults;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "result_property_ids", nullable = false)
+    private Long[] resultPropertyIds;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,74 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Profil de goûts d'un tenant, tenu à jour de façon incrémentale.
+ * Les compteurs et sommes portent sur les propriétés favorites (moyennes et variances
+ * du prix et de la surface s'en déduisent) ; les répartitions par région, type et nombre
+ * de pièces sont dans {@link TenantProfileFacet}.
+ */
+@Entity
+@Table(name = "tenant_profiles", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_tenant_profile_tenant", columnNames = {"tenant_id"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantProfile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false)
+    private Tenant tenant;
+
+    @Column(nullable = false)
+    private Integer favoriteCount;
+
+    @Column(nullable = false)
+    private Double priceSum;
+
+    @Column(nullable = false)
+    private Double priceSumSquares;
+
+    @Column(nullable = false)
+    private Double areaSum;
+
+    @Column(nullable = false)
+    private Double areaSumSquares;
+
+    // Nombre de favoris offrant chaque équipement
+    @Column(nullable = false)
+    private Integer wifiCount;
+
+    @Column(nullable = false)
+    private Integer parkingCount;
+
+    @Column(nullable = false)
+    private Integer airConditioningCount;
+
+    @Column(nullable = false)
+    private Integer heatingCount;
+
+    @Column(nullable = false)
+    private Integer furnishedCount;
+
+    @Column(nullable = false)
+    private Integer petsAllowedCount;
+
+    // Vues et clics enregistrés
+    @Column(nullable = false)
+    private Integer interactionCount;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,46 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Répartition du profil d'un tenant selon une dimension (région, type, chambres, salles de bain) :
+ * nombre de favoris ayant cette valeur et poids cumulé des vues et clics.
+ */
+@Entity
+@Table(name = "tenant_profile_facets", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_tenant_profile_facet", columnNames = {"tenant_id", "facet", "facet_value"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantProfileFacet {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false)
+    private Tenant tenant;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Facet facet;
+
+    @Column(name = "facet_value", nullable = false)
+    private String value;
+
+    @Column(nullable = false)
+    private Integer favoriteCount;
+
+    @Column(nullable = false)
+    private Double interactionWeight;
+
+    public enum Facet {
+        REGION, PROPERTY_TYPE, BEDROOMS, BATHROOMS
+    }
+}
@@ -0,0 +1,43 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Affinité tenant/propriété avec décroissance exponentielle.
+ * Le score est stocké tel qu'il était à updatedAt ; la décroissance est appliquée à la lecture.
+ */
+@Entity
+@Table(name = "tenant_property_affinity", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_affinity_tenant_property", columnNames = {"tenant_id", "property_id"})
+}, indexes = {
+    @Index(name = "idx_affinity_tenant", columnList = "tenant_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantPropertyAffinity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false)
+    private Tenant tenant;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "property_id", nullable = false)
+    private Property property;
+
+    @Column(nullable = false)
+    private Double score;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
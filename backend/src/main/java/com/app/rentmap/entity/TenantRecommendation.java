@@ -0,0 +1,54 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Recommandation précalculée par le traitement nocturne.
+ * Toutes les lignes d'un tenant appartiennent à la même génération (numéro du traitement qui les a produites).
+ */
+@Entity
+@Table(name = "tenant_recommendations", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_tenant_recommendation_property", columnNames = {"tenant_id", "property_id"})
+}, indexes = {
+    @Index(name = "idx_tenant_recommendation_generation", columnList = "generation")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantRecommendation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false)
+    private Tenant tenant;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "property_id", nullable = false)
+    private Property property;
+
+    @Column(nullable = false)
+    private Integer ranking;
+
+    @Column(nullable = false)
+    private Double score;
+
+    @Column(length = 1000)
+    private String reason;
+
+    private String recommendationType;
+
+    @Column(nullable = false)
+    private Long generation;
+
+    @Column(nullable = false)
+    private LocalDateTime computedAt;
+}
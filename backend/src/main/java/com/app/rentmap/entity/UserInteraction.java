@@ -9,10 +9,9 @@ import lombok.Builder;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_interactions", indexes = {
-    @Index(name = "idx_tenant_property", columnList = "tenant_id,property_id"),
-    @Index(name = "idx_tenant_created", columnList = "tenant_id,created_at")
-})
+// Table partitionnée par mois par InteractionRetentionService, qui crée aussi ses index :
+// index (tenant, propriété) et (tenant, date) sur la table, index unique (tenant, propriété, type) par partition
+@Table(name = "user_interactions")
 @Data
 @Builder
 @NoArgsConstructor
@@ -45,20 +44,25 @@ public class UserInteraction {
         createdAt = LocalDateTime.now();
         if (interactionScore == null) {
             // Score par défaut basé sur le type d'interaction
-            interactionScore = switch (interactionType) {
-                case FAVORITE -> 1.0;
-                case CLICK -> 0.7;
-                case VIEW -> 0.5;
-                case SEARCH -> 0.3;
-            };
+            interactionScore = interactionType.getDefaultScore();
         }
     }
 
     public enum InteractionType {
-        VIEW,      // Vue d'une propriété
-        CLICK,     // Clic sur une propriété
-        FAVORITE,  // Ajout aux favoris
-        SEARCH     // Recherche avec cette propriété dans les résultats
+        VIEW(0.5),      // Vue d'une propriété
+        CLICK(0.7),     // Clic sur une propriété
+        FAVORITE(1.0),  // Ajout aux favoris
+        SEARCH(0.3);    // Recherche avec cette propriété dans les résultats
+
+        private final double defaultScore;
+
+        InteractionType(double defaultScore) {
+            this.defaultScore = defaultScore;
+        }
+
+        public double getDefaultScore() {
+            return defaultScore;
+        }
     }
 }
 
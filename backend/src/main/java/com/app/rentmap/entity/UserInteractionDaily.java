@@ -0,0 +1,51 @@
+package com.app.rentmap.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDate;
+
+/**
+ * Agrégat journalier des interactions d'un tenant sur une propriété, par type.
+ * Alimenté par le job de rétention à partir des partitions brutes de user_interactions.
+ */
+@Entity
+@Table(name = "user_interaction_daily", indexes = {
+    @Index(name = "idx_interaction_daily_day", columnList = "interaction_day")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_interaction_daily",
+                      columnNames = {"tenant_id", "property_id", "interaction_type", "interaction_day"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserInteractionDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false)
+    private Tenant tenant;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "property_id", nullable = false)
+    private Property property;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private UserInteraction.InteractionType interactionType;
+
+    @Column(nullable = false)
+    private LocalDate interactionDay;
+
+    @Column(nullable = false)
+    private Integer interactionCount;
+
+    @Column(nullable = false)
+    private Double scoreSum;
+}
@@ -12,5 +12,6 @@ public interface MessageMapper {
     @Mapping(target = "receiverId", source = "receiver.id")
     @Mapping(target = "receiverName", expression = "java(message.getReceiver().getFirstName() + \" \" + message.getReceiver().getLastName())")
     @Mapping(target = "reactions", ignore = true)
+    @Mapping(target = "unreadCount", ignore = true)
     MessageDto toDto(Message message);
 }
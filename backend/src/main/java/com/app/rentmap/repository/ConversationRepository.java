@@ -0,0 +1,85 @@
+package com.app.rentmap.repository;
+
+import com.app.rentmap.entity.Conversation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    @Query("SELECT c FROM Conversation c " +
+           "JOIN FETCH c.lastMessage m JOIN FETCH m.sender JOIN FETCH m.receiver " +
+           "WHERE c.userLow.id = :userId OR c.userHigh.id = :userId " +
+           "ORDER BY c.lastMessageAt DESC")
+    List<Conversation> findInbox(@Param("userId") Long userId);
+
+    // Interlocuteurs de l'utilisateur parmi les identifiants donnés
+    @Query("SELECT CASE WHEN c.userLow.id = :userId THEN c.userHigh.id ELSE c.userLow.id END FROM Conversation c " +
+           "WHERE (c.userLow.id = :userId AND c.userHigh.id IN :userIds) " +
+           "OR (c.userHigh.id = :userId AND c.userLow.id IN :userIds)")
+    List<Long> findPartnerIds(@Param("userId") Long userId, @Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT c FROM Conversation c WHERE c.userLow.id = :userLowId AND c.userHigh.id = :userHighId")
+    Optional<Conversation> findByPair(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId);
+
+    // Upsert atomique : crée la conversation au premier message, sinon avance le dernier message
+    // (jamais vers un message plus ancien) et incrémente le compteur du destinataire.
+    // L'ordre est (date, id) et non l'id seul : les identifiants réservés par blocs en écriture
+    // différée ne sont pas croissants dans le temps vis-à-vis des insertions synchrones
+    @Modifying
+    @Query(value = "INSERT INTO conversations " +
+                   "(user_low_id, user_high_id, last_message_id, last_message_preview, last_message_at, unread_low, unread_high) " +
+                   "VALUES (:userLowId, :userHighId, :messageId, :preview, :createdAt, :unreadLow, :unreadHigh) " +
+                   "ON CONFLICT (user_low_id, user_high_id) DO UPDATE SET " +
+                   "last_message_id = CASE WHEN (EXCLUDED.last_message_at, EXCLUDED.last_message_id) > " +
+                   "(conversations.last_message_at, conversations.last_message_id) " +
+                   "THEN EXCLUDED.last_message_id ELSE conversations.last_message_id END, " +
+                   "last_message_preview = CASE WHEN (EXCLUDED.last_message_at, EXCLUDED.last_message_id) > " +
+                   "(conversations.last_message_at, conversations.last_message_id) " +
+                   "THEN EXCLUDED.last_message_preview ELSE conversations.last_message_preview END, " +
+                   "last_message_at = GREATEST(EXCLUDED.last_message_at, conversations.last_message_at), " +
+                   "unread_low = conversations.unread_low + EXCLUDED.unread_low, " +
+                   "unread_high = conversations.unread_high + EXCLUDED.unread_high",
+           nativeQuery = true)
+    void recordMessage(@Param("userLowId") Long userLowId,
+                       @Param("userHighId") Long userHighId,
+                       @Param("messageId") Long messageId,
+                       @Param("preview") String preview,
+                       @Param("createdAt") LocalDateTime createdAt,
+                       @Param("unreadLow") int unreadLow,
+                       @Param("unreadHigh") int unreadHigh);
+
+    @Modifying
+    @Query(value = "UPDATE conversations SET " +
+                   "unread_low = CASE WHEN user_low_id = :readerId THEN GREATEST(unread_low - :count, 0) ELSE unread_low END, " +
+                   "unread_high = CASE WHEN user_high_id = :readerId AND user_low_id <> :readerId " +
+                   "THEN GREATEST(unread_high - :count, 0) ELSE unread_high END " +
+                   "WHERE user_low_id = :userLowId AND user_high_id = :userHighId",
+           nativeQuery = true)
+    void decrementUnread(@Param("userLowId") Long userLowId,
+                         @Param("userHighId") Long userHighId,
+                         @Param("readerId") Long readerId,
+                         @Param("count") int count);
+
+    // Reconstruction depuis l'historique des messages (tables existantes avant l'introduction du résumé)
+    @Modifying
+    @Query(value = "INSERT INTO conversations " +
+                   "(user_low_id, user_high_id, last_message_id, last_message_preview, last_message_at, unread_low, unread_high) " +
+                   "SELECT DISTINCT ON (low_id, high_id) low_id, high_id, id, LEFT(content, " + Conversation.PREVIEW_LENGTH + "), created_at, " +
+                   "COUNT(*) FILTER (WHERE NOT read AND receiver_id = low_id) OVER (PARTITION BY low_id, high_id), " +
+                   "COUNT(*) FILTER (WHERE NOT read AND receiver_id = high_id AND sender_id <> receiver_id) OVER (PARTITION BY low_id, high_id) " +
+                   "FROM (SELECT m.*, LEAST(sender_id, receiver_id) AS low_id, GREATEST(sender_id, receiver_id) AS high_id " +
+                   "      FROM messages m) pairs " +
+                   "ORDER BY low_id, high_id, created_at DESC, id DESC " +
+                   "ON CONFLICT (user_low_id, user_high_id) DO NOTHING",
+           nativeQuery = true)
+    int rebuildFromMessages();
+}
@@ -2,8 +2,11 @@ package com.app.rentmap.repository;
 
 import com.app.rentmap.entity.Favorite;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,7 +14,11 @@ import java.util.Optional;
 public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
     Optional<Favorite> findByTenantIdAndPropertyId(Long tenantId, Long propertyId);
     List<Favorite> findByTenantId(Long tenantId);
+    List<Favorite> findByTenantIdIn(Collection<Long> tenantIds);
     boolean existsByTenantIdAndPropertyId(Long tenantId, Long propertyId);
+
+    @Query("SELECT f.property.id FROM Favorite f WHERE f.tenant.id = :tenantId")
+    List<Long> findPropertyIdsByTenantId(@Param("tenantId") Long tenantId);
 }
 
 
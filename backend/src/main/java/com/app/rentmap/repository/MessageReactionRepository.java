@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,10 @@ public interface MessageReactionRepository extends JpaRepository<MessageReaction
     
     @Query("SELECT mr.emoji, COUNT(mr) FROM MessageReaction mr WHERE mr.message.id = :messageId GROUP BY mr.emoji")
     List<Object[]> countReactionsByEmoji(@Param("messageId") Long messageId);
+
+    @Query("SELECT mr.message.id, mr.emoji, COUNT(mr) FROM MessageReaction mr " +
+           "WHERE mr.message.id IN :messageIds GROUP BY mr.message.id, mr.emoji")
+    List<Object[]> countReactionsByEmojiForMessages(@Param("messageIds") Collection<Long> messageIds);
     
     void deleteByMessageIdAndUserId(Long messageId, Long userId);
 }
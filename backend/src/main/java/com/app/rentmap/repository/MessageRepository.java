@@ -2,34 +2,50 @@ package com.app.rentmap.repository;
 
 import com.app.rentmap.entity.Message;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     
-    @Query("SELECT m FROM Message m WHERE " +
-           "(m.sender.id = :currentUserId AND m.receiver.id = :otherUserId) OR " +
-           "(m.sender.id = :otherUserId AND m.receiver.id = :currentUserId) " +
-           "ORDER BY m.createdAt ASC")
-    List<Message> findConversation(@Param("currentUserId") Long currentUserId, 
-                                   @Param("otherUserId") Long otherUserId);
-    
-    @Query("SELECT DISTINCT m FROM Message m WHERE " +
-           "(m.sender.id = :userId OR m.receiver.id = :userId) " +
-           "ORDER BY m.createdAt DESC")
-    List<Message> findDistinctConversationsByUser(@Param("userId") Long userId);
+    // Pagination par curseur, du plus récent au plus ancien : chaque sens de la conversation est lu
+    // à rebours sur l'index (sender_id, receiver_id, created_at) puis les deux branches sont fusionnées
+    @Query(value = "(SELECT * FROM messages WHERE sender_id = :currentUserId AND receiver_id = :otherUserId " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+                   "UNION ALL " +
+                   "(SELECT * FROM messages WHERE sender_id = :otherUserId AND receiver_id = :currentUserId " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Message> findLatestInConversation(@Param("currentUserId") Long currentUserId,
+                                           @Param("otherUserId") Long otherUserId,
+                                           @Param("limit") int limit);
+
+    @Query(value = "(SELECT * FROM messages WHERE sender_id = :currentUserId AND receiver_id = :otherUserId " +
+                   "AND (created_at, id) < (:beforeCreatedAt, :beforeId) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+                   "UNION ALL " +
+                   "(SELECT * FROM messages WHERE sender_id = :otherUserId AND receiver_id = :currentUserId " +
+                   "AND (created_at, id) < (:beforeCreatedAt, :beforeId) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Message> findInConversationBefore(@Param("currentUserId") Long currentUserId,
+                                           @Param("otherUserId") Long otherUserId,
+                                           @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                           @Param("beforeId") Long beforeId,
+                                           @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.read = true " +
+           "WHERE m.receiver.id = :receiverId AND m.sender.id = :senderId AND m.read = false")
+    int markAllAsRead(@Param("receiverId") Long receiverId, @Param("senderId") Long senderId);
     
     @Query("SELECT COUNT(m) FROM Message m WHERE m.receiver.id = :userId AND m.read = false")
     Long countUnreadMessagesForUser(@Param("userId") Long userId);
-    
-    @Query("SELECT COUNT(m) FROM Message m WHERE " +
-           "((m.sender.id = :currentUserId AND m.receiver.id = :otherUserId) OR " +
-           "(m.sender.id = :otherUserId AND m.receiver.id = :currentUserId)) AND " +
-           "m.receiver.id = :currentUserId AND m.read = false")
-    Long countUnreadMessagesInConversation(@Param("currentUserId") Long currentUserId,
-                                           @Param("otherUserId") Long otherUserId);
 }
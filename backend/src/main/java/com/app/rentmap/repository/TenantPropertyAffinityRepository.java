@@ -0,0 +1,12 @@
+package com.app.rentmap.repository;
+
+import com.app.rentmap.entity.TenantPropertyAffinity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TenantPropertyAffinityRepository extends JpaRepository<TenantPropertyAffinity, Long> {
+    List<TenantPropertyAffinity> findByTenantId(Long tenantId);
+}
@@ -0,0 +1,18 @@
+package com.app.rentmap.repository;
+
+import com.app.rentmap.entity.TenantRecommendation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TenantRecommendationRepository extends JpaRepository<TenantRecommendation, Long> {
+    @Query("SELECT r FROM TenantRecommendation r JOIN FETCH r.property WHERE r.tenant.id = :tenantId ORDER BY r.ranking")
+    List<TenantRecommendation> findByTenantIdWithProperty(@Param("tenantId") Long tenantId);
+
+    @Query("SELECT COALESCE(MAX(r.generation), 0) FROM TenantRecommendation r")
+    long findLatestGeneration();
+}
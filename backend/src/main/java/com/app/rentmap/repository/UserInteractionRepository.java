@@ -1,23 +1,37 @@
 package com.app.rentmap.repository;
 
 import com.app.rentmap.entity.Property;
-import com.app.rentmap.entity.Tenant;
 import com.app.rentmap.entity.UserInteraction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface UserInteractionRepository extends JpaRepository<UserInteraction, Long> {
     
-    // Trouver une interaction spécifique
-    Optional<UserInteraction> findByTenantIdAndPropertyIdAndInteractionType(
-        Long tenantId, Long propertyId, UserInteraction.InteractionType interactionType);
+    // Insertion sans lecture préalable, une seule fois par (tenant, propriété, type) sur tout l'historique
+    // (lignes brutes et agrégats journaliers) ; l'index unique de la partition écarte les insertions concurrentes
+    @Modifying
+    @Query(value = "INSERT INTO user_interactions " +
+                   "(tenant_id, property_id, interaction_type, search_query, interaction_score, created_at) " +
+                   "SELECT :tenantId, :propertyId, :interactionType, :searchQuery, :score, :createdAt " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM user_interactions i WHERE i.tenant_id = :tenantId " +
+                   "AND i.property_id = :propertyId AND i.interaction_type = :interactionType) " +
+                   "AND NOT EXISTS (SELECT 1 FROM user_interaction_daily d WHERE d.tenant_id = :tenantId " +
+                   "AND d.property_id = :propertyId AND d.interaction_type = :interactionType) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("tenantId") Long tenantId,
+                       @Param("propertyId") Long propertyId,
+                       @Param("interactionType") String interactionType,
+                       @Param("searchQuery") String searchQuery,
+                       @Param("score") Double score,
+                       @Param("createdAt") LocalDateTime createdAt);
     
     // Toutes les interactions d'un tenant
     List<UserInteraction> findByTenantIdOrderByCreatedAtDesc(Long tenantId);
@@ -46,15 +60,6 @@ public interface UserInteractionRepository extends JpaRepository<UserInteraction
            "WHERE ui.tenant.id = :tenantId AND ui.property.id = :propertyId")
     Double getTotalInteractionScore(@Param("tenantId") Long tenantId, @Param("propertyId") Long propertyId);
     
-    // Tenants qui ont interagi avec les mêmes propriétés
-    @Query("SELECT DISTINCT ui2.tenant FROM UserInteraction ui1 " +
-           "JOIN UserInteraction ui2 ON ui1.property.id = ui2.property.id " +
-           "WHERE ui1.tenant.id = :tenantId " +
-           "AND ui2.tenant.id != :tenantId " +
-           "AND ui1.interactionType IN ('FAVORITE', 'CLICK') " +
-           "AND ui2.interactionType IN ('FAVORITE', 'CLICK')")
-    List<Tenant> findSimilarTenants(@Param("tenantId") Long tenantId);
-    
     // Propriétés populaires (les plus interagies) - Retourne seulement les IDs
     @Query("SELECT ui.property.id, COUNT(ui.id) as interactionCount " +
            "FROM UserInteraction ui " +
@@ -0,0 +1,17 @@
+package com.app.rentmap.security;
+
+import org.springframework.security.core.Authentication;
+
+public final class SecurityUtils {
+
+    private SecurityUtils() {
+    }
+
+    /**
+     * Id of the authenticated user: JwtAuthenticationFilter stores it as the credentials.
+     * Returns null for anonymous requests or an authentication that did not come from a JWT.
+     */
+    public static Long currentUserId(Authentication authentication) {
+        return authentication != null && authentication.getCredentials() instanceof Long id ? id : null;
+    }
+}
@@ -0,0 +1,158 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.TenantPropertyAffinity;
+import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.repository.TenantPropertyAffinityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Affinité tenant/propriété à décroissance exponentielle, maintenue de façon incrémentale.
+ * Chaque interaction ajoute son score après avoir fait décroître la valeur stockée ;
+ * la lecture applique la décroissance écoulée depuis la dernière mise à jour (décroissance paresseuse).
+ */
+@Slf4j
+@Service
+public class AffinityService implements InteractionListener {
+    // Chaque score est ramené à la plus récente des deux dates avant l'addition : un lot en retard
+    // sur la ligne stockée est décru au lieu d'être compté comme frais
+    private static final String UPSERT_SQL =
+            "INSERT INTO tenant_property_affinity (tenant_id, property_id, score, updated_at) " +
+            "SELECT ?, p.id, ?, CAST(? AS timestamp) FROM properties p WHERE p.id = ? " +
+            "ON CONFLICT (tenant_id, property_id) DO UPDATE SET " +
+            "score = tenant_property_affinity.score * EXP(-? * GREATEST(EXTRACT(EPOCH FROM " +
+            "(EXCLUDED.updated_at - tenant_property_affinity.updated_at)), 0)) + " +
+            "EXCLUDED.score * EXP(-? * GREATEST(EXTRACT(EPOCH FROM " +
+            "(tenant_property_affinity.updated_at - EXCLUDED.updated_at)), 0)), " +
+            "updated_at = GREATEST(EXCLUDED.updated_at, tenant_property_affinity.updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TenantPropertyAffinityRepository affinityRepository;
+    private final ClusterJobLock clusterJobLock;
+    // Constante de décroissance par seconde : ln(2) / demi-vie
+    private final double decayPerSecond;
+
+    public AffinityService(JdbcTemplate jdbcTemplate,
+                           TenantPropertyAffinityRepository affinityRepository,
+                           ClusterJobLock clusterJobLock,
+                           @Value("${recommendations.affinity.half-life-days:14}") double halfLifeDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.affinityRepository = affinityRepository;
+        this.clusterJobLock = clusterJobLock;
+        this.decayPerSecond = Math.log(2) / (halfLifeDays * Duration.ofDays(1).toSeconds());
+    }
+
+    /**
+     * Initialise la table depuis l'historique des interactions si elle est vide, sur un seul nœud à la fois
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            clusterJobLock.runExclusively("affinity.seed", this::seedIfEmpty);
+        } catch (Exception e) {
+            log.error("Error locking tenant/property affinity seeding: {}", e.getMessage(), e);
+        }
+    }
+
+    private void seedIfEmpty() {
+        try {
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM tenant_property_affinity)", Boolean.class);
+            if (!Boolean.TRUE.equals(empty)) {
+                return;
+            }
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int rows = jdbcTemplate.update(
+                    "INSERT INTO tenant_property_affinity (tenant_id, property_id, score, updated_at) " +
+                    "SELECT tenant_id, property_id, " +
+                    "SUM(interaction_score * EXP(-? * GREATEST(EXTRACT(EPOCH FROM (CAST(? AS timestamp) - created_at)), 0))), " +
+                    "CAST(? AS timestamp) FROM (" +
+                    "SELECT tenant_id, property_id, interaction_score, created_at FROM interaction_history " +
+                    "UNION ALL " +
+                    "SELECT s.tenant_id, r.property_id, CAST(? AS double precision), s.created_at FROM search_events s " +
+                    "CROSS JOIN LATERAL unnest(s.result_property_ids) AS r(property_id)" +
+                    ") i WHERE EXISTS (SELECT 1 FROM properties p WHERE p.id = i.property_id) " +
+                    "GROUP BY tenant_id, property_id " +
+                    "ON CONFLICT (tenant_id, property_id) DO NOTHING",
+                    decayPerSecond, now, now, UserInteraction.InteractionType.SEARCH.getDefaultScore());
+            log.info("Seeded {} tenant/property affinities from interaction and search history", rows);
+        } catch (Exception e) {
+            log.error("Error seeding tenant/property affinities: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onInteractionsObserved(List<InteractionEvent> events) {
+        // Regrouper par couple (tenant, propriété) : un seul upsert par couple et par lot
+        Map<String, PendingAffinity> pending = new LinkedHashMap<>();
+        for (InteractionEvent event : events) {
+            pending.computeIfAbsent(event.tenantId() + ":" + event.propertyId(),
+                            key -> new PendingAffinity(event.tenantId(), event.propertyId()))
+                    .add(event.score(), event.occurredAt());
+        }
+
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        for (PendingAffinity affinity : pending.values()) {
+            rows.add(new Object[]{
+                    affinity.tenantId, affinity.score, Timestamp.valueOf(affinity.updatedAt),
+                    affinity.propertyId, decayPerSecond, decayPerSecond
+            });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    /**
+     * Affinités décroissées d'un tenant, indexées par propriété (une seule requête indexée)
+     */
+    public Map<Long, Double> getAffinities(Long tenantId) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Double> affinities = new HashMap<>();
+        for (TenantPropertyAffinity affinity : affinityRepository.findByTenantId(tenantId)) {
+            affinities.put(affinity.getProperty().getId(), decay(affinity.getScore(), affinity.getUpdatedAt(), now));
+        }
+        return affinities;
+    }
+
+    private double decay(double score, LocalDateTime from, LocalDateTime to) {
+        long seconds = Math.max(0, Duration.between(from, to).toSeconds());
+        return score * Math.exp(-decayPerSecond * seconds);
+    }
+
+    private final class PendingAffinity {
+        private final Long tenantId;
+        private final Long propertyId;
+        private double score;
+        private LocalDateTime updatedAt;
+
+        private PendingAffinity(Long tenantId, Long propertyId) {
+            this.tenantId = tenantId;
+            this.propertyId = propertyId;
+        }
+
+        // Ramène le score accumulé et le nouveau score au même instant de référence
+        private void add(double eventScore, LocalDateTime occurredAt) {
+            if (updatedAt == null) {
+                score = eventScore;
+                updatedAt = occurredAt;
+            } else if (occurredAt.isAfter(updatedAt)) {
+                score = decay(score, updatedAt, occurredAt) + eventScore;
+                updatedAt = occurredAt;
+            } else {
+                score += decay(eventScore, occurredAt, updatedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.dto.MessageAckDto;
+import com.app.rentmap.dto.MessageDto;
+import com.app.rentmap.entity.Conversation;
+import com.app.rentmap.entity.Message;
+import com.app.rentmap.entity.User;
+import com.app.rentmap.repository.ConversationRepository;
+import com.app.rentmap.repository.UserRepository;
+import com.app.rentmap.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Écriture différée des messages envoyés par WebSocket (désactivée par défaut).
+ * Le message reçoit immédiatement son identifiant définitif (MessageIdGenerator), est déposé dans
+ * un anneau borné puis persisté par un unique thread d'écriture, par lots JDBC triés par identifiant,
+ * avec la mise à jour du résumé des conversations dans la même transaction.
+ * Durabilité :
+ * - RELAXED : le message est remis aux deux participants dès sa réception ; ceux encore dans
+ *   l'anneau (au plus flush-interval-ms) sont perdus en cas d'arrêt brutal ;
+ * - GROUP_COMMIT : le message n'est remis qu'après le commit de son lot.
+ * L'expéditeur reçoit sur /queue/message-acks un accusé PERSISTED une fois le message en base
+ * (si ack-enabled), et toujours un accusé FAILED si l'écriture échoue.
+ */
+@Slf4j
+@Service
+public class ChatWriteBehindService {
+    public enum Durability { RELAXED, GROUP_COMMIT }
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (id, sender_id, receiver_id, content, file_url, message_type, read, created_at) " +
+            "OVERRIDING SYSTEM VALUE VALUES (?, ?, ?, ?, ?, ?, false, ?)";
+    private static final Comparator<MessageDto> NEWEST_FIRST =
+            Comparator.comparing(MessageDto::getCreatedAt).thenComparing(MessageDto::getId).reversed();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ConversationRepository conversationRepository;
+    private final UnreadCounterService unreadCounterService;
+    private final PresenceService presenceService;
+    private final MessageIdGenerator idGenerator;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MpscRingBuffer<MessageDto> ring;
+    private final boolean enabled;
+    private final Durability durability;
+    private final boolean ackEnabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Map<Long, String> displayNames = new ConcurrentHashMap<>();
+
+    private final Counter acceptedCounter;
+    private final Counter fallbackCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public ChatWriteBehindService(JdbcTemplate jdbcTemplate,
+                                  UserRepository userRepository,
+                                  ConversationRepository conversationRepository,
+                                  UnreadCounterService unreadCounterService,
+                                  PresenceService presenceService,
+                                  MessageIdGenerator idGenerator,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${chat.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${chat.write-behind.durability:RELAXED}") Durability durability,
+                                  @Value("${chat.write-behind.ack-enabled:true}") boolean ackEnabled,
+                                  @Value("${chat.write-behind.capacity:16384}") int capacity,
+                                  @Value("${chat.write-behind.batch-size:256}") int batchSize,
+                                  @Value("${chat.write-behind.flush-interval-ms:20}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.conversationRepository = conversationRepository;
+        this.unreadCounterService = unreadCounterService;
+        this.presenceService = presenceService;
+        this.idGenerator = idGenerator;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ring = new MpscRingBuffer<>(capacity);
+        this.enabled = enabled;
+        this.durability = durability;
+        this.ackEnabled = ackEnabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        this.acceptedCounter = meterRegistry.counter("chat.write-behind.accepted");
+        this.fallbackCounter = meterRegistry.counter("chat.write-behind.fallback");
+        this.writtenCounter = meterRegistry.counter("chat.write-behind.written");
+        this.failedCounter = meterRegistry.counter("chat.write-behind.failed");
+        this.batchTimer = meterRegistry.timer("chat.write-behind.batch.latency");
+        meterRegistry.gauge("chat.write-behind.queue.depth", ring, MpscRingBuffer::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = Thread.ofPlatform()
+                .name("chat-writer")
+                .daemon(true)
+                .start(this::runWriter);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accepte un message sans écriture synchrone en base.
+     *
+     * @return le message avec son identifiant définitif, ou null si la file est pleine :
+     *         l'appelant doit alors passer par l'écriture synchrone
+     * @throws IllegalArgumentException si le message ne respecte pas les contraintes de la table :
+     *         vérifié avant toute diffusion, sinon le destinataire verrait un message jamais écrit
+     */
+    public MessageDto submit(User sender, Long receiverId, String content, String fileUrl, String messageType) {
+        validate(content, fileUrl, messageType);
+        String senderName = sender.getFirstName() + " " + sender.getLastName();
+        displayNames.put(sender.getId(), senderName);
+        MessageDto message = new MessageDto(idGenerator.nextId(), sender.getId(), senderName,
+                receiverId, displayName(receiverId), content != null ? content : "", fileUrl,
+                messageType != null ? messageType : "TEXT", false, LocalDateTime.now(), new HashMap<>(), null);
+        if (!ring.offer(message)) {
+            fallbackCounter.increment();
+            return null;
+        }
+        acceptedCounter.increment();
+        if (durability == Durability.RELAXED) {
+            deliver(message);
+        }
+        if (ring.size() >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return message;
+    }
+
+    private static void validate(String content, String fileUrl, String messageType) {
+        if (content != null && content.length() > Message.CONTENT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Message content exceeds " + Message.CONTENT_MAX_LENGTH + " characters");
+        }
+        if (fileUrl != null && fileUrl.length() > Message.FILE_URL_MAX_LENGTH) {
+            throw new IllegalArgumentException("File URL exceeds " + Message.FILE_URL_MAX_LENGTH + " characters");
+        }
+        if (messageType != null && messageType.length() > Message.MESSAGE_TYPE_MAX_LENGTH) {
+            throw new IllegalArgumentException("Message type exceeds " + Message.MESSAGE_TYPE_MAX_LENGTH + " characters");
+        }
+    }
+
+    // Nom affiché du destinataire ; la première recherche vérifie aussi qu'il existe
+    private String displayName(Long userId) {
+        String name = displayNames.get(userId);
+        if (name != null) {
+            return name;
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Receiver not found"));
+        name = user.getFirstName() + " " + user.getLastName();
+        displayNames.put(userId, name);
+        return name;
+    }
+
+    private void deliver(MessageDto message) {
+        if (presenceService.isReachable(message.getReceiverId())) {
+            messagingTemplate.convertAndSendToUser(String.valueOf(message.getReceiverId()), "/queue/messages", message);
+        }
+        messagingTemplate.convertAndSendToUser(String.valueOf(message.getSenderId()), "/queue/messages", message);
+    }
+
+    private void acknowledge(MessageDto message, String status) {
+        messagingTemplate.convertAndSendToUser(String.valueOf(message.getSenderId()), "/queue/message-acks",
+                new MessageAckDto(message.getId(), status, LocalDateTime.now()));
+    }
+
+    private void runWriter() {
+        List<MessageDto> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (ring.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            drainAndWrite(batch);
+        }
+        // Vider ce qui reste avant l'arrêt
+        while (ring.size() > 0) {
+            drainAndWrite(batch);
+        }
+    }
+
+    private void drainAndWrite(List<MessageDto> batch) {
+        batch.clear();
+        ring.drain(batch::add, batchSize);
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.sort(Comparator.comparing(MessageDto::getId));
+        List<MessageDto> written = batch;
+        try {
+            batchTimer.record(() -> write(batch));
+        } catch (Exception e) {
+            // Un message fautif (destinataire supprimé entre-temps...) ne doit pas faire perdre tout le lot
+            log.warn("Chat batch of {} messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            written = new ArrayList<>(batch.size());
+            for (MessageDto message : batch) {
+                try {
+                    write(List.of(message));
+                    written.add(message);
+                } catch (Exception single) {
+                    failedCounter.increment();
+                    log.error("Failed to persist chat message {}: {}", message.getId(), single.getMessage(), single);
+                    acknowledge(message, "FAILED");
+                }
+            }
+        }
+        // Hors du try : une erreur de diffusion après le commit ne doit pas faire réinsérer le lot
+        persisted(written);
+    }
+
+    private void write(List<MessageDto> messages) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, messages, messages.size(), (ps, message) -> {
+                ps.setLong(1, message.getId());
+                ps.setLong(2, message.getSenderId());
+                ps.setLong(3, message.getReceiverId());
+                ps.setString(4, message.getContent());
+                ps.setString(5, message.getFileUrl());
+                ps.setString(6, message.getMessageType());
+                ps.setTimestamp(7, Timestamp.valueOf(message.getCreatedAt()));
+            });
+            recordConversations(messages);
+        });
+    }
+
+    // Une mise à jour du résumé par paire de participants du lot ; le dernier message est choisi
+    // sur (date, id), le même ordre que l'upsert du résumé
+    private void recordConversations(List<MessageDto> messages) {
+        Map<List<Long>, MessageDto> lastByPair = new LinkedHashMap<>();
+        Map<List<Long>, int[]> unreadByPair = new HashMap<>();
+        for (MessageDto message : messages) {
+            Long lowId = Math.min(message.getSenderId(), message.getReceiverId());
+            List<Long> pair = List.of(lowId, Math.max(message.getSenderId(), message.getReceiverId()));
+            lastByPair.merge(pair, message, (current, candidate) -> NEWEST_FIRST.compare(candidate, current) < 0 ? candidate : current);
+            unreadByPair.computeIfAbsent(pair, p -> new int[2])[message.getReceiverId().equals(lowId) ? 0 : 1]++;
+        }
+        lastByPair.forEach((pair, last) -> {
+            int[] unread = unreadByPair.get(pair);
+            conversationRepository.recordMessage(pair.get(0), pair.get(1), last.getId(),
+                    Conversation.previewOf(last.getContent()), last.getCreatedAt(), unread[0], unread[1]);
+        });
+    }
+
+    private void persisted(List<MessageDto> messages) {
+        writtenCounter.increment(messages.size());
+        Map<Long, Integer> receivedByUser = new HashMap<>();
+        for (MessageDto message : messages) {
+            receivedByUser.merge(message.getReceiverId(), 1, Integer::sum);
+            try {
+                if (durability == Durability.GROUP_COMMIT) {
+                    deliver(message);
+                }
+                if (ackEnabled) {
+                    acknowledge(message, "PERSISTED");
+                }
+            } catch (Exception e) {
+                log.error("Chat message {} persisted but not delivered: {}", message.getId(), e.getMessage(), e);
+            }
+        }
+        try {
+            receivedByUser.forEach((userId, count) -> unreadCounterService.adjustAfterCommit(userId, count, 0));
+        } catch (Exception e) {
+            log.error("Error updating unread counters after a chat batch: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.app.rentmap.service;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Exclusion entre les nœuds pour les traitements qui écrivent des tables partagées
+ * (jobs planifiés, initialisations au démarrage), par verrou consultatif PostgreSQL.
+ * Le verrou est tenu par une connexion réservée pendant tout le traitement : il est libéré
+ * à la fin, ou par le serveur si le nœud disparaît.
+ */
+@Component
+public class ClusterJobLock {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClusterJobLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Lance le traitement si aucun autre nœud ne l'exécute.
+     *
+     * @return false si le traitement a été ignoré parce qu'un autre nœud le tient
+     */
+    public boolean runIfFree(String name, Runnable job) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!tryLock(connection, name)) {
+                return false;
+            }
+            try {
+                job.run();
+                return true;
+            } finally {
+                unlock(connection, name);
+            }
+        }));
+    }
+
+    /**
+     * Attend que le traitement soit terminé sur les autres nœuds puis le lance : pour les
+     * initialisations dont le démarrage dépend, qui doivent constater le travail déjà fait
+     */
+    public void runExclusively(String name, Runnable job) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_lock(hashtext(?))")) {
+                ps.setString(1, name);
+                ps.execute();
+            }
+            try {
+                job.run();
+            } finally {
+                unlock(connection, name);
+            }
+            return null;
+        });
+    }
+
+    private static boolean tryLock(Connection connection, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(hashtext(?))")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(hashtext(?))")) {
+            ps.setString(1, name);
+            ps.execute();
+        }
+    }
+}
@@ -23,15 +23,24 @@ public class FavoriteService {
     private final PropertyRepository propertyRepository;
     private final PropertyMapper propertyMapper;
     private final RecommendationService recommendationService;
+    private final TenantActivityTracker tenantActivityTracker;
+    private final TenantProfileService tenantProfileService;
+    private final SimilarTenantService similarTenantService;
 
     public FavoriteService(FavoriteRepository favoriteRepository, TenantRepository tenantRepository,
                           PropertyRepository propertyRepository, PropertyMapper propertyMapper,
-                          @Lazy RecommendationService recommendationService) {
+                          @Lazy RecommendationService recommendationService,
+                          TenantActivityTracker tenantActivityTracker,
+                          TenantProfileService tenantProfileService,
+                          SimilarTenantService similarTenantService) {
         this.favoriteRepository = favoriteRepository;
         this.tenantRepository = tenantRepository;
         this.propertyRepository = propertyRepository;
         this.propertyMapper = propertyMapper;
         this.recommendationService = recommendationService;
+        this.tenantActivityTracker = tenantActivityTracker;
+        this.tenantProfileService = tenantProfileService;
+        this.similarTenantService = similarTenantService;
     }
 
     @Transactional
@@ -50,6 +59,8 @@ public class FavoriteService {
                 .property(property)
                 .build();
         favoriteRepository.save(favorite);
+        tenantProfileService.onFavoriteAdded(tenant.getId(), property);
+        similarTenantService.onFavoriteAdded(tenant.getId(), propertyId);
         
         // Enregistrer l'interaction FAVORITE
         try {
@@ -67,6 +78,10 @@ public class FavoriteService {
         Favorite favorite = favoriteRepository.findByTenantIdAndPropertyId(tenant.getId(), propertyId)
                 .orElseThrow(() -> new RuntimeException("Favorite not found"));
         favoriteRepository.delete(favorite);
+        tenantProfileService.onFavoriteRemoved(tenant.getId(), favorite.getProperty());
+        similarTenantService.onFavoriteRemoved(tenant.getId());
+        // Le retrait ne laisse pas de trace dans user_interactions : invalider la liste précalculée
+        tenantActivityTracker.touch(tenant.getId());
     }
 
     public List<PropertyDto> getFavorites(String tenantEmail) {
@@ -0,0 +1,116 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.util.ConcurrentBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Filtre de dédoublonnage des interactions (tenant, propriété, type, mois) en mémoire bornée.
+ * Le mois suit le partitionnement de user_interactions : le filtre n'est qu'un raccourci sur le mois
+ * courant, l'insertion vérifiant elle-même que la clé est absente de tout l'historique.
+ * Remplace la requête d'existence avant chaque insertion : un "probablement vu" évite l'écriture,
+ * un "jamais vu" part directement en INSERT ... WHERE NOT EXISTS, la contrainte unique de la
+ * partition restant le garde-fou. Le filtre peut donc être vidé à tout moment sans perte de cohérence.
+ */
+@Slf4j
+@Component
+public class InteractionDedupeFilter {
+    private final ConcurrentBloomFilter filter;
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter skippedCounter;
+
+    public InteractionDedupeFilter(JdbcTemplate jdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${interactions.dedupe.expected-insertions:1000000}") long expectedInsertions,
+                                   @Value("${interactions.dedupe.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.filter = new ConcurrentBloomFilter(expectedInsertions, falsePositiveRate);
+        this.skippedCounter = meterRegistry.counter("interactions.dedupe.skipped");
+        meterRegistry.gauge("interactions.dedupe.size", filter, ConcurrentBloomFilter::approximateSize);
+    }
+
+    /**
+     * Préchauffe le filtre à partir des interactions et des recherches du mois en cours
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            LocalDateTime monthStart = YearMonth.now().atDay(1).atStartOfDay();
+            jdbcTemplate.query(
+                    "SELECT tenant_id, property_id, interaction_type, created_at FROM user_interactions " +
+                    "WHERE created_at >= ?",
+                    (RowCallbackHandler) rs -> markSeen(rs.getLong(1), rs.getLong(2),
+                            UserInteraction.InteractionType.valueOf(rs.getString(3)),
+                            rs.getTimestamp(4).toLocalDateTime()),
+                    Timestamp.valueOf(monthStart));
+            jdbcTemplate.query(
+                    "SELECT s.tenant_id, r.property_id, s.created_at FROM search_events s " +
+                    "CROSS JOIN LATERAL unnest(s.result_property_ids) AS r(property_id) WHERE s.created_at >= ?",
+                    (RowCallbackHandler) rs -> markSeen(rs.getLong(1), rs.getLong(2),
+                            UserInteraction.InteractionType.SEARCH, rs.getTimestamp(3).toLocalDateTime()),
+                    Timestamp.valueOf(monthStart));
+            log.info("Interaction dedupe filter warmed with {} keys", filter.approximateSize());
+        } catch (Exception e) {
+            log.error("Error warming interaction dedupe filter: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true si l'interaction a probablement déjà été enregistrée
+     */
+    public boolean isProbablySeen(Long tenantId, Long propertyId, UserInteraction.InteractionType type,
+                                  LocalDateTime occurredAt) {
+        boolean seen = filter.mightContain(key(tenantId, propertyId, type, occurredAt));
+        if (seen) {
+            skippedCounter.increment();
+        }
+        return seen;
+    }
+
+    public void markSeen(Long tenantId, Long propertyId, UserInteraction.InteractionType type, LocalDateTime occurredAt) {
+        if (filter.isSaturated()) {
+            // Au-delà de la capacité prévue le taux de faux positifs dérive : on repart de zéro,
+            // la contrainte unique absorbe les réinsertions éventuelles
+            log.info("Interaction dedupe filter saturated, resetting");
+            filter.clear();
+        }
+        filter.put(key(tenantId, propertyId, type, occurredAt));
+    }
+
+    /**
+     * Marque l'interaction après le commit de la transaction courante (ou immédiatement s'il n'y en a pas) :
+     * une insertion annulée ne doit pas faire écarter les tentatives suivantes
+     */
+    public void markSeenAfterCommit(Long tenantId, Long propertyId, UserInteraction.InteractionType type,
+                                    LocalDateTime occurredAt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markSeen(tenantId, propertyId, type, occurredAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markSeen(tenantId, propertyId, type, occurredAt);
+            }
+        });
+    }
+
+    private long key(Long tenantId, Long propertyId, UserInteraction.InteractionType type, LocalDateTime occurredAt) {
+        long month = occurredAt.getYear() * 12L + occurredAt.getMonthValue();
+        return ConcurrentBloomFilter.hash(tenantId, propertyId, month * UserInteraction.InteractionType.values().length + type.ordinal());
+    }
+}
@@ -0,0 +1,20 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.UserInteraction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Interaction tenant/propriété en attente d'écriture dans la file d'ingestion
+ */
+public record InteractionEvent(
+        Long tenantId,
+        Long propertyId,
+        UserInteraction.InteractionType interactionType,
+        String searchQuery,
+        LocalDateTime occurredAt) {
+
+    public double score() {
+        return interactionType.getDefaultScore();
+    }
+}
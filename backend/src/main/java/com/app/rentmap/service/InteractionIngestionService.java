@@ -0,0 +1,347 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.SearchEvent;
+import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * File d'ingestion des interactions utilisateur.
+ * Les producteurs (threads de requête) déposent les événements dans un anneau borné sans verrou
+ * et reviennent immédiatement ; un unique thread d'écriture les persiste par lots JDBC.
+ * Les recherches ont leur propre anneau : une ligne search_events par recherche, les propriétés
+ * affichées étant ensuite diffusées aux abonnés comme interactions SEARCH.
+ */
+@Slf4j
+@Service
+public class InteractionIngestionService {
+    // Une interaction n'est enregistrée qu'une fois par (tenant, propriété, type) sur tout l'historique :
+    // les lignes brutes de toutes les partitions et les agrégats journaliers sont consultés,
+    // l'index unique de la partition du mois ne fait que rattraper les insertions concurrentes
+    private static final String INSERT_SQL =
+            "INSERT INTO user_interactions " +
+            "(tenant_id, property_id, interaction_type, search_query, interaction_score, created_at) " +
+            "SELECT v.tenant_id, p.id, v.interaction_type, v.search_query, v.interaction_score, v.created_at " +
+            "FROM (SELECT CAST(? AS bigint) AS tenant_id, CAST(? AS varchar) AS interaction_type, " +
+            "CAST(? AS varchar) AS search_query, CAST(? AS double precision) AS interaction_score, " +
+            "CAST(? AS timestamp) AS created_at) v JOIN properties p ON p.id = ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_interactions i WHERE i.tenant_id = v.tenant_id " +
+            "AND i.property_id = p.id AND i.interaction_type = v.interaction_type) " +
+            "AND NOT EXISTS (SELECT 1 FROM user_interaction_daily d WHERE d.tenant_id = v.tenant_id " +
+            "AND d.property_id = p.id AND d.interaction_type = v.interaction_type) " +
+            "ON CONFLICT DO NOTHING";
+    private static final String INSERT_SEARCH_SQL =
+            "INSERT INTO search_events " +
+            "(tenant_id, region, max_price, page_number, page_size, total_results, result_property_ids, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InteractionDedupeFilter dedupeFilter;
+    private final List<InteractionListener> listeners;
+    private final TransactionTemplate transactionTemplate;
+    private final MpscRingBuffer<InteractionEvent> ring;
+    private final MpscRingBuffer<SearchEvent> searchRing;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int backpressureThreshold;
+
+    private final Counter acceptedCounter;
+    private final Counter droppedCounter;
+    private final Counter backpressureCounter;
+    private final Counter writtenCounter;
+    private final Counter searchesWrittenCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public InteractionIngestionService(JdbcTemplate jdbcTemplate,
+                                       InteractionDedupeFilter dedupeFilter,
+                                       List<InteractionListener> listeners,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${interactions.ingest.capacity:8192}") int capacity,
+                                       @Value("${interactions.ingest.batch-size:256}") int batchSize,
+                                       @Value("${interactions.ingest.flush-interval-ms:200}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dedupeFilter = dedupeFilter;
+        this.listeners = listeners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ring = new MpscRingBuffer<>(capacity);
+        this.searchRing = new MpscRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.backpressureThreshold = ring.capacity() * 3 / 4;
+
+        this.acceptedCounter = meterRegistry.counter("interactions.ingest.accepted");
+        this.droppedCounter = meterRegistry.counter("interactions.ingest.dropped");
+        this.backpressureCounter = meterRegistry.counter("interactions.ingest.backpressure");
+        this.writtenCounter = meterRegistry.counter("interactions.ingest.written");
+        this.searchesWrittenCounter = meterRegistry.counter("interactions.ingest.searches.written");
+        this.failedCounter = meterRegistry.counter("interactions.ingest.failed");
+        this.batchTimer = meterRegistry.timer("interactions.ingest.batch.latency");
+        meterRegistry.gauge("interactions.ingest.queue.depth", ring, MpscRingBuffer::size);
+        meterRegistry.gauge("interactions.ingest.search.queue.depth", searchRing, MpscRingBuffer::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = Thread.ofPlatform()
+                .name("interaction-writer")
+                .daemon(true)
+                .start(this::runWriter);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Dépose un événement sans bloquer.
+     *
+     * @return false si la file est pleine et que l'événement a été abandonné
+     */
+    public boolean offer(InteractionEvent event) {
+        int depth = ring.size();
+        if (depth >= backpressureThreshold) {
+            backpressureCounter.increment();
+            LockSupport.unpark(writerThread);
+        }
+        if (!ring.offer(event)) {
+            droppedCounter.increment();
+            return false;
+        }
+        acceptedCounter.increment();
+        if (depth + 1 >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Dépose une recherche sans bloquer.
+     *
+     * @return false si la file est pleine et que la recherche a été abandonnée
+     */
+    public boolean offerSearch(SearchEvent search) {
+        if (!searchRing.offer(search)) {
+            droppedCounter.increment();
+            return false;
+        }
+        acceptedCounter.increment();
+        if (searchRing.size() >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    /**
+     * Notifie les abonnés après le commit de la transaction courante (ou immédiatement s'il n'y en a pas)
+     */
+    public void publishAfterCommit(InteractionEvent event, boolean recorded) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event, recorded);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event, recorded);
+            }
+        });
+    }
+
+    private void publish(InteractionEvent event, boolean recorded) {
+        publishObserved(List.of(event));
+        if (recorded) {
+            publishRecorded(event);
+        }
+    }
+
+    private void publishObserved(List<InteractionEvent> events) {
+        for (InteractionListener listener : listeners) {
+            try {
+                listener.onInteractionsObserved(events);
+            } catch (Exception e) {
+                log.error("Interaction listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void publishRecorded(InteractionEvent event) {
+        for (InteractionListener listener : listeners) {
+            try {
+                listener.onInteractionRecorded(event);
+            } catch (Exception e) {
+                log.error("Interaction listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<InteractionEvent> batch = new ArrayList<>(batchSize);
+        List<SearchEvent> searchBatch = new ArrayList<>(batchSize);
+        while (running) {
+            if (ring.size() < batchSize && searchRing.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            drainAndWrite(batch);
+            drainAndWriteSearches(searchBatch);
+        }
+        // Vider ce qui reste avant l'arrêt
+        while (ring.size() > 0 || searchRing.size() > 0) {
+            drainAndWrite(batch);
+            drainAndWriteSearches(searchBatch);
+        }
+    }
+
+    private void drainAndWrite(List<InteractionEvent> batch) {
+        batch.clear();
+        ring.drain(batch::add, batchSize);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchTimer.record(() -> writeBatch(batch));
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to persist {} interactions: {}", batch.size(), e.getMessage(), e);
+            return;
+        }
+        publishObserved(List.copyOf(batch));
+    }
+
+    private void drainAndWriteSearches(List<SearchEvent> batch) {
+        batch.clear();
+        searchRing.drain(batch::add, batchSize);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchTimer.record(() -> writeSearches(batch));
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to persist {} searches: {}", batch.size(), e.getMessage(), e);
+            return;
+        }
+
+        // Chaque propriété affichée reste une interaction SEARCH pour les abonnés ;
+        // "enregistrée" signifie ici première apparition du mois pour ce tenant
+        List<InteractionEvent> impressions = new ArrayList<>();
+        for (SearchEvent search : batch) {
+            for (Long propertyId : search.getResultPropertyIds()) {
+                impressions.add(new InteractionEvent(search.getTenantId(), propertyId,
+                        UserInteraction.InteractionType.SEARCH, null, search.getCreatedAt()));
+            }
+        }
+        publishObserved(impressions);
+        for (InteractionEvent impression : impressions) {
+            if (!dedupeFilter.isProbablySeen(impression.tenantId(), impression.propertyId(),
+                    impression.interactionType(), impression.occurredAt())) {
+                dedupeFilter.markSeen(impression.tenantId(), impression.propertyId(),
+                        impression.interactionType(), impression.occurredAt());
+                publishRecorded(impression);
+            }
+        }
+    }
+
+    private void writeSearches(List<SearchEvent> batch) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SEARCH_SQL,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        SearchEvent search = batch.get(i);
+                        ps.setLong(1, search.getTenantId());
+                        ps.setString(2, search.getRegion());
+                        ps.setBigDecimal(3, search.getMaxPrice());
+                        ps.setObject(4, search.getPageNumber());
+                        ps.setObject(5, search.getPageSize());
+                        ps.setObject(6, search.getTotalResults());
+                        ps.setArray(7, ps.getConnection().createArrayOf("bigint", search.getResultPropertyIds()));
+                        ps.setTimestamp(8, Timestamp.valueOf(search.getCreatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }));
+        searchesWrittenCounter.increment(batch.size());
+    }
+
+    private void writeBatch(List<InteractionEvent> batch) {
+        // Les doublons du lot et ceux déjà vus par le filtre sont écartés avant l'envoi
+        Set<String> seen = new HashSet<>();
+        List<InteractionEvent> fresh = new ArrayList<>(batch.size());
+        for (InteractionEvent event : batch) {
+            String key = event.tenantId() + ":" + event.propertyId() + ":" + event.interactionType()
+                    + ":" + YearMonth.from(event.occurredAt());
+            if (seen.add(key)
+                    && !dedupeFilter.isProbablySeen(event.tenantId(), event.propertyId(), event.interactionType(),
+                            event.occurredAt())) {
+                fresh.add(event);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(fresh.size());
+        for (InteractionEvent event : fresh) {
+            rows.add(new Object[]{
+                    event.tenantId(), event.interactionType().name(), event.searchQuery(), event.score(),
+                    Timestamp.valueOf(event.occurredAt()), event.propertyId()
+            });
+        }
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+        if (counts == null) {
+            return;
+        }
+        writtenCounter.increment(Arrays.stream(counts).filter(c -> c > 0).sum());
+        for (int i = 0; i < fresh.size(); i++) {
+            InteractionEvent event = fresh.get(i);
+            dedupeFilter.markSeen(event.tenantId(), event.propertyId(), event.interactionType(), event.occurredAt());
+            if (i < counts.length && counts[i] > 0) {
+                publishRecorded(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.app.rentmap.service;
+
+import java.util.List;
+
+/**
+ * Abonné au flux d'interactions.
+ * Appelé sur le thread qui a écrit les interactions : l'implémentation doit rester rapide.
+ */
+public interface InteractionListener {
+
+    /**
+     * Interaction effectivement enregistrée (nouvelle ligne de user_interactions)
+     */
+    default void onInteractionRecorded(InteractionEvent event) {
+    }
+
+    /**
+     * Toutes les interactions reçues, y compris les répétitions écartées par le dédoublonnage
+     */
+    default void onInteractionsObserved(List<InteractionEvent> events) {
+    }
+}
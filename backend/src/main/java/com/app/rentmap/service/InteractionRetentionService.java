@@ -0,0 +1,271 @@
+package com.app.rentmap.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Cycle de vie de la table user_interactions.
+ * La table est partitionnée par mois sur created_at (conversion au premier démarrage). Une interaction
+ * n'est enregistrée qu'une fois par (tenant, propriété, type) sur toutes les partitions : l'ingestion
+ * consulte user_interactions et user_interaction_daily, l'index unique de chaque partition ne couvre
+ * que les insertions concurrentes du même mois.
+ * Un job quotidien crée les partitions à venir, agrège les journées closes dans user_interaction_daily
+ * puis supprime les partitions brutes entièrement agrégées et plus anciennes que la rétention,
+ * ainsi que les recherches (search_events) au-delà de leur propre rétention.
+ * Les recommandations lisent la vue interaction_history : les agrégats jusqu'au dernier jour agrégé,
+ * les lignes brutes ensuite.
+ */
+@Slf4j
+@Service
+public class InteractionRetentionService {
+    private static final String PARTITION_PREFIX = "user_interactions_p";
+    private static final String DEFAULT_PARTITION = "user_interactions_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    // Conversion, création de partitions et maintenance ne tournent que sur un nœud à la fois
+    private static final String LOCK_NAME = "interactions.retention";
+
+    private static final String ROLLUP_SQL =
+            "INSERT INTO user_interaction_daily " +
+            "(tenant_id, property_id, interaction_type, interaction_day, interaction_count, score_sum) " +
+            "SELECT tenant_id, property_id, interaction_type, CAST(created_at AS date), COUNT(*), " +
+            "COALESCE(SUM(interaction_score), 0) FROM user_interactions " +
+            "WHERE created_at >= ? AND created_at < ? " +
+            "GROUP BY tenant_id, property_id, interaction_type, CAST(created_at AS date) " +
+            "ON CONFLICT (tenant_id, property_id, interaction_type, interaction_day) DO UPDATE SET " +
+            "interaction_count = EXCLUDED.interaction_count, score_sum = EXCLUDED.score_sum";
+
+    // Le jour qui suit le dernier jour agrégé sépare les agrégats des lignes brutes
+    private static final String HISTORY_VIEW_SQL =
+            "CREATE OR REPLACE VIEW interaction_history AS " +
+            "WITH watermark AS (SELECT COALESCE(MAX(interaction_day) + 1, DATE '-infinity') AS day " +
+            "FROM user_interaction_daily) " +
+            "SELECT d.tenant_id, d.property_id, d.interaction_type, d.interaction_count, " +
+            "d.score_sum AS interaction_score, CAST(d.interaction_day AS timestamp) AS created_at " +
+            "FROM user_interaction_daily d, watermark w WHERE d.interaction_day < w.day " +
+            "UNION ALL " +
+            "SELECT i.tenant_id, i.property_id, i.interaction_type, 1, i.interaction_score, i.created_at " +
+            "FROM user_interactions i, watermark w WHERE i.created_at >= w.day";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterJobLock clusterJobLock;
+    private final int premakeMonths;
+    private final int rawRetentionMonths;
+    private final int searchRetentionDays;
+
+    public InteractionRetentionService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ClusterJobLock clusterJobLock,
+                                       @Value("${interactions.partitions.premake-months:2}") int premakeMonths,
+                                       @Value("${interactions.retention.raw-months:3}") int rawRetentionMonths,
+                                       @Value("${interactions.retention.search-days:180}") int searchRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterJobLock = clusterJobLock;
+        this.premakeMonths = premakeMonths;
+        this.rawRetentionMonths = rawRetentionMonths;
+        this.searchRetentionDays = searchRetentionDays;
+    }
+
+    /**
+     * Passe avant les autres initialisations qui lisent l'historique des interactions.
+     * Les nœuds démarrés en même temps attendent que le premier ait converti la table
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            clusterJobLock.runExclusively(LOCK_NAME, this::prepareTables);
+        } catch (Exception e) {
+            log.error("Error preparing user_interactions: {}", e.getMessage(), e);
+        }
+    }
+
+    private void prepareTables() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> partitionIfNeeded());
+            ensurePartitions(YearMonth.now());
+        } catch (Exception e) {
+            log.error("Error preparing user_interactions partitions: {}", e.getMessage(), e);
+        }
+        try {
+            jdbcTemplate.execute(HISTORY_VIEW_SQL);
+        } catch (Exception e) {
+            log.error("Error creating interaction_history view: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Un seul nœud à la fois : les autres ignorent l'exécution
+     */
+    @Scheduled(cron = "${interactions.retention.cron:0 30 2 * * *}")
+    public void maintain() {
+        try {
+            if (!clusterJobLock.runIfFree(LOCK_NAME, this::runMaintenance)) {
+                log.info("Interaction maintenance already running on another node, skipping");
+            }
+        } catch (Exception e) {
+            log.error("Error during interaction maintenance: {}", e.getMessage(), e);
+        }
+    }
+
+    private void runMaintenance() {
+        ensurePartitions(YearMonth.now());
+        int rolledUp = rollUp();
+        int dropped = dropExpiredPartitions();
+        int searches = searchRetentionDays > 0
+                ? jdbcTemplate.update("DELETE FROM search_events WHERE created_at < ?",
+                        Timestamp.valueOf(LocalDate.now().minusDays(searchRetentionDays).atStartOfDay()))
+                : 0;
+        log.info("Interaction maintenance: {} daily aggregates written, {} raw partitions dropped, {} searches purged",
+                rolledUp, dropped, searches);
+    }
+
+    /**
+     * Agrège les journées closes depuis le dernier jour agrégé, lui compris : les lignes arrivées
+     * en retard pour ce jour-là sont ainsi reprises. Le recalcul remplace l'agrégat, il est idempotent.
+     */
+    public int rollUp() {
+        LocalDate from = jdbcTemplate.queryForObject("SELECT MAX(interaction_day) FROM user_interaction_daily", LocalDate.class);
+        if (from == null) {
+            from = jdbcTemplate.queryForObject("SELECT CAST(MIN(created_at) AS date) FROM user_interactions", LocalDate.class);
+        }
+        LocalDate today = LocalDate.now();
+        if (from == null || !from.isBefore(today)) {
+            return 0;
+        }
+        return jdbcTemplate.update(ROLLUP_SQL, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(today.atStartOfDay()));
+    }
+
+    /**
+     * Supprime les partitions mensuelles antérieures à la rétention dont toutes les journées
+     * sont couvertes par les agrégats (la partition par défaut n'est jamais supprimée)
+     */
+    public int dropExpiredPartitions() {
+        if (rawRetentionMonths <= 0) {
+            return 0;
+        }
+        LocalDate lastRolledUpDay = jdbcTemplate.queryForObject(
+                "SELECT MAX(interaction_day) FROM user_interaction_daily", LocalDate.class);
+        if (lastRolledUpDay == null) {
+            return 0;
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(rawRetentionMonths);
+        int dropped = 0;
+        for (String partition : listPartitions()) {
+            if (!partition.startsWith(PARTITION_PREFIX)) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+            if (month.isBefore(cutoff) && !month.plusMonths(1).atDay(1).isAfter(lastRolledUpDay)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped raw interaction partition {}", partition);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    // Appelé dans une transaction : la table n'est jamais visible à moitié convertie
+    private void partitionIfNeeded() {
+        String kind = jdbcTemplate.query(
+                "SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relname = 'user_interactions' AND n.nspname = current_schema()",
+                rs -> rs.next() ? rs.getString(1) : null);
+        if (kind == null || "p".equals(kind)) {
+            return;
+        }
+        log.info("Converting user_interactions to monthly partitions...");
+
+        // Doublons éventuels d'anciennes bases : la ligne la plus ancienne est conservée
+        int removed = jdbcTemplate.update("DELETE FROM user_interactions a USING user_interactions b " +
+                "WHERE a.tenant_id = b.tenant_id AND a.property_id = b.property_id " +
+                "AND a.interaction_type = b.interaction_type AND a.id > b.id");
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT pg_get_constraintdef(oid) FROM pg_constraint " +
+                "WHERE conrelid = 'user_interactions'::regclass AND contype = 'f'", String.class);
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM user_interactions", LocalDateTime.class);
+
+        jdbcTemplate.execute("ALTER TABLE user_interactions RENAME TO user_interactions_legacy");
+        jdbcTemplate.execute("CREATE TABLE user_interactions " +
+                "(LIKE user_interactions_legacy INCLUDING DEFAULTS INCLUDING IDENTITY) PARTITION BY RANGE (created_at)");
+        // Colonne bigserial (et non identity) : la séquence copiée dans le défaut doit survivre à l'ancienne table
+        String sequence = jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN attidentity = '' THEN pg_get_serial_sequence('user_interactions_legacy', 'id') END " +
+                "FROM pg_attribute WHERE attrelid = 'user_interactions_legacy'::regclass AND attname = 'id'", String.class);
+        if (sequence != null) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY user_interactions.id");
+        }
+        ensurePartitions(oldest != null ? YearMonth.from(oldest) : YearMonth.now());
+        int copied = jdbcTemplate.update("INSERT INTO user_interactions OVERRIDING SYSTEM VALUE " +
+                "SELECT * FROM user_interactions_legacy");
+        jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('user_interactions', 'id'), " +
+                "COALESCE((SELECT MAX(id) FROM user_interactions), 0) + 1, false)", Long.class);
+        jdbcTemplate.execute("DROP TABLE user_interactions_legacy");
+
+        jdbcTemplate.execute("ALTER TABLE user_interactions ADD PRIMARY KEY (id, created_at)");
+        jdbcTemplate.execute("CREATE INDEX idx_tenant_property ON user_interactions (tenant_id, property_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_tenant_created ON user_interactions (tenant_id, created_at)");
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE user_interactions ADD " + foreignKey);
+        }
+        log.info("user_interactions partitioned by month ({} rows copied, {} duplicates removed)", copied, removed);
+    }
+
+    /**
+     * Crée les partitions mensuelles de {@code from} jusqu'à quelques mois à l'avance,
+     * plus une partition par défaut pour les dates hors plage
+     */
+    private void ensurePartitions(YearMonth from) {
+        YearMonth last = YearMonth.now().plusMonths(premakeMonths);
+        for (YearMonth month = from; !month.isAfter(last); month = month.plusMonths(1)) {
+            String partition = PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+            if (exists(partition)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF user_interactions " +
+                        "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+                createDedupeIndex(partition);
+            } catch (Exception e) {
+                // Typiquement des lignes de ce mois déjà rangées dans la partition par défaut
+                log.error("Could not create interaction partition {}: {}", partition, e.getMessage());
+            }
+        }
+        if (!exists(DEFAULT_PARTITION)) {
+            jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF user_interactions DEFAULT");
+            createDedupeIndex(DEFAULT_PARTITION);
+        }
+    }
+
+    private void createDedupeIndex(String partition) {
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + partition + "_dedupe ON " + partition +
+                " (tenant_id, property_id, interaction_type)");
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'user_interactions'::regclass ORDER BY c.relname", String.class);
+    }
+}
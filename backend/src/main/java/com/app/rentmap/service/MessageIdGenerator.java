@@ -0,0 +1,40 @@
+package com.app.rentmap.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Identifiants de messages attribués avant l'insertion, pour le mode d'écriture différée.
+ * Les valeurs sont réservées par blocs dans la séquence de messages.id : elles restent uniques
+ * vis-à-vis des insertions synchrones, et croissantes sur un même nœud.
+ * Une réservation coûte un aller-retour en base pour blockSize messages.
+ */
+@Service
+public class MessageIdGenerator {
+    private static final String RESERVE_SQL =
+            "SELECT nextval(pg_get_serial_sequence('messages', 'id')) FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int blockSize;
+
+    private long[] block = new long[0];
+    private int position;
+
+    public MessageIdGenerator(JdbcTemplate jdbcTemplate,
+                              @Value("${chat.write-behind.id-block-size:1000}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    public synchronized long nextId() {
+        if (position == block.length) {
+            List<Long> reserved = jdbcTemplate.queryForList(RESERVE_SQL, Long.class, blockSize);
+            block = reserved.stream().mapToLong(Long::longValue).sorted().toArray();
+            position = 0;
+        }
+        return block[position++];
+    }
+}
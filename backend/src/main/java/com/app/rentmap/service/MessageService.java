@@ -1,37 +1,88 @@
 package com.app.rentmap.service;
 
 import com.app.rentmap.dto.MessageDto;
+import com.app.rentmap.dto.ReadReceiptDto;
+import com.app.rentmap.entity.Conversation;
 import com.app.rentmap.entity.Message;
 import com.app.rentmap.entity.MessageReaction;
 import com.app.rentmap.entity.User;
 import com.app.rentmap.mapper.MessageMapper;
+import com.app.rentmap.repository.ConversationRepository;
 import com.app.rentmap.repository.MessageReactionRepository;
 import com.app.rentmap.repository.MessageRepository;
 import com.app.rentmap.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class MessageService {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final MessageMapper messageMapper;
     private final MessageReactionRepository messageReactionRepository;
+    private final ConversationRepository conversationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final ClusterJobLock clusterJobLock;
 
     public MessageService(MessageRepository messageRepository,
                          UserRepository userRepository,
                          MessageMapper messageMapper,
-                         MessageReactionRepository messageReactionRepository) {
+                         MessageReactionRepository messageReactionRepository,
+                         ConversationRepository conversationRepository,
+                         SimpMessagingTemplate messagingTemplate,
+                         UnreadCounterService unreadCounterService,
+                         ClusterJobLock clusterJobLock) {
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
         this.messageMapper = messageMapper;
         this.messageReactionRepository = messageReactionRepository;
+        this.conversationRepository = conversationRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.clusterJobLock = clusterJobLock;
+    }
+
+    /**
+     * Construit le résumé des conversations à partir de l'historique lors du premier démarrage
+     * qui suit son introduction ; ensuite il est maintenu par sendMessage et les accusés de lecture.
+     * Un seul nœud reconstruit, les autres attendent puis trouvent la table remplie
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initializeConversations() {
+        try {
+            clusterJobLock.runExclusively("conversations.initialize", this::buildIfEmpty);
+        } catch (Exception e) {
+            log.error("Error locking conversation summary build: {}", e.getMessage(), e);
+        }
+    }
+
+    private void buildIfEmpty() {
+        try {
+            if (conversationRepository.count() == 0) {
+                int created = conversationRepository.rebuildFromMessages();
+                if (created > 0) {
+                    log.info("Built {} conversation summaries from message history", created);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error building conversation summaries: {}", e.getMessage(), e);
+        }
     }
 
     @Transactional
@@ -56,25 +107,56 @@ public class MessageService {
                 .read(false)
                 .build();
         
-        return messageMapper.toDto(messageRepository.save(message));
+        Message saved = messageRepository.save(message);
+        Long lowId = Math.min(sender.getId(), receiver.getId());
+        boolean receiverIsLow = receiver.getId().equals(lowId);
+        conversationRepository.recordMessage(lowId, Math.max(sender.getId(), receiver.getId()),
+                saved.getId(), Conversation.previewOf(saved.getContent()), saved.getCreatedAt(),
+                receiverIsLow ? 1 : 0, receiverIsLow ? 0 : 1);
+        unreadCounterService.adjustAfterCommit(receiver.getId(), 1, 0);
+        return messageMapper.toDto(saved);
     }
 
-    public List<MessageDto> getConversation(String userEmail, String userRole, Long otherUserId) {
+    /**
+     * Page de l'historique d'une conversation, du message le plus récent au plus ancien.
+     * Sans curseur, renvoie les derniers messages ; avec before, ceux strictement antérieurs
+     * au message indiqué (qui doit appartenir à la conversation).
+     */
+    @Transactional(readOnly = true)
+    public List<MessageDto> getConversation(String userEmail, String userRole, Long otherUserId,
+                                            Long beforeMessageId, int limit) {
         User currentUser = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userEmail));
         
         User otherUser = userRepository.findById(otherUserId)
                 .orElseThrow(() -> new RuntimeException("Other user not found"));
 
-        List<Message> messages = messageRepository.findConversation(currentUser.getId(), otherUser.getId());
+        List<Message> messages;
+        if (beforeMessageId == null) {
+            messages = messageRepository.findLatestInConversation(currentUser.getId(), otherUser.getId(), limit);
+        } else {
+            Message cursor = messageRepository.findById(beforeMessageId)
+                    .filter(m -> isBetween(m, currentUser.getId(), otherUser.getId()))
+                    .orElseThrow(() -> new RuntimeException("Message not found in conversation"));
+            messages = messageRepository.findInConversationBefore(currentUser.getId(), otherUser.getId(),
+                    cursor.getCreatedAt(), cursor.getId(), limit);
+        }
+        // Réactions de toute la page en une seule requête agrégée
+        Map<Long, Map<String, Long>> reactionsByMessage = getReactionsForMessages(
+                messages.stream().map(Message::getId).collect(Collectors.toList()));
         return messages.stream().map(message -> {
             MessageDto dto = messageMapper.toDto(message);
-            // Add reactions
-            Map<String, Long> reactions = getReactionsForMessage(message.getId());
-            dto.setReactions(reactions);
+            dto.setReactions(reactionsByMessage.getOrDefault(message.getId(), new HashMap<>()));
             return dto;
         }).collect(Collectors.toList());
     }
+
+    private static boolean isBetween(Message message, Long userId, Long otherUserId) {
+        Long senderId = message.getSender().getId();
+        Long receiverId = message.getReceiver().getId();
+        return (senderId.equals(userId) && receiverId.equals(otherUserId))
+                || (senderId.equals(otherUserId) && receiverId.equals(userId));
+    }
     
     public Map<String, Long> getReactionsForMessage(Long messageId) {
         List<Object[]> reactionCounts = messageReactionRepository.countReactionsByEmoji(messageId);
@@ -84,6 +166,22 @@ public class MessageService {
         }
         return reactions;
     }
+
+    /**
+     * Nombre de réactions par emoji pour chaque message de la liste ;
+     * les messages sans réaction sont absents du résultat
+     */
+    public Map<Long, Map<String, Long>> getReactionsForMessages(List<Long> messageIds) {
+        Map<Long, Map<String, Long>> reactionsByMessage = new HashMap<>();
+        if (messageIds.isEmpty()) {
+            return reactionsByMessage;
+        }
+        for (Object[] row : messageReactionRepository.countReactionsByEmojiForMessages(messageIds)) {
+            reactionsByMessage.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .put((String) row[1], (Long) row[2]);
+        }
+        return reactionsByMessage;
+    }
     
     @Transactional
     public void addReaction(String userEmail, Long messageId, String emoji) {
@@ -122,61 +220,82 @@ public class MessageService {
     public void markAsRead(Long messageId) {
         Message message = messageRepository.findById(messageId)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
+        if (message.getRead()) {
+            return;
+        }
         message.setRead(true);
         messageRepository.save(message);
+        Long senderId = message.getSender().getId();
+        Long receiverId = message.getReceiver().getId();
+        conversationRepository.decrementUnread(Math.min(senderId, receiverId), Math.max(senderId, receiverId), receiverId, 1);
+        unreadCounterService.adjustAfterCommit(receiverId, -1, 0);
     }
 
+    /**
+     * Marque comme lus, en une seule requête, les messages reçus de otherUserId et renvoie leur nombre.
+     * L'expéditeur reçoit un accusé de lecture après le commit.
+     */
     @Transactional
-    public void markConversationAsRead(String userEmail, String userRole, Long otherUserId) {
+    public int markConversationAsRead(String userEmail, String userRole, Long otherUserId) {
         User currentUser = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userEmail));
         
-        List<Message> unreadMessages = messageRepository.findConversation(currentUser.getId(), otherUserId)
-                .stream()
-                .filter(m -> !m.getRead() && m.getReceiver().getId().equals(currentUser.getId()))
-                .collect(Collectors.toList());
-        
-        unreadMessages.forEach(m -> m.setRead(true));
-        messageRepository.saveAll(unreadMessages);
+        int updated = messageRepository.markAllAsRead(currentUser.getId(), otherUserId);
+        if (updated > 0) {
+            // Retrancher plutôt que remettre à 0 : un message envoyé entre les deux requêtes reste compté
+            conversationRepository.decrementUnread(Math.min(currentUser.getId(), otherUserId),
+                    Math.max(currentUser.getId(), otherUserId), currentUser.getId(), updated);
+            unreadCounterService.adjustAfterCommit(currentUser.getId(), -updated, 0);
+            sendReadReceiptAfterCommit(new ReadReceiptDto(currentUser.getId(), otherUserId, updated, LocalDateTime.now()));
+        }
+        return updated;
+    }
+
+    private void sendReadReceiptAfterCommit(ReadReceiptDto receipt) {
+        Runnable send = () -> messagingTemplate.convertAndSendToUser(
+                String.valueOf(receipt.getSenderId()), "/queue/read-receipts", receipt);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send.run();
+            }
+        });
     }
 
+    /**
+     * Boîte de réception : dernier message de chaque conversation, du plus récent au plus ancien,
+     * lu dans le résumé des conversations (une ligne par conversation)
+     */
+    @Transactional(readOnly = true)
     public List<MessageDto> getConversations(String userEmail, String userRole) {
         User currentUser = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userEmail));
         
-        List<Message> allMessages = messageRepository.findDistinctConversationsByUser(currentUser.getId());
-        
-        Map<Long, Message> latestMessages = new HashMap<>();
-        for (Message msg : allMessages) {
-            Long otherUserId = msg.getSender().getId().equals(currentUser.getId()) 
-                    ? msg.getReceiver().getId() 
-                    : msg.getSender().getId();
-            
-            if (!latestMessages.containsKey(otherUserId) || 
-                msg.getCreatedAt().isAfter(latestMessages.get(otherUserId).getCreatedAt())) {
-                latestMessages.put(otherUserId, msg);
-            }
-        }
-        
-        return latestMessages.values().stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                .map(messageMapper::toDto)
+        List<Conversation> inbox = conversationRepository.findInbox(currentUser.getId());
+        // La boîte de réception contient le total exact des non lus : on en profite pour recaler le compteur
+        unreadCounterService.syncMessages(currentUser.getId(),
+                inbox.stream().mapToLong(conversation -> conversation.getUnreadFor(currentUser.getId())).sum());
+        return inbox.stream()
+                .map(conversation -> {
+                    MessageDto dto = messageMapper.toDto(conversation.getLastMessage());
+                    dto.setContent(conversation.getLastMessagePreview());
+                    dto.setUnreadCount(conversation.getUnreadFor(currentUser.getId()));
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
 
-    public long getUnreadCount(String userEmail, String userRole) {
-        User currentUser = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userEmail));
-        
-        Long count = messageRepository.countUnreadMessagesForUser(currentUser.getId());
-        return count != null ? count : 0L;
+    public long getUnreadCount(Long userId) {
+        return unreadCounterService.getCounts(userId).getMessages();
     }
 
-    public long getUnreadCountForConversation(String userEmail, String userRole, Long otherUserId) {
-        User currentUser = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userEmail));
-        
-        Long count = messageRepository.countUnreadMessagesInConversation(currentUser.getId(), otherUserId);
-        return count != null ? count : 0L;
+    public long getUnreadCountForConversation(Long userId, Long otherUserId) {
+        return conversationRepository.findByPair(Math.min(userId, otherUserId), Math.max(userId, otherUserId))
+                .map(conversation -> (long) conversation.getUnreadFor(userId))
+                .orElse(0L);
     }
 }
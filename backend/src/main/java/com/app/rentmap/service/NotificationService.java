@@ -20,13 +20,18 @@ public class NotificationService {
     private final TenantRepository tenantRepository;
     private final NotificationMapper notificationMapper;
     private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final PresenceService presenceService;
 
     public NotificationService(NotificationRepository notificationRepository, TenantRepository tenantRepository,
-                              NotificationMapper notificationMapper, SimpMessagingTemplate messagingTemplate) {
+                              NotificationMapper notificationMapper, SimpMessagingTemplate messagingTemplate,
+                              UnreadCounterService unreadCounterService, PresenceService presenceService) {
         this.notificationRepository = notificationRepository;
         this.tenantRepository = tenantRepository;
         this.notificationMapper = notificationMapper;
         this.messagingTemplate = messagingTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.presenceService = presenceService;
     }
 
     @Transactional
@@ -53,8 +58,12 @@ public class NotificationService {
                         .build();
                 Notification saved = notificationRepository.save(notification);
                 
-                messagingTemplate.convertAndSend("/topic/notifications/" + tenant.getId(), 
-                        notificationMapper.toDto(saved));
+                // Pas de diffusion vers un tenant sans session active : il la lira via l'API
+                if (presenceService.isReachable(tenant.getId())) {
+                    messagingTemplate.convertAndSend("/topic/notifications/" + tenant.getId(), 
+                            notificationMapper.toDto(saved));
+                }
+                unreadCounterService.adjustAfterCommit(tenant.getId(), 0, 1);
             }
         }
     }
@@ -63,6 +72,8 @@ public class NotificationService {
         Tenant tenant = tenantRepository.findByEmail(tenantEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("Tenant not found"));
         List<Notification> notifications = notificationRepository.findByTenantIdOrderByCreatedAtDesc(tenant.getId());
+        unreadCounterService.syncNotifications(tenant.getId(),
+                notifications.stream().filter(notification -> !notification.getRead()).count());
         return notifications.stream().map(notificationMapper::toDto).toList();
     }
 
@@ -77,16 +88,15 @@ public class NotificationService {
             throw new RuntimeException("Unauthorized");
         }
         
+        if (notification.getRead()) {
+            return;
+        }
         notification.setRead(true);
         notificationRepository.save(notification);
+        unreadCounterService.adjustAfterCommit(tenant.getId(), 0, -1);
     }
 
-    public long getUnreadCount(String tenantEmail) {
-        Tenant tenant = tenantRepository.findByEmail(tenantEmail)
-                .orElseThrow(() -> new UsernameNotFoundException("Tenant not found"));
-        return notificationRepository.countByTenantIdAndReadFalse(tenant.getId());
+    public long getUnreadCount(Long tenantId) {
+        return unreadCounterService.getCounts(tenantId).getNotifications();
     }
 }
-
-
-
@@ -0,0 +1,191 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.util.StripedFactorMatrix;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Filtrage collaboratif par factorisation matricielle, appris en ligne.
+ * Chaque interaction observée applique quelques pas de SGD au vecteur latent du tenant et à celui
+ * de la propriété (plus quelques propriétés tirées au hasard comme exemples négatifs) : un nouveau
+ * favori influence l'appel de recommandations suivant sans réentraînement.
+ * Les facteurs sont stockés dans des tableaux de floats par bandes et mis à jour sans verrou.
+ */
+@Slf4j
+@Service
+public class OnlineCollaborativeFilteringService implements InteractionListener {
+    private static final float INIT_SCALE = 0.1f;
+    // Graines distinctes : un tenant et une propriété de même id ne partent pas du même vecteur
+    private static final long TENANT_SEED = 0x7E4A47L;
+    private static final long PROPERTY_SEED = 0x960B3AL;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int rank;
+    private final float learningRate;
+    private final float regularization;
+    private final int negativeSamples;
+    private final int rebuildEpochs;
+
+    private volatile Model model;
+
+    public OnlineCollaborativeFilteringService(JdbcTemplate jdbcTemplate,
+                                               @Value("${recommendations.online-cf.rank:16}") int rank,
+                                               @Value("${recommendations.online-cf.learning-rate:0.05}") float learningRate,
+                                               @Value("${recommendations.online-cf.regularization:0.01}") float regularization,
+                                               @Value("${recommendations.online-cf.negative-samples:3}") int negativeSamples,
+                                               @Value("${recommendations.online-cf.rebuild-epochs:10}") int rebuildEpochs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rank = rank;
+        this.learningRate = learningRate;
+        this.regularization = regularization;
+        this.negativeSamples = negativeSamples;
+        this.rebuildEpochs = rebuildEpochs;
+        this.model = newModel();
+    }
+
+    private record Model(StripedFactorMatrix tenants, StripedFactorMatrix properties) {
+    }
+
+    private record Observation(long tenantId, long propertyId, float confidence) {
+    }
+
+    private Model newModel() {
+        return new Model(new StripedFactorMatrix(rank, INIT_SCALE, TENANT_SEED),
+                new StripedFactorMatrix(rank, INIT_SCALE, PROPERTY_SEED));
+    }
+
+    /**
+     * Entraîne un nouveau modèle sur l'historique des interactions puis le substitue à l'actuel
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Observation> observations = new ArrayList<>();
+            jdbcTemplate.query(
+                    "SELECT tenant_id, property_id, interaction_score FROM interaction_history " +
+                    "WHERE interaction_type <> 'SEARCH'",
+                    (RowCallbackHandler) rs -> observations.add(new Observation(
+                            rs.getLong(1), rs.getLong(2), rs.getFloat(3))));
+
+            Model fresh = newModel();
+            for (Observation observation : observations) {
+                fresh.tenants().rowFor(observation.tenantId());
+                fresh.properties().rowFor(observation.propertyId());
+            }
+            for (int epoch = 0; epoch < rebuildEpochs; epoch++) {
+                Collections.shuffle(observations, ThreadLocalRandom.current());
+                for (Observation observation : observations) {
+                    train(fresh, observation.tenantId(), observation.propertyId(), observation.confidence());
+                }
+            }
+            model = fresh;
+            log.info("Online collaborative filtering model trained on {} interactions ({} tenants, {} properties)",
+                    observations.size(), fresh.tenants().size(), fresh.properties().size());
+        } catch (Exception e) {
+            log.error("Error training collaborative filtering model: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Les répétitions comptent aussi : revoir une propriété renforce le signal
+     */
+    @Override
+    public void onInteractionsObserved(List<InteractionEvent> events) {
+        Model current = model;
+        for (InteractionEvent event : events) {
+            if (event.interactionType() != UserInteraction.InteractionType.SEARCH) {
+                train(current, event.tenantId(), event.propertyId(), (float) event.score());
+            }
+        }
+    }
+
+    /**
+     * Propriétés les mieux notées par le modèle pour un tenant, avec leur score dans [0, 1].
+     * Vide si le tenant n'a encore aucune interaction.
+     */
+    public Map<Long, Double> recommend(Long tenantId, int limit, Set<Long> excludedPropertyIds) {
+        Model current = model;
+        int tenantRow = current.tenants().rowIfPresent(tenantId);
+        if (tenantRow < 0 || limit <= 0) {
+            return Map.of();
+        }
+        PriorityQueue<Scored> top = new PriorityQueue<>();
+        current.properties().forEachRow((row, propertyId) -> {
+            if (excludedPropertyIds.contains(propertyId)) {
+                return;
+            }
+            float score = current.tenants().dot(tenantRow, current.properties(), row);
+            if (top.size() < limit) {
+                top.add(new Scored(propertyId, score));
+            } else if (score > top.peek().score()) {
+                top.poll();
+                top.add(new Scored(propertyId, score));
+            }
+        });
+        List<Scored> ordered = new ArrayList<>(top);
+        ordered.sort((a, b) -> Float.compare(b.score(), a.score()));
+        Map<Long, Double> result = new LinkedHashMap<>();
+        for (Scored scored : ordered) {
+            result.put(scored.propertyId(), (double) Math.max(0f, Math.min(scored.score(), 1f)));
+        }
+        return result;
+    }
+
+    private void train(Model target, long tenantId, long propertyId, float confidence) {
+        StripedFactorMatrix tenants = target.tenants();
+        StripedFactorMatrix properties = target.properties();
+        int tenantRow = tenants.rowFor(tenantId);
+        int propertyRow = properties.rowFor(propertyId);
+        step(tenants, tenantRow, properties, propertyRow, 1f, learningRate * confidence);
+
+        int propertyCount = properties.size();
+        if (propertyCount < 2) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int n = 0; n < negativeSamples; n++) {
+            int negativeRow = random.nextInt(propertyCount);
+            if (negativeRow != propertyRow) {
+                step(tenants, tenantRow, properties, negativeRow, 0f, learningRate);
+            }
+        }
+    }
+
+    // Un pas de SGD sur l'erreur quadratique régularisée ; écritures concurrentes tolérées
+    private void step(StripedFactorMatrix tenants, int tenantRow,
+                      StripedFactorMatrix properties, int propertyRow, float target, float rate) {
+        float[] u = tenants.stripe(tenantRow);
+        float[] v = properties.stripe(propertyRow);
+        int uo = tenants.offset(tenantRow);
+        int vo = properties.offset(propertyRow);
+        float error = target - tenants.dot(tenantRow, properties, propertyRow);
+        for (int k = 0; k < rank; k++) {
+            float uk = u[uo + k];
+            float vk = v[vo + k];
+            u[uo + k] = uk + rate * (error * vk - regularization * uk);
+            v[vo + k] = vk + rate * (error * uk - regularization * vk);
+        }
+    }
+
+    private record Scored(long propertyId, float score) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored other) {
+            return Float.compare(score, other.score);
+        }
+    }
+}
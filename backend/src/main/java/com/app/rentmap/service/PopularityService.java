@@ -0,0 +1,484 @@
+package com.app.rentmap.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compteurs de popularité par propriété sur une fenêtre glissante.
+ * Chaque propriété active ne garde que ses buckets horaires non vides (tableaux primitifs creux) ;
+ * quand un bucket sort de la fenêtre ses comptes sont retranchés des totaux, et une propriété
+ * sans aucun bucket restant est libérée.
+ * Un classement trié est maintenu à chaque mise à jour, la lecture du top-K est donc en O(K).
+ * Le même classement, borné aux K premières propriétés, est tenu par région et par type de bien.
+ */
+@Slf4j
+@Service
+public class PopularityService implements InteractionListener {
+    private final JdbcTemplate jdbcTemplate;
+    private final int windowDays;
+    private final int groupTopK;
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<Long, PropertyCounter> counters = new HashMap<>();
+    private volatile long currentBucket;
+    // Début du comptage en flux : la reconstruction ne lit que les interactions antérieures
+    private LocalDateTime liveSince;
+
+    private final ConcurrentSkipListSet<RankedProperty> ranking = new ConcurrentSkipListSet<>();
+    private final Map<String, GroupRanking> rankingsByRegion = new ConcurrentHashMap<>();
+    private final Map<String, GroupRanking> rankingsByType = new ConcurrentHashMap<>();
+
+    // Région et type de chaque propriété, chargés au démarrage puis à la première interaction
+    private final Map<Long, PropertyAttributes> attributesByProperty = new ConcurrentHashMap<>();
+
+    public PopularityService(JdbcTemplate jdbcTemplate,
+                             @Value("${popularity.window-days:30}") int windowDays,
+                             @Value("${popularity.bucket-hours:1}") int bucketHours,
+                             @Value("${popularity.group-top-k:50}") int groupTopK) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowDays = windowDays;
+        this.groupTopK = groupTopK;
+        this.bucketMillis = TimeUnit.HOURS.toMillis(bucketHours);
+        this.bucketCount = (int) Math.max(1, TimeUnit.DAYS.toMillis(windowDays) / bucketMillis);
+        this.currentBucket = bucketNumber(LocalDateTime.now());
+    }
+
+    /**
+     * Reconstruit les compteurs à partir de la table au démarrage.
+     * Les lectures s'arrêtent à l'instant où le comptage en flux reprend : une interaction est
+     * comptée soit par la reconstruction, soit par le flux, jamais par les deux
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now();
+            liveSince = cutoff;
+            reset();
+            attributesByProperty.clear();
+            jdbcTemplate.query("SELECT id, region, property_type FROM properties",
+                    (RowCallbackHandler) rs -> attributesByProperty.put(rs.getLong(1),
+                            PropertyAttributes.of(rs.getString(2), rs.getString(3))));
+            LocalDateTime since = cutoff.minusDays(windowDays);
+            jdbcTemplate.query(
+                    "SELECT property_id, date_trunc('hour', created_at), SUM(interaction_count) FROM interaction_history " +
+                    "WHERE created_at >= ? AND created_at < ? GROUP BY property_id, date_trunc('hour', created_at)",
+                    (RowCallbackHandler) rs -> add(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getInt(3)),
+                    Timestamp.valueOf(since), Timestamp.valueOf(cutoff));
+            // Résultats de recherche : première apparition du mois par tenant, comme en flux
+            jdbcTemplate.query(
+                    "SELECT property_id, date_trunc('hour', first_seen), COUNT(*) FROM (" +
+                    "SELECT r.property_id, MIN(s.created_at) AS first_seen FROM search_events s " +
+                    "CROSS JOIN LATERAL unnest(s.result_property_ids) AS r(property_id) " +
+                    "WHERE s.created_at >= ? AND s.created_at < ? " +
+                    "GROUP BY s.tenant_id, r.property_id, date_trunc('month', s.created_at)) impressions " +
+                    "GROUP BY property_id, date_trunc('hour', first_seen)",
+                    (RowCallbackHandler) rs -> add(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getInt(3)),
+                    Timestamp.valueOf(since), Timestamp.valueOf(cutoff));
+            log.info("Popularity counters rebuilt for {} properties", ranking.size());
+        } catch (Exception e) {
+            log.error("Error rebuilding popularity counters: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onInteractionRecorded(InteractionEvent event) {
+        // Résolu hors verrou : une requête au plus par propriété inconnue
+        attributesOf(event.propertyId());
+        synchronized (this) {
+            // Avant la reconstruction, ou antérieure à son point de coupure : déjà lue en base
+            if (liveSince == null || event.occurredAt().isBefore(liveSince)) {
+                return;
+            }
+            add(event.propertyId(), event.occurredAt(), 1);
+        }
+    }
+
+    /**
+     * Libère les compteurs des propriétés supprimées depuis leur dernière interaction
+     */
+    @Scheduled(fixedDelayString = "${popularity.prune-interval-ms:3600000}",
+            initialDelayString = "${popularity.prune-interval-ms:3600000}")
+    public void pruneDeletedProperties() {
+        Long[] tracked;
+        synchronized (this) {
+            tracked = counters.keySet().toArray(new Long[0]);
+        }
+        if (tracked.length == 0) {
+            return;
+        }
+        try {
+            Set<Long> existing = new HashSet<>(jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("SELECT id FROM properties WHERE id = ANY(?)");
+                ps.setArray(1, connection.createArrayOf("bigint", tracked));
+                return ps;
+            }, (rs, rowNum) -> rs.getLong(1)));
+            int removed = 0;
+            synchronized (this) {
+                for (Long propertyId : tracked) {
+                    if (!existing.contains(propertyId)) {
+                        PropertyCounter counter = counters.remove(propertyId);
+                        if (counter != null) {
+                            updateTotal(counter, -counter.total);
+                            counter.detach();
+                            removed++;
+                        }
+                        attributesByProperty.remove(propertyId);
+                    }
+                }
+                if (removed > 0) {
+                    compactGroups();
+                    refreshStaleGroups();
+                }
+            }
+            if (removed > 0) {
+                log.info("Popularity counters released for {} deleted properties", removed);
+            }
+        } catch (Exception e) {
+            log.error("Error pruning popularity counters: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Identifiants des propriétés les plus populaires de la fenêtre, du plus au moins populaire
+     */
+    public List<Long> getTopPropertyIds(int limit) {
+        rotateIfNeeded();
+        List<Long> ids = new ArrayList<>(limit);
+        Iterator<RankedProperty> iterator = ranking.iterator();
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().propertyId());
+        }
+        return ids;
+    }
+
+    /**
+     * Propriétés les plus populaires d'une région, en O(K) ; vide pour une région inconnue
+     */
+    public List<Long> getTopPropertyIdsByRegion(String region, int limit) {
+        return region != null ? top(rankingsByRegion.get(regionKey(region)), limit) : List.of();
+    }
+
+    /**
+     * Propriétés les plus populaires d'un type de bien, en O(K) ; vide pour un type inconnu
+     */
+    public List<Long> getTopPropertyIdsByType(String propertyType, int limit) {
+        return propertyType != null ? top(rankingsByType.get(typeKey(propertyType)), limit) : List.of();
+    }
+
+    private List<Long> top(GroupRanking groupRanking, int limit) {
+        rotateIfNeeded();
+        if (groupRanking == null) {
+            return List.of();
+        }
+        long[] snapshot = groupRanking.snapshot;
+        List<Long> ids = new ArrayList<>(Math.min(limit, snapshot.length));
+        for (int i = 0; i < snapshot.length && ids.size() < limit; i++) {
+            ids.add(snapshot[i]);
+        }
+        return ids;
+    }
+
+    public int getCount(Long propertyId) {
+        rotateIfNeeded();
+        synchronized (this) {
+            PropertyCounter counter = counters.get(propertyId);
+            return counter != null ? counter.total : 0;
+        }
+    }
+
+    private void rotateIfNeeded() {
+        long now = bucketNumber(LocalDateTime.now());
+        if (now != currentBucket) {
+            synchronized (this) {
+                advanceTo(now);
+            }
+        }
+    }
+
+    // Appelé sous verrou
+    private void add(long propertyId, LocalDateTime occurredAt, int count) {
+        advanceTo(bucketNumber(LocalDateTime.now()));
+        long bucket = Math.min(bucketNumber(occurredAt), currentBucket);
+        if (bucket <= currentBucket - bucketCount) {
+            return;
+        }
+        PropertyCounter counter = counters.computeIfAbsent(propertyId, this::newCounter);
+        counter.add(bucket, count);
+        updateTotal(counter, count);
+    }
+
+    // Appelé sous verrou : retire les buckets sortis de la fenêtre et libère les propriétés devenues inactives
+    private void advanceTo(long target) {
+        if (target <= currentBucket) {
+            return;
+        }
+        long oldestExpired = target - bucketCount;
+        boolean released = false;
+        Iterator<PropertyCounter> iterator = counters.values().iterator();
+        while (iterator.hasNext()) {
+            PropertyCounter counter = iterator.next();
+            int expired = counter.expireUpTo(oldestExpired);
+            if (expired != 0) {
+                updateTotal(counter, -expired);
+            }
+            if (counter.size == 0) {
+                iterator.remove();
+                counter.detach();
+                released = true;
+            }
+        }
+        if (released) {
+            compactGroups();
+        }
+        refreshStaleGroups();
+        currentBucket = target;
+    }
+
+    private void updateTotal(PropertyCounter counter, int delta) {
+        long propertyId = counter.propertyId;
+        int previous = counter.total;
+        int updated = previous + delta;
+        counter.total = updated;
+        if (previous > 0) {
+            ranking.remove(new RankedProperty(propertyId, previous));
+        }
+        if (updated > 0) {
+            ranking.add(new RankedProperty(propertyId, updated));
+        }
+        if (counter.region != null) {
+            counter.region.update(propertyId, previous, updated);
+        }
+        if (counter.type != null) {
+            counter.type.update(propertyId, previous, updated);
+        }
+    }
+
+    private PropertyCounter newCounter(long propertyId) {
+        PropertyCounter counter = new PropertyCounter(propertyId);
+        PropertyAttributes attributes = attributesByProperty.getOrDefault(propertyId, PropertyAttributes.UNKNOWN);
+        if (attributes.region() != null) {
+            counter.region = rankingsByRegion.computeIfAbsent(attributes.region(), key -> new GroupRanking());
+            counter.region.addMember(counter);
+        }
+        if (attributes.propertyType() != null) {
+            counter.type = rankingsByType.computeIfAbsent(attributes.propertyType(), key -> new GroupRanking());
+            counter.type.addMember(counter);
+        }
+        return counter;
+    }
+
+    // Appelé sous verrou : retire des groupes les propriétés libérées, puis les groupes vides
+    private void compactGroups() {
+        rankingsByRegion.values().removeIf(GroupRanking::compact);
+        rankingsByType.values().removeIf(GroupRanking::compact);
+    }
+
+    // Appelé sous verrou : recalcule les top-K dont un membre a baissé
+    private void refreshStaleGroups() {
+        rankingsByRegion.values().forEach(GroupRanking::refreshIfStale);
+        rankingsByType.values().forEach(GroupRanking::refreshIfStale);
+    }
+
+    private void reset() {
+        counters.clear();
+        ranking.clear();
+        rankingsByRegion.clear();
+        rankingsByType.clear();
+        currentBucket = bucketNumber(LocalDateTime.now());
+    }
+
+    private PropertyAttributes attributesOf(long propertyId) {
+        return attributesByProperty.computeIfAbsent(propertyId, id -> jdbcTemplate.query(
+                "SELECT region, property_type FROM properties WHERE id = ?",
+                rs -> rs.next() ? PropertyAttributes.of(rs.getString(1), rs.getString(2)) : PropertyAttributes.UNKNOWN,
+                id));
+    }
+
+    private static String regionKey(String region) {
+        return region.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String typeKey(String propertyType) {
+        return propertyType.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private long bucketNumber(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli() / bucketMillis;
+    }
+
+    private record PropertyAttributes(String region, String propertyType) {
+        static final PropertyAttributes UNKNOWN = new PropertyAttributes(null, null);
+
+        static PropertyAttributes of(String region, String propertyType) {
+            return new PropertyAttributes(region != null ? regionKey(region) : null,
+                    propertyType != null ? typeKey(propertyType) : null);
+        }
+    }
+
+    /**
+     * Comptes d'une propriété : numéros de ses buckets non vides et comptes associés, dans l'ordre
+     * d'arrivée (le bucket courant est presque toujours le dernier).
+     */
+    private static final class PropertyCounter {
+        final long propertyId;
+        long[] bucketNumbers = new long[2];
+        int[] counts = new int[2];
+        int size;
+        int total;
+        GroupRanking region;
+        GroupRanking type;
+        boolean released;
+
+        PropertyCounter(long propertyId) {
+            this.propertyId = propertyId;
+        }
+
+        void add(long bucket, int count) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (bucketNumbers[i] == bucket) {
+                    counts[i] += count;
+                    return;
+                }
+            }
+            if (size == bucketNumbers.length) {
+                bucketNumbers = Arrays.copyOf(bucketNumbers, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            bucketNumbers[size] = bucket;
+            counts[size] = count;
+            size++;
+        }
+
+        // Retire les buckets jusqu'à oldest inclus et renvoie la somme de leurs comptes
+        int expireUpTo(long oldest) {
+            int expired = 0;
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (bucketNumbers[i] <= oldest) {
+                    expired += counts[i];
+                } else {
+                    bucketNumbers[kept] = bucketNumbers[i];
+                    counts[kept] = counts[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return expired;
+        }
+
+        void detach() {
+            released = true;
+            region = null;
+            type = null;
+        }
+    }
+
+    /**
+     * Top-K d'un groupe de propriétés (une région ou un type), modifié sous le verrou du service.
+     * Les lectures passent par un instantané publié à chaque modification.
+     * Seule une baisse d'un membre du top peut faire remonter une propriété hors top : le groupe
+     * est alors marqué et recalculé depuis les totaux une fois les buckets expirés vidés.
+     */
+    private final class GroupRanking {
+        private PropertyCounter[] members = new PropertyCounter[8];
+        private int memberCount;
+        private final TreeSet<RankedProperty> top = new TreeSet<>();
+        private boolean stale;
+        private volatile long[] snapshot = new long[0];
+
+        void addMember(PropertyCounter counter) {
+            if (memberCount == members.length) {
+                members = Arrays.copyOf(members, memberCount * 2);
+            }
+            members[memberCount++] = counter;
+        }
+
+        // Retire les membres libérés ; vrai si le groupe est vide
+        boolean compact() {
+            int kept = 0;
+            for (int i = 0; i < memberCount; i++) {
+                if (!members[i].released) {
+                    members[kept++] = members[i];
+                }
+            }
+            Arrays.fill(members, kept, memberCount, null);
+            memberCount = kept;
+            return memberCount == 0;
+        }
+
+        void update(long propertyId, int previous, int updated) {
+            boolean wasTop = previous > 0 && top.remove(new RankedProperty(propertyId, previous));
+            if (updated > 0) {
+                top.add(new RankedProperty(propertyId, updated));
+                if (top.size() > groupTopK) {
+                    top.pollLast();
+                }
+            }
+            if (wasTop && updated < previous && memberCount > top.size()) {
+                stale = true;
+            }
+            publish();
+        }
+
+        void refreshIfStale() {
+            if (!stale) {
+                return;
+            }
+            top.clear();
+            for (int i = 0; i < memberCount; i++) {
+                PropertyCounter counter = members[i];
+                if (counter.total > 0) {
+                    top.add(new RankedProperty(counter.propertyId, counter.total));
+                    if (top.size() > groupTopK) {
+                        top.pollLast();
+                    }
+                }
+            }
+            stale = false;
+            publish();
+        }
+
+        private void publish() {
+            long[] ids = new long[top.size()];
+            int i = 0;
+            for (RankedProperty rankedProperty : top) {
+                ids[i++] = rankedProperty.propertyId();
+            }
+            snapshot = ids;
+        }
+    }
+
+    private record RankedProperty(long propertyId, int count) implements Comparable<RankedProperty> {
+        @Override
+        public int compareTo(RankedProperty other) {
+            int byCount = Integer.compare(other.count, count);
+            return byCount != 0 ? byCount : Long.compare(propertyId, other.propertyId);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.dto.PresenceDto;
+import com.app.rentmap.repository.ConversationRepository;
+import com.app.rentmap.websocket.ClusterMessageBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Présence des utilisateurs : sessions STOMP ouvertes sur ce nœud et date de dernière activité.
+ * Le registre (userId → sessions) est réparti en shards protégés chacun par son propre verrou.
+ * Chaque trame reçue (heartbeats compris) rafraîchit la session ; une session qui a négocié
+ * des heartbeats et reste muette au-delà du délai d'expiration est retirée par un balayage
+ * périodique, ce qui couvre les connexions coupées sans trame DISCONNECT.
+ * Avec un bus de cluster, les sessions des autres nœuds ne sont pas visibles : isReachable
+ * répond alors toujours vrai pour ne jamais supprimer une diffusion à tort, et la présence d'un
+ * utilisateur sans session sur ce nœud est rendue inconnue (online à null) plutôt que hors ligne.
+ */
+@Service
+public class PresenceService {
+    private static final class SessionState {
+        long lastSeenAt;
+        final boolean heartbeating;
+
+        SessionState(long lastSeenAt, boolean heartbeating) {
+            this.lastSeenAt = lastSeenAt;
+            this.heartbeating = heartbeating;
+        }
+    }
+
+    private static final class UserPresence {
+        final Map<String, SessionState> sessions = new HashMap<>(2);
+        long lastSeenAt;
+    }
+
+    private final ConversationRepository conversationRepository;
+    private final Map<Long, UserPresence>[] shards;
+    private final long staleAfterMs;
+    private final boolean clustered;
+
+    @SuppressWarnings("unchecked")
+    public PresenceService(ConversationRepository conversationRepository,
+                           ObjectProvider<ClusterMessageBus> clusterBus,
+                           MeterRegistry meterRegistry,
+                           @Value("${presence.shards:32}") int shardCount,
+                           @Value("${presence.stale-after-ms:35000}") long staleAfterMs) {
+        this.conversationRepository = conversationRepository;
+        this.shards = new Map[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new HashMap<>();
+        }
+        this.staleAfterMs = staleAfterMs;
+        this.clustered = clusterBus.getIfAvailable() != null;
+        meterRegistry.gauge("presence.online.users", this, PresenceService::countOnlineUsers);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = userId(event.getUser());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (userId == null || sessionId == null) {
+            return;
+        }
+        // Le CONNECT d'origine indique si le client enverra des heartbeats (cx > 0)
+        boolean heartbeating = false;
+        Object connect = event.getMessage().getHeaders().get(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER);
+        if (connect instanceof Message<?> connectMessage) {
+            long[] heartbeat = StompHeaderAccessor.wrap(connectMessage).getHeartbeat();
+            heartbeating = heartbeat != null && heartbeat.length > 0 && heartbeat[0] > 0;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, UserPresence> shard = shard(userId);
+        synchronized (shard) {
+            UserPresence presence = shard.computeIfAbsent(userId, id -> new UserPresence());
+            presence.sessions.put(sessionId, new SessionState(now, heartbeating));
+            presence.lastSeenAt = now;
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Long userId = userId(event.getUser());
+        if (userId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, UserPresence> shard = shard(userId);
+        synchronized (shard) {
+            UserPresence presence = shard.get(userId);
+            if (presence != null && presence.sessions.remove(event.getSessionId()) != null) {
+                presence.lastSeenAt = now;
+            }
+        }
+    }
+
+    /**
+     * Activité sur une session (trame applicative ou heartbeat). Une session inconnue, par exemple
+     * expirée après une pause réseau, est réenregistrée puisqu'elle est manifestement vivante
+     */
+    public void touch(Long userId, String sessionId) {
+        long now = System.currentTimeMillis();
+        Map<Long, UserPresence> shard = shard(userId);
+        synchronized (shard) {
+            UserPresence presence = shard.computeIfAbsent(userId, id -> new UserPresence());
+            SessionState session = presence.sessions.get(sessionId);
+            if (session != null) {
+                session.lastSeenAt = now;
+            } else {
+                presence.sessions.put(sessionId, new SessionState(now, true));
+            }
+            presence.lastSeenAt = now;
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        Map<Long, UserPresence> shard = shard(userId);
+        synchronized (shard) {
+            UserPresence presence = shard.get(userId);
+            return presence != null && !presence.sessions.isEmpty();
+        }
+    }
+
+    /**
+     * Indique si une diffusion WebSocket vers cet utilisateur peut atteindre une session
+     */
+    public boolean isReachable(Long userId) {
+        return clustered || isOnline(userId);
+    }
+
+    /**
+     * Présence des utilisateurs demandés, restreinte aux interlocuteurs de l'utilisateur courant
+     */
+    public List<PresenceDto> getPartnerPresence(Long currentUserId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> partners = new HashSet<>(conversationRepository.findPartnerIds(currentUserId, userIds));
+        List<Long> visible = new ArrayList<>(partners.size());
+        for (Long userId : userIds) {
+            if (partners.contains(userId)) {
+                visible.add(userId);
+            }
+        }
+        return getPresence(visible);
+    }
+
+    public List<PresenceDto> getPresence(Collection<Long> userIds) {
+        List<PresenceDto> result = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            Map<Long, UserPresence> shard = shard(userId);
+            boolean online = false;
+            long lastSeenAt = 0;
+            synchronized (shard) {
+                UserPresence presence = shard.get(userId);
+                if (presence != null) {
+                    online = !presence.sessions.isEmpty();
+                    lastSeenAt = presence.lastSeenAt;
+                }
+            }
+            result.add(new PresenceDto(userId, online || !clustered ? online : null, lastSeenAt > 0
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(lastSeenAt), ZoneId.systemDefault())
+                    : null));
+        }
+        return result;
+    }
+
+    /**
+     * Retire les sessions à heartbeats restées muettes au-delà du délai d'expiration
+     */
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:10000}")
+    public void expireStaleSessions() {
+        long threshold = System.currentTimeMillis() - staleAfterMs;
+        for (Map<Long, UserPresence> shard : shards) {
+            synchronized (shard) {
+                for (UserPresence presence : shard.values()) {
+                    Iterator<SessionState> sessions = presence.sessions.values().iterator();
+                    while (sessions.hasNext()) {
+                        SessionState session = sessions.next();
+                        if (session.heartbeating && session.lastSeenAt < threshold) {
+                            sessions.remove();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int countOnlineUsers() {
+        int online = 0;
+        for (Map<Long, UserPresence> shard : shards) {
+            synchronized (shard) {
+                for (UserPresence presence : shard.values()) {
+                    if (!presence.sessions.isEmpty()) {
+                        online++;
+                    }
+                }
+            }
+        }
+        return online;
+    }
+
+    private Map<Long, UserPresence> shard(Long userId) {
+        return shards[Math.floorMod(userId.hashCode(), shards.length)];
+    }
+
+    // Le nom du principal d'une session STOMP est l'identifiant de l'utilisateur
+    private static Long userId(Principal principal) {
+        if (principal == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(principal.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -17,6 +17,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 public class PropertyService {
@@ -25,15 +28,18 @@ public class PropertyService {
     private final PropertyMapper propertyMapper;
     private final NotificationService notificationService;
     private final PropertyCommentService propertyCommentService;
+    private final PropertyVectorIndexService propertyVectorIndexService;
 
     public PropertyService(PropertyRepository propertyRepository, OwnerRepository ownerRepository,
                           PropertyMapper propertyMapper, NotificationService notificationService,
-                          PropertyCommentService propertyCommentService) {
+                          PropertyCommentService propertyCommentService,
+                          PropertyVectorIndexService propertyVectorIndexService) {
         this.propertyRepository = propertyRepository;
         this.ownerRepository = ownerRepository;
         this.propertyMapper = propertyMapper;
         this.notificationService = notificationService;
         this.propertyCommentService = propertyCommentService;
+        this.propertyVectorIndexService = propertyVectorIndexService;
     }
 
     @Transactional
@@ -63,6 +69,7 @@ public class PropertyService {
         }
 
         Property saved = propertyRepository.save(property);
+        propertyVectorIndexService.indexAfterCommit(saved);
         
         notificationService.notifyMatchingTenants(saved);
         
@@ -108,6 +115,28 @@ public class PropertyService {
         return dto;
     }
 
+    /**
+     * Propriétés similaires ("plus comme celle-ci"), lues depuis l'index de plus proches voisins
+     */
+    @Transactional(readOnly = true)
+    public List<PropertyDto> getSimilarProperties(Long id, int limit) {
+        if (!propertyRepository.existsById(id)) {
+            throw new RuntimeException("Property not found");
+        }
+        List<Long> similarIds = propertyVectorIndexService.findSimilar(id, limit);
+        Map<Long, Property> propertiesById = propertyRepository.findAllById(similarIds).stream()
+                .collect(Collectors.toMap(Property::getId, property -> property));
+        return similarIds.stream()
+                .map(propertiesById::get)
+                .filter(Objects::nonNull)
+                .map(property -> {
+                    PropertyDto dto = propertyMapper.toDto(property);
+                    enrichWithComments(dto, property.getId());
+                    return dto;
+                })
+                .toList();
+    }
+
     public List<PropertyDto> getPropertiesByOwner(String ownerEmail) {
         Owner owner = ownerRepository.findByEmail(ownerEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("Owner not found"));
@@ -0,0 +1,382 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.Property;
+import com.app.rentmap.util.HnswIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index de plus proches voisins (HNSW) sur des vecteurs de caractéristiques des propriétés.
+ * Chaque propriété est encodée en un vecteur de taille fixe (prix et surface normalisés,
+ * position, équipements, type, chambres et salles de bain) ; les requêtes "similaires à"
+ * n'ont plus besoin de parcourir tout le catalogue.
+ * L'index est chargé depuis le disque au démarrage, complété avec les propriétés manquantes,
+ * mis à jour à chaque création et sauvegardé périodiquement.
+ */
+@Slf4j
+@Service
+public class PropertyVectorIndexService {
+    private static final String[] PROPERTY_TYPES = {"APARTMENT", "HOUSE", "STUDIO", "VILLA", "ROOM"};
+    private static final int FEATURE_COUNT = 2 + 2 + 6 + PROPERTY_TYPES.length + 1 + 2;
+    private static final int STATS_COUNT = 4;
+
+    // Poids relatifs des groupes de caractéristiques dans la distance
+    private static final float PRICE_WEIGHT = 2.0f;
+    private static final float AREA_WEIGHT = 1.5f;
+    private static final float LOCATION_WEIGHT = 1.0f;
+    private static final float AMENITY_WEIGHT = 0.5f;
+    private static final float TYPE_WEIGHT = 1.0f;
+    private static final float ROOM_WEIGHT = 0.5f;
+
+    private static final String SELECT_FEATURES =
+            "SELECT id, price, area, latitude, longitude, has_wifi, has_parking, has_air_conditioning, " +
+            "has_heating, has_furnished, pets_allowed, property_type, number_of_bedrooms, number_of_bathrooms " +
+            "FROM properties";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path indexPath;
+    private final int maxConnections;
+    private final int efConstruction;
+    private final int efSearch;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile HnswIndex index;
+    // Moyennes et écarts-types (log prix, log surface, latitude, longitude) figés à la construction
+    private volatile FeatureStats stats = FeatureStats.IDENTITY;
+
+    public PropertyVectorIndexService(JdbcTemplate jdbcTemplate,
+                                      @Value("${recommendations.ann.index-path:data/property-hnsw.bin}") String indexPath,
+                                      @Value("${recommendations.ann.max-connections:16}") int maxConnections,
+                                      @Value("${recommendations.ann.ef-construction:200}") int efConstruction,
+                                      @Value("${recommendations.ann.ef-search:64}") int efSearch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexPath = Paths.get(indexPath).toAbsolutePath();
+        this.maxConnections = maxConnections;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.index = new HnswIndex(FEATURE_COUNT, maxConnections, efConstruction);
+    }
+
+    /**
+     * Charge l'index sauvegardé s'il existe, sinon le reconstruit ; dans les deux cas
+     * les propriétés absentes de l'index y sont ajoutées. Sous le verrou du service, comme add et
+     * rebuild : un vecteur est toujours encodé avec les statistiques de l'index qui le reçoit
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void initialize() {
+        try {
+            if (!load()) {
+                rebuild();
+                return;
+            }
+            List<PropertyFeatures> rows = jdbcTemplate.query(SELECT_FEATURES, (rs, rowNum) -> readFeatures(rs));
+            int added = 0;
+            for (PropertyFeatures row : rows) {
+                if (!index.contains(row.id())) {
+                    index.add(row.id(), encode(row, stats));
+                    added++;
+                }
+            }
+            if (added > 0) {
+                dirty.set(true);
+            }
+            log.info("Property vector index loaded from {} ({} properties, {} added since last save)",
+                    indexPath, index.size(), added);
+        } catch (Exception e) {
+            log.error("Error initializing property vector index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recalcule les statistiques de normalisation et reconstruit l'index complet
+     */
+    public synchronized void rebuild() {
+        List<PropertyFeatures> rows = new ArrayList<>();
+        jdbcTemplate.query(SELECT_FEATURES, (RowCallbackHandler) rs -> rows.add(readFeatures(rs)));
+        FeatureStats newStats = FeatureStats.of(rows);
+        HnswIndex newIndex = new HnswIndex(FEATURE_COUNT, maxConnections, efConstruction);
+        for (PropertyFeatures row : rows) {
+            newIndex.add(row.id(), encode(row, newStats));
+        }
+        stats = newStats;
+        index = newIndex;
+        dirty.set(true);
+        log.info("Property vector index rebuilt with {} properties", newIndex.size());
+    }
+
+    /**
+     * Ajoute ou remplace une propriété dans l'index, après le commit de la transaction courante
+     */
+    public void indexAfterCommit(Property property) {
+        PropertyFeatures features = PropertyFeatures.of(property);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(features);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(features);
+            }
+        });
+    }
+
+    /**
+     * Propriétés les plus proches d'une propriété indexée, de la plus à la moins similaire
+     */
+    public List<Long> findSimilar(Long propertyId, int limit) {
+        HnswIndex current = index;
+        float[] vector = current.getVector(propertyId);
+        if (vector == null) {
+            return List.of();
+        }
+        return toIds(current.search(vector, limit, Math.max(efSearch, limit), id -> id == propertyId));
+    }
+
+    /**
+     * Propriétés les plus proches du centre des propriétés données (ex. les favoris d'un tenant),
+     * celles-ci exclues
+     */
+    public List<Long> findSimilarToAll(Collection<Long> propertyIds, int limit) {
+        HnswIndex current = index;
+        float[] centroid = new float[FEATURE_COUNT];
+        int count = 0;
+        for (Long propertyId : propertyIds) {
+            float[] vector = current.getVector(propertyId);
+            if (vector == null) {
+                continue;
+            }
+            for (int i = 0; i < FEATURE_COUNT; i++) {
+                centroid[i] += vector[i];
+            }
+            count++;
+        }
+        if (count == 0) {
+            return List.of();
+        }
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            centroid[i] /= count;
+        }
+        Set<Long> excluded = Set.copyOf(propertyIds);
+        return toIds(current.search(centroid, limit, Math.max(efSearch, limit), excluded::contains));
+    }
+
+    public boolean isReady() {
+        return index.size() > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${recommendations.ann.persist-interval-ms:300000}",
+               initialDelayString = "${recommendations.ann.persist-interval-ms:300000}")
+    public void persistIfDirty() {
+        if (dirty.getAndSet(false)) {
+            try {
+                save();
+            } catch (IOException e) {
+                dirty.set(true);
+                log.error("Error saving property vector index to {}: {}", indexPath, e.getMessage(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistIfDirty();
+    }
+
+    private synchronized void add(PropertyFeatures features) {
+        index.add(features.id(), encode(features, stats));
+        dirty.set(true);
+    }
+
+    private void save() throws IOException {
+        // Statistiques et index lus ensemble : une reconstruction concurrente remplace les deux
+        FeatureStats savedStats;
+        HnswIndex savedIndex;
+        synchronized (this) {
+            savedStats = stats;
+            savedIndex = index;
+        }
+        Files.createDirectories(indexPath.getParent());
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            savedStats.writeTo(out);
+            savedIndex.writeTo(out);
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Property vector index saved to {}", indexPath);
+    }
+
+    private synchronized boolean load() {
+        if (!Files.isRegularFile(indexPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            FeatureStats loadedStats = FeatureStats.readFrom(in);
+            HnswIndex loadedIndex = HnswIndex.readFrom(in);
+            if (loadedIndex.dimension() != FEATURE_COUNT) {
+                log.warn("Ignoring property vector index with dimension {} (expected {})",
+                        loadedIndex.dimension(), FEATURE_COUNT);
+                return false;
+            }
+            stats = loadedStats;
+            index = loadedIndex;
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not read property vector index {}, rebuilding: {}", indexPath, e.getMessage());
+            return false;
+        }
+    }
+
+    private static List<Long> toIds(List<HnswIndex.Neighbor> neighbors) {
+        return neighbors.stream().map(HnswIndex.Neighbor::id).toList();
+    }
+
+    private static float[] encode(PropertyFeatures p, FeatureStats s) {
+        float[] v = new float[FEATURE_COUNT];
+        int i = 0;
+        v[i++] = PRICE_WEIGHT * s.standardize(0, Math.log1p(p.price()));
+        v[i++] = AREA_WEIGHT * s.standardize(1, Math.log1p(p.area()));
+        v[i++] = LOCATION_WEIGHT * s.standardize(2, p.latitude());
+        v[i++] = LOCATION_WEIGHT * s.standardize(3, p.longitude());
+        for (boolean amenity : p.amenities()) {
+            v[i++] = amenity ? AMENITY_WEIGHT : 0f;
+        }
+        int typeSlot = PROPERTY_TYPES.length;
+        for (int t = 0; t < PROPERTY_TYPES.length; t++) {
+            if (PROPERTY_TYPES[t].equalsIgnoreCase(p.propertyType())) {
+                typeSlot = t;
+                break;
+            }
+        }
+        v[i + typeSlot] = TYPE_WEIGHT;
+        i += PROPERTY_TYPES.length + 1;
+        v[i++] = ROOM_WEIGHT * Math.min(p.bedrooms(), 6) / 3f;
+        v[i] = ROOM_WEIGHT * Math.min(p.bathrooms(), 4) / 2f;
+        return v;
+    }
+
+    private static PropertyFeatures readFeatures(ResultSet rs) throws SQLException {
+        return new PropertyFeatures(
+                rs.getLong("id"),
+                rs.getDouble("price"),
+                rs.getDouble("area"),
+                rs.getDouble("latitude"),
+                rs.getDouble("longitude"),
+                new boolean[]{
+                        rs.getBoolean("has_wifi"),
+                        rs.getBoolean("has_parking"),
+                        rs.getBoolean("has_air_conditioning"),
+                        rs.getBoolean("has_heating"),
+                        rs.getBoolean("has_furnished"),
+                        rs.getBoolean("pets_allowed")
+                },
+                rs.getString("property_type"),
+                rs.getInt("number_of_bedrooms"),
+                rs.getInt("number_of_bathrooms"));
+    }
+
+    private record PropertyFeatures(long id, double price, double area, double latitude, double longitude,
+                                    boolean[] amenities, String propertyType, int bedrooms, int bathrooms) {
+        static PropertyFeatures of(Property property) {
+            return new PropertyFeatures(
+                    property.getId(),
+                    property.getPrice().doubleValue(),
+                    property.getArea(),
+                    property.getLatitude(),
+                    property.getLongitude(),
+                    new boolean[]{
+                            Boolean.TRUE.equals(property.getHasWifi()),
+                            Boolean.TRUE.equals(property.getHasParking()),
+                            Boolean.TRUE.equals(property.getHasAirConditioning()),
+                            Boolean.TRUE.equals(property.getHasHeating()),
+                            Boolean.TRUE.equals(property.getHasFurnished()),
+                            Boolean.TRUE.equals(property.getPetsAllowed())
+                    },
+                    property.getPropertyType(),
+                    property.getNumberOfBedrooms() != null ? property.getNumberOfBedrooms() : 0,
+                    property.getNumberOfBathrooms() != null ? property.getNumberOfBathrooms() : 0);
+        }
+    }
+
+    private record FeatureStats(double[] means, double[] deviations) {
+        static final FeatureStats IDENTITY = new FeatureStats(new double[STATS_COUNT], new double[]{1, 1, 1, 1});
+
+        static FeatureStats of(List<PropertyFeatures> rows) {
+            if (rows.isEmpty()) {
+                return IDENTITY;
+            }
+            double[][] columns = new double[STATS_COUNT][rows.size()];
+            for (int r = 0; r < rows.size(); r++) {
+                PropertyFeatures row = rows.get(r);
+                columns[0][r] = Math.log1p(row.price());
+                columns[1][r] = Math.log1p(row.area());
+                columns[2][r] = row.latitude();
+                columns[3][r] = row.longitude();
+            }
+            double[] means = new double[STATS_COUNT];
+            double[] deviations = new double[STATS_COUNT];
+            for (int c = 0; c < STATS_COUNT; c++) {
+                double sum = 0;
+                for (double value : columns[c]) {
+                    sum += value;
+                }
+                double mean = sum / rows.size();
+                double squares = 0;
+                for (double value : columns[c]) {
+                    squares += (value - mean) * (value - mean);
+                }
+                double deviation = Math.sqrt(squares / rows.size());
+                means[c] = mean;
+                deviations[c] = deviation > 1e-9 ? deviation : 1.0;
+            }
+            return new FeatureStats(means, deviations);
+        }
+
+        float standardize(int column, double value) {
+            return (float) ((value - means[column]) / deviations[column]);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int c = 0; c < STATS_COUNT; c++) {
+                out.writeDouble(means[c]);
+                out.writeDouble(deviations[c]);
+            }
+        }
+
+        static FeatureStats readFrom(DataInputStream in) throws IOException {
+            double[] means = new double[STATS_COUNT];
+            double[] deviations = new double[STATS_COUNT];
+            for (int c = 0; c < STATS_COUNT; c++) {
+                means[c] = in.readDouble();
+                deviations[c] = in.readDouble();
+            }
+            return new FeatureStats(means, deviations);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.dto.RecommendationDto;
+import com.app.rentmap.entity.Tenant;
+import com.app.rentmap.repository.TenantRecommendationRepository;
+import com.app.rentmap.repository.TenantRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Précalcul nocturne des recommandations de tous les tenants actifs.
+ * Les tenants sont répartis en partitions traitées en parallèle ; la liste de chaque tenant
+ * est remplacée dans sa propre transaction et porte le numéro de génération du traitement.
+ * Chaque partition lance les quatre stratégies en parallèle : le nombre de partitions doit rester
+ * compatible avec la taille du pool de connexions.
+ */
+@Slf4j
+@Service
+public class RecommendationBatchService {
+    private static final String INSERT_SQL =
+            "INSERT INTO tenant_recommendations " +
+            "(tenant_id, property_id, ranking, score, reason, recommendation_type, generation, computed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final RecommendationService recommendationService;
+    private final TenantRepository tenantRepository;
+    private final TenantRecommendationRepository tenantRecommendationRepository;
+    private final TenantActivityTracker tenantActivityTracker;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterJobLock clusterJobLock;
+    private final MeterRegistry meterRegistry;
+    private final int topN;
+    private final int partitions;
+    private final int activeDays;
+    private final int retainedGenerations;
+    private final long strategyDeadlineMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RecommendationBatchService(RecommendationService recommendationService,
+                                      TenantRepository tenantRepository,
+                                      TenantRecommendationRepository tenantRecommendationRepository,
+                                      TenantActivityTracker tenantActivityTracker,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      ClusterJobLock clusterJobLock,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${recommendations.batch.top-n:10}") int topN,
+                                      @Value("${recommendations.batch.partitions:2}") int partitions,
+                                      @Value("${recommendations.batch.active-days:30}") int activeDays,
+                                      @Value("${recommendations.batch.retained-generations:7}") int retainedGenerations,
+                                      @Value("${recommendations.batch.strategy-deadline-ms:30000}") long strategyDeadlineMs) {
+        this.recommendationService = recommendationService;
+        this.tenantRepository = tenantRepository;
+        this.tenantRecommendationRepository = tenantRecommendationRepository;
+        this.tenantActivityTracker = tenantActivityTracker;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterJobLock = clusterJobLock;
+        this.meterRegistry = meterRegistry;
+        this.topN = topN;
+        this.partitions = Math.max(1, partitions);
+        this.activeDays = activeDays;
+        this.retainedGenerations = Math.max(1, retainedGenerations);
+        this.strategyDeadlineMs = strategyDeadlineMs;
+    }
+
+    /**
+     * Un seul nœud calcule la génération : sur les autres, l'exécution est ignorée
+     */
+    @Scheduled(cron = "${recommendations.batch.cron:0 0 3 * * *}")
+    public void runNightlyBatch() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Recommendation batch already running, skipping");
+            return;
+        }
+        try {
+            boolean ran = clusterJobLock.runIfFree("recommendations.batch",
+                    () -> meterRegistry.timer("recommendations.batch.duration").record(this::precomputeAll));
+            if (!ran) {
+                log.info("Recommendation batch already running on another node, skipping");
+            }
+        } catch (Exception e) {
+            log.error("Recommendation batch failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Calcule et enregistre une nouvelle génération pour tous les tenants actifs.
+     *
+     * @return le numéro de la génération produite
+     */
+    public long precomputeAll() {
+        long generation = tenantRecommendationRepository.findLatestGeneration() + 1;
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<Long> tenantIds = findActiveTenantIds(startedAt.minusDays(activeDays));
+
+        List<List<Long>> partitionedIds = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            partitionedIds.add(new ArrayList<>());
+        }
+        for (Long tenantId : tenantIds) {
+            partitionedIds.get((int) Math.floorMod(tenantId, (long) partitions)).add(tenantId);
+        }
+
+        Counter computed = meterRegistry.counter("recommendations.batch.tenants", "result", "computed");
+        Counter failed = meterRegistry.counter("recommendations.batch.tenants", "result", "failed");
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions);
+        try {
+            List<Future<?>> futures = new ArrayList<>(partitions);
+            for (List<Long> partition : partitionedIds) {
+                futures.add(executor.submit(() -> {
+                    for (Long tenantId : partition) {
+                        try {
+                            precomputeTenant(tenantId, generation);
+                            computed.increment();
+                        } catch (Exception e) {
+                            failed.increment();
+                            failures.incrementAndGet();
+                            log.warn("Could not precompute recommendations for tenant {}: {}", tenantId, e.getMessage());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recommendation batch interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Recommendation batch partition failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Les générations trop anciennes (tenants devenus inactifs) sont purgées
+        int purged = jdbcTemplate.update("DELETE FROM tenant_recommendations WHERE generation <= ?",
+                generation - retainedGenerations);
+        Timestamp oldestServed = jdbcTemplate.queryForObject(
+                "SELECT MIN(computed_at) FROM tenant_recommendations", Timestamp.class);
+        if (oldestServed != null) {
+            tenantActivityTracker.pruneBefore(oldestServed.toLocalDateTime());
+        }
+        log.info("Recommendation generation {} computed for {} tenants ({} failures, {} stale rows purged)",
+                generation, tenantIds.size(), failures.get(), purged);
+        return generation;
+    }
+
+    private void precomputeTenant(Long tenantId, long generation) {
+        Tenant tenant = tenantRepository.findById(tenantId).orElse(null);
+        if (tenant == null) {
+            return;
+        }
+        LocalDateTime computedAt = LocalDateTime.now();
+        List<RecommendationDto> recommendations = recommendationService.computeRecommendations(tenant, topN, strategyDeadlineMs);
+
+        List<Object[]> rows = new ArrayList<>(recommendations.size());
+        for (int i = 0; i < recommendations.size(); i++) {
+            RecommendationDto rec = recommendations.get(i);
+            rows.add(new Object[]{
+                    tenantId, rec.getProperty().getId(), i, rec.getRecommendationScore(), rec.getReason(),
+                    rec.getRecommendationType(), generation, Timestamp.valueOf(computedAt)
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM tenant_recommendations WHERE tenant_id = ?", tenantId);
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            }
+        });
+    }
+
+    private List<Long> findActiveTenantIds(LocalDateTime since) {
+        Timestamp sinceTs = Timestamp.valueOf(since);
+        return jdbcTemplate.queryForList(
+                "SELECT tenant_id FROM interaction_history WHERE created_at >= ? " +
+                "UNION SELECT tenant_id FROM search_events WHERE created_at >= ? " +
+                "UNION SELECT tenant_id FROM favorites WHERE created_at >= ? " +
+                "ORDER BY 1",
+                Long.class, sinceTs, sinceTs, sinceTs);
+    }
+}
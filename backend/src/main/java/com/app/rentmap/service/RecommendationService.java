@@ -5,22 +5,64 @@ import com.app.rentmap.dto.RecommendationDto;
 import com.app.rentmap.entity.*;
 import com.app.rentmap.mapper.PropertyMapper;
 import com.app.rentmap.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class RecommendationService {
+    private static final String STRATEGY_COLLABORATIVE = "collaborative";
+    private static final String STRATEGY_CONTENT_BASED = "content_based";
+    private static final String STRATEGY_PREFERENCE_BASED = "preference_based";
+    private static final String STRATEGY_POPULAR = "popular";
+    private static final int MAX_SIMILAR_TENANTS = 50;
+    // Taille du vivier de candidats ANN rescorés par le filtrage basé sur le contenu, en multiple de la limite
+    private static final int CONTENT_CANDIDATE_FACTOR = 10;
+    // Poids du score du modèle de facteurs latents dans le filtrage collaboratif
+    private static final double LATENT_WEIGHT = 0.3;
+
     private final UserInteractionRepository interactionRepository;
     private final TenantRepository tenantRepository;
     private final PropertyRepository propertyRepository;
     private final FavoriteRepository favoriteRepository;
     private final PropertyMapper propertyMapper;
     private final PropertyCommentService propertyCommentService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final InteractionIngestionService interactionIngestionService;
+    private final InteractionDedupeFilter interactionDedupeFilter;
+    private final PopularityService popularityService;
+    private final SimilarTenantService similarTenantService;
+    private final AffinityService affinityService;
+    private final PropertyVectorIndexService propertyVectorIndexService;
+    private final TenantRecommendationRepository tenantRecommendationRepository;
+    private final TenantActivityTracker tenantActivityTracker;
+    private final TenantProfileService tenantProfileService;
+    private final OnlineCollaborativeFilteringService onlineCollaborativeFilteringService;
+    private final TenantSegmentationService tenantSegmentationService;
+    private final long strategyDeadlineMs;
+    // Un thread virtuel par stratégie : les appels JPA bloquants ne monopolisent pas de thread plateforme
+    private final ExecutorService strategyExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public RecommendationService(
             UserInteractionRepository interactionRepository,
@@ -28,13 +70,47 @@ public class RecommendationService {
             PropertyRepository propertyRepository,
             FavoriteRepository favoriteRepository,
             PropertyMapper propertyMapper,
-            PropertyCommentService propertyCommentService) {
+            PropertyCommentService propertyCommentService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            InteractionIngestionService interactionIngestionService,
+            InteractionDedupeFilter interactionDedupeFilter,
+            PopularityService popularityService,
+            SimilarTenantService similarTenantService,
+            AffinityService affinityService,
+            PropertyVectorIndexService propertyVectorIndexService,
+            TenantRecommendationRepository tenantRecommendationRepository,
+            TenantActivityTracker tenantActivityTracker,
+            TenantProfileService tenantProfileService,
+            OnlineCollaborativeFilteringService onlineCollaborativeFilteringService,
+            TenantSegmentationService tenantSegmentationService,
+            @Value("${recommendations.strategy-deadline-ms:1500}") long strategyDeadlineMs) {
         this.interactionRepository = interactionRepository;
         this.tenantRepository = tenantRepository;
         this.propertyRepository = propertyRepository;
         this.favoriteRepository = favoriteRepository;
         this.propertyMapper = propertyMapper;
         this.propertyCommentService = propertyCommentService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.interactionIngestionService = interactionIngestionService;
+        this.interactionDedupeFilter = interactionDedupeFilter;
+        this.popularityService = popularityService;
+        this.similarTenantService = similarTenantService;
+        this.affinityService = affinityService;
+        this.propertyVectorIndexService = propertyVectorIndexService;
+        this.tenantRecommendationRepository = tenantRecommendationRepository;
+        this.tenantActivityTracker = tenantActivityTracker;
+        this.tenantProfileService = tenantProfileService;
+        this.onlineCollaborativeFilteringService = onlineCollaborativeFilteringService;
+        this.tenantSegmentationService = tenantSegmentationService;
+        this.strategyDeadlineMs = strategyDeadlineMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        strategyExecutor.shutdownNow();
     }
 
     /**
@@ -42,24 +118,17 @@ public class RecommendationService {
      */
     @Transactional
     public void recordInteraction(Long tenantId, Long propertyId, UserInteraction.InteractionType type, String searchQuery) {
-        Tenant tenant = tenantRepository.findById(tenantId)
-                .orElseThrow(() -> new RuntimeException("Tenant not found"));
-        Property property = propertyRepository.findById(propertyId)
-                .orElseThrow(() -> new RuntimeException("Property not found"));
-
-        // Vérifier si l'interaction existe déjà
-        Optional<UserInteraction> existing = interactionRepository
-                .findByTenantIdAndPropertyIdAndInteractionType(tenantId, propertyId, type);
-
-        if (existing.isEmpty()) {
-            UserInteraction interaction = UserInteraction.builder()
-                    .tenant(tenant)
-                    .property(property)
-                    .interactionType(type)
-                    .searchQuery(searchQuery)
-                    .build();
-            interactionRepository.save(interaction);
+        // Le filtre remplace la lecture préalable ; ON CONFLICT DO NOTHING couvre ses faux négatifs
+        LocalDateTime now = LocalDateTime.now();
+        InteractionEvent event = new InteractionEvent(tenantId, propertyId, type, searchQuery, now);
+        if (interactionDedupeFilter.isProbablySeen(tenantId, propertyId, type, now)) {
+            interactionIngestionService.publishAfterCommit(event, false);
+            return;
         }
+        int inserted = interactionRepository.insertIfAbsent(tenantId, propertyId, type.name(), searchQuery,
+                type.getDefaultScore(), now);
+        interactionDedupeFilter.markSeenAfterCommit(tenantId, propertyId, type, now);
+        interactionIngestionService.publishAfterCommit(event, inserted > 0);
     }
 
     /**
@@ -73,31 +142,96 @@ public class RecommendationService {
     }
 
     /**
-     * Obtient les recommandations pour un tenant
+     * Dépose des interactions dans la file d'ingestion sans attendre leur écriture.
+     * L'identifiant du tenant est pris du jeton quand il est connu, sinon résolu une seule fois par email.
+     */
+    public void recordInteractionsAsync(String tenantEmail, Long tenantId, List<Long> propertyIds,
+                                        UserInteraction.InteractionType type, String searchQuery) {
+        Long resolvedTenantId = tenantId != null ? tenantId : tenantRepository.findByEmail(tenantEmail)
+                .map(Tenant::getId)
+                .orElseThrow(() -> new UsernameNotFoundException("Tenant not found"));
+        LocalDateTime now = LocalDateTime.now();
+        for (Long propertyId : propertyIds) {
+            interactionIngestionService.offer(new InteractionEvent(resolvedTenantId, propertyId, type, searchQuery, now));
+        }
+    }
+
+    /**
+     * Dépose une recherche dans la file d'ingestion : une ligne search_events avec les filtres
+     * normalisés et les propriétés affichées, au lieu d'une interaction SEARCH par résultat
+     */
+    public void recordSearchAsync(String tenantEmail, Long tenantId, String region, BigDecimal maxPrice,
+                                  int page, int size, long totalResults, List<Long> propertyIds) {
+        Long resolvedTenantId = tenantId != null ? tenantId : tenantRepository.findByEmail(tenantEmail)
+                .map(Tenant::getId)
+                .orElseThrow(() -> new UsernameNotFoundException("Tenant not found"));
+        String normalizedRegion = region != null && !region.isBlank() ? region.trim().toLowerCase(Locale.ROOT) : null;
+        interactionIngestionService.offerSearch(SearchEvent.builder()
+                .tenantId(resolvedTenantId)
+                .region(normalizedRegion)
+                .maxPrice(maxPrice != null ? maxPrice.stripTrailingZeros() : null)
+                .pageNumber(page)
+                .pageSize(size)
+                .totalResults(totalResults)
+                .resultPropertyIds(propertyIds.toArray(Long[]::new))
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Obtient les recommandations pour un tenant.
+     * La liste précalculée par le traitement nocturne est servie telle quelle si le tenant
+     * n'a pas eu d'activité depuis son calcul ; sinon elle est recalculée en ligne.
      */
-    @Transactional(readOnly = true)
     public List<RecommendationDto> getRecommendations(String tenantEmail, int limit) {
         Tenant tenant = tenantRepository.findByEmail(tenantEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("Tenant not found"));
 
-        Map<Long, RecommendationDto> recommendations = new HashMap<>();
+        List<RecommendationDto> precomputed = getPrecomputedRecommendations(tenant.getId(), limit);
+        if (precomputed != null) {
+            return precomputed;
+        }
+        return computeRecommendations(tenant, limit);
+    }
 
-        // 1. Filtrage collaboratif (basé sur les utilisateurs similaires)
-        List<RecommendationDto> collaborativeRecs = getCollaborativeFilteringRecommendations(tenant, limit);
-        mergeRecommendations(recommendations, collaborativeRecs);
+    /**
+     * Calcule les recommandations en ligne.
+     * Les stratégies s'exécutent en parallèle, chacune dans sa propre transaction en lecture seule ;
+     * celles qui dépassent le délai configuré sont ignorées.
+     */
+    public List<RecommendationDto> computeRecommendations(Tenant tenant, int limit) {
+        return computeRecommendations(tenant, limit, strategyDeadlineMs);
+    }
 
+    /**
+     * Variante avec un délai explicite, pour les traitements hors requête
+     */
+    public List<RecommendationDto> computeRecommendations(Tenant tenant, int limit, long deadlineMs) {
+        Map<String, Future<List<RecommendationDto>>> futures = new LinkedHashMap<>();
+        // 1. Filtrage collaboratif (basé sur les utilisateurs similaires)
+        futures.put(STRATEGY_COLLABORATIVE, submitStrategy(STRATEGY_COLLABORATIVE,
+                () -> getCollaborativeFilteringRecommendations(tenant, limit)));
         // 2. Filtrage basé sur le contenu (propriétés similaires aux favoris)
-        List<RecommendationDto> contentBasedRecs = getContentBasedRecommendations(tenant, limit);
-        mergeRecommendations(recommendations, contentBasedRecs);
-
+        futures.put(STRATEGY_CONTENT_BASED, submitStrategy(STRATEGY_CONTENT_BASED,
+                () -> getContentBasedRecommendations(tenant, limit)));
         // 3. Recommandations basées sur les préférences explicites
-        List<RecommendationDto> preferenceBasedRecs = getPreferenceBasedRecommendations(tenant, limit);
-        mergeRecommendations(recommendations, preferenceBasedRecs);
+        futures.put(STRATEGY_PREFERENCE_BASED, submitStrategy(STRATEGY_PREFERENCE_BASED,
+                () -> getPreferenceBasedRecommendations(tenant, limit)));
+        // 4. Propriétés populaires (fallback), calculées en parallèle et utilisées seulement si nécessaire
+        futures.put(STRATEGY_POPULAR, submitStrategy(STRATEGY_POPULAR,
+                () -> getPopularRecommendations(tenant, limit)));
+
+        Map<String, List<RecommendationDto>> results = awaitStrategies(futures, deadlineMs);
+
+        Map<Long, RecommendationDto> recommendations = new HashMap<>();
+        mergeRecommendations(recommendations, results.getOrDefault(STRATEGY_COLLABORATIVE, List.of()));
+        mergeRecommendations(recommendations, results.getOrDefault(STRATEGY_CONTENT_BASED, List.of()));
+        mergeRecommendations(recommendations, results.getOrDefault(STRATEGY_PREFERENCE_BASED, List.of()));
 
-        // 4. Propriétés populaires (fallback)
         if (recommendations.size() < limit) {
-            List<RecommendationDto> popularRecs = getPopularRecommendations(limit - recommendations.size());
-            mergeRecommendations(recommendations, popularRecs);
+            List<RecommendationDto> popularRecs = results.getOrDefault(STRATEGY_POPULAR, List.of());
+            int missing = limit - recommendations.size();
+            mergeRecommendations(recommendations, popularRecs.subList(0, Math.min(missing, popularRecs.size())));
         }
 
         // Trier par score et retourner les meilleures
@@ -108,39 +242,136 @@ public class RecommendationService {
     }
 
     /**
-     * Filtrage collaboratif : trouve des propriétés aimées par des utilisateurs similaires
+     * Liste précalculée du tenant, ou null si elle est absente, trop courte ou antérieure
+     * à sa dernière activité
+     */
+    private List<RecommendationDto> getPrecomputedRecommendations(Long tenantId, int limit) {
+        List<RecommendationDto> result = readOnlyTransaction.execute(status -> {
+            List<TenantRecommendation> stored = tenantRecommendationRepository.findByTenantIdWithProperty(tenantId);
+            if (stored.isEmpty()) {
+                meterRegistry.counter("recommendations.precomputed", "result", "miss").increment();
+                return null;
+            }
+            if (stored.size() < limit
+                    || tenantActivityTracker.hasActivitySince(tenantId, stored.get(0).getComputedAt())) {
+                meterRegistry.counter("recommendations.precomputed", "result", "stale").increment();
+                return null;
+            }
+            return stored.stream()
+                    .limit(limit)
+                    .map(row -> {
+                        PropertyDto dto = propertyMapper.toDto(row.getProperty());
+                        enrichPropertyDto(dto, row.getProperty().getId());
+                        return RecommendationDto.builder()
+                                .property(dto)
+                                .recommendationScore(row.getScore())
+                                .reason(row.getReason())
+                                .recommendationType(row.getRecommendationType())
+                                .build();
+                    })
+                    .collect(Collectors.toList());
+        });
+        if (result != null) {
+            meterRegistry.counter("recommendations.precomputed", "result", "hit").increment();
+        }
+        return result;
+    }
+
+    /**
+     * Lance une stratégie sur un thread virtuel dans une transaction en lecture seule et mesure sa latence
+     */
+    private Future<List<RecommendationDto>> submitStrategy(String name, Supplier<List<RecommendationDto>> strategy) {
+        Timer timer = meterRegistry.timer("recommendations.strategy.latency", "strategy", name);
+        return strategyExecutor.submit(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return readOnlyTransaction.execute(status -> strategy.get());
+            } finally {
+                sample.stop(timer);
+            }
+        });
+    }
+
+    /**
+     * Attend les stratégies jusqu'au délai commun ; les stratégies en retard ou en échec sont abandonnées
+     */
+    private Map<String, List<RecommendationDto>> awaitStrategies(Map<String, Future<List<RecommendationDto>>> futures,
+                                                                 long deadlineMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        Map<String, List<RecommendationDto>> results = new HashMap<>();
+
+        for (Map.Entry<String, Future<List<RecommendationDto>>> entry : futures.entrySet()) {
+            String name = entry.getKey();
+            Future<List<RecommendationDto>> future = entry.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                List<RecommendationDto> recs = future.get(remaining, TimeUnit.NANOSECONDS);
+                results.put(name, recs != null ? recs : List.of());
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                meterRegistry.counter("recommendations.strategy.dropped", "strategy", name, "cause", "deadline").increment();
+                log.warn("Recommendation strategy '{}' missed the {} ms deadline", name, deadlineMs);
+            } catch (ExecutionException e) {
+                meterRegistry.counter("recommendations.strategy.dropped", "strategy", name, "cause", "error").increment();
+                log.error("Recommendation strategy '{}' failed: {}", name, e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Filtrage collaboratif : trouve des propriétés aimées par des utilisateurs similaires.
+     * Les voisins viennent de l'index MinHash/LSH et sont pondérés par leur similarité estimée ;
+     * le score du modèle de facteurs latents appris en ligne s'y ajoute, ce qui couvre aussi
+     * les tenants sans voisin identifié.
      */
     private List<RecommendationDto> getCollaborativeFilteringRecommendations(Tenant tenant, int limit) {
-        List<Tenant> similarTenants = interactionRepository.findSimilarTenants(tenant.getId());
-        
-        if (similarTenants.isEmpty()) {
+        List<SimilarTenantService.SimilarTenant> similarTenants =
+                similarTenantService.findSimilarTenants(tenant.getId(), MAX_SIMILAR_TENANTS);
+
+        // Propriétés déjà favorites du tenant, à ignorer
+        Set<Long> tenantFavoriteIds = new HashSet<>(favoriteRepository.findPropertyIdsByTenantId(tenant.getId()));
+        Map<Long, Double> latentScores =
+                onlineCollaborativeFilteringService.recommend(tenant.getId(), limit, tenantFavoriteIds);
+
+        if (similarTenants.isEmpty() && latentScores.isEmpty()) {
             return Collections.emptyList();
         }
 
+        Map<Long, Double> propertyScores = new HashMap<>();
+
         // Propriétés favorites des utilisateurs similaires
-        Set<Long> tenantFavoriteIds = favoriteRepository.findByTenantId(tenant.getId()).stream()
-                .map(f -> f.getProperty().getId())
-                .collect(Collectors.toSet());
+        if (!similarTenants.isEmpty()) {
+            Map<Long, Double> similarityByTenant = similarTenants.stream()
+                    .collect(Collectors.toMap(SimilarTenantService.SimilarTenant::tenantId,
+                            SimilarTenantService.SimilarTenant::similarity));
+            double totalSimilarity = similarityByTenant.values().stream().mapToDouble(Double::doubleValue).sum();
 
-        Map<Long, Double> propertyScores = new HashMap<>();
-        
-        for (Tenant similarTenant : similarTenants) {
-            List<Favorite> favorites = favoriteRepository.findByTenantId(similarTenant.getId());
-            for (Favorite favorite : favorites) {
+            for (Favorite favorite : favoriteRepository.findByTenantIdIn(similarityByTenant.keySet())) {
                 Long propertyId = favorite.getProperty().getId();
-                // Ignorer les propriétés déjà favorites du tenant
                 if (!tenantFavoriteIds.contains(propertyId)) {
-                    propertyScores.merge(propertyId, 0.8, Double::sum);
+                    propertyScores.merge(propertyId,
+                            0.8 * similarityByTenant.get(favorite.getTenant().getId()) / totalSimilarity, Double::sum);
                 }
             }
         }
+        latentScores.forEach((propertyId, score) -> propertyScores.merge(propertyId, LATENT_WEIGHT * score, Double::sum));
 
-        return propertyScores.entrySet().stream()
+        List<Map.Entry<Long, Double>> topScores = propertyScores.entrySet().stream()
                 .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
                 .limit(limit)
+                .toList();
+        Map<Long, Property> propertiesById = propertyRepository.findAllById(
+                        topScores.stream().map(Map.Entry::getKey).toList()).stream()
+                .collect(Collectors.toMap(Property::getId, property -> property));
+
+        return topScores.stream()
                 .map(entry -> {
-                    Property property = propertyRepository.findById(entry.getKey())
-                            .orElse(null);
+                    Property property = propertiesById.get(entry.getKey());
                     if (property == null) return null;
                     
                     PropertyDto dto = propertyMapper.toDto(property);
@@ -148,7 +379,7 @@ public class RecommendationService {
                     
                     return RecommendationDto.builder()
                             .property(dto)
-                            .recommendationScore(Math.min(entry.getValue() / similarTenants.size(), 1.0))
+                            .recommendationScore(Math.min(entry.getValue(), 1.0))
                             .reason("Recommandé par des utilisateurs ayant des goûts similaires")
                             .recommendationType("COLLABORATIVE")
                             .build();
@@ -158,56 +389,36 @@ public class RecommendationService {
     }
 
     /**
-     * Filtrage basé sur le contenu : trouve des propriétés similaires aux favoris
+     * Filtrage basé sur le contenu : trouve des propriétés similaires aux favoris.
+     * Les candidats sont les plus proches voisins du centre des favoris dans l'index vectoriel ;
+     * le catalogue complet n'est parcouru que si l'index n'est pas encore construit.
      */
     private List<RecommendationDto> getContentBasedRecommendations(Tenant tenant, int limit) {
-        List<Favorite> favorites = favoriteRepository.findByTenantId(tenant.getId());
-        
-        if (favorites.isEmpty()) {
+        // Le profil de goûts est tenu à jour à chaque favori : plus besoin de parcourir les favoris
+        TenantProfileService.TasteProfile profile = tenantProfileService.getProfile(tenant.getId());
+        if (profile.favoriteCount() == 0) {
             return Collections.emptyList();
         }
 
-        // Analyser les propriétés favorites pour extraire les caractéristiques
-        Map<String, Integer> preferredRegions = new HashMap<>();
-        Map<String, Integer> preferredTypes = new HashMap<>();
-        double avgPrice = 0;
-        double avgArea = 0;
-        int count = 0;
-
-        for (Favorite favorite : favorites) {
-            Property property = favorite.getProperty();
-            preferredRegions.merge(property.getRegion(), 1, Integer::sum);
-            if (property.getPropertyType() != null) {
-                preferredTypes.merge(property.getPropertyType(), 1, Integer::sum);
-            }
-            avgPrice += property.getPrice().doubleValue();
-            avgArea += property.getArea();
-            count++;
-        }
-
-        if (count == 0) return Collections.emptyList();
-
-        avgPrice /= count;
-        avgArea /= count;
-
-        String mostPreferredRegion = preferredRegions.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
-        String mostPreferredType = preferredTypes.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        double avgPrice = profile.averagePrice();
+        double avgArea = profile.averageArea();
+        // Tolérance à la mesure de la dispersion des favoris, au moins 20 % de la moyenne
+        double priceTolerance = Math.max(profile.priceStdDev(), avgPrice * 0.2);
+        double areaTolerance = Math.max(profile.areaStdDev(), avgArea * 0.2);
+        String mostPreferredRegion = profile.preferred(TenantProfileFacet.Facet.REGION);
+        String mostPreferredType = profile.preferred(TenantProfileFacet.Facet.PROPERTY_TYPE);
 
         // Trouver des propriétés similaires
-        Set<Long> favoriteIds = favorites.stream()
-                .map(f -> f.getProperty().getId())
-                .collect(Collectors.toSet());
+        Set<Long> favoriteIds = new HashSet<>(favoriteRepository.findPropertyIdsByTenantId(tenant.getId()));
 
-        List<Property> allProperties = propertyRepository.findAll();
+        List<Property> candidates = propertyVectorIndexService.isReady()
+                ? propertyRepository.findAllById(
+                        propertyVectorIndexService.findSimilarToAll(favoriteIds, limit * CONTENT_CANDIDATE_FACTOR))
+                : propertyRepository.findAll();
+        Map<Long, Property> candidatesById = new HashMap<>();
         Map<Long, Double> similarityScores = new HashMap<>();
 
-        for (Property property : allProperties) {
+        for (Property property : candidates) {
             if (favoriteIds.contains(property.getId())) continue;
 
             double score = 0.0;
@@ -222,37 +433,38 @@ public class RecommendationService {
                 score += 0.2;
             }
 
+            // Région et type consultés (vues et clics), au-delà des seuls favoris
+            score += profile.interactionShare(TenantProfileFacet.Facet.REGION, property.getRegion()) * 0.1;
+            score += profile.interactionShare(TenantProfileFacet.Facet.PROPERTY_TYPE, property.getPropertyType()) * 0.05;
+
             // Prix (proximité)
-            double priceDiff = Math.abs(property.getPrice().doubleValue() - avgPrice) / avgPrice;
-            if (priceDiff < 0.2) {
+            double priceDiff = Math.abs(property.getPrice().doubleValue() - avgPrice);
+            if (priceDiff < priceTolerance) {
                 score += 0.2;
-            } else if (priceDiff < 0.4) {
+            } else if (priceDiff < priceTolerance * 2) {
                 score += 0.1;
             }
 
             // Surface
-            double areaDiff = Math.abs(property.getArea() - avgArea) / avgArea;
-            if (areaDiff < 0.2) {
+            double areaDiff = Math.abs(property.getArea() - avgArea);
+            if (areaDiff < areaTolerance) {
                 score += 0.15;
-            } else if (areaDiff < 0.4) {
+            } else if (areaDiff < areaTolerance * 2) {
                 score += 0.075;
             }
 
-            // Caractéristiques communes
-            for (Favorite favorite : favorites) {
-                Property favProperty = favorite.getProperty();
-                int commonFeatures = countCommonFeatures(property, favProperty);
-                score += commonFeatures * 0.05;
-            }
+            // Caractéristiques communes avec l'ensemble des favoris
+            score += profile.sharedFeatureCount(property) * 0.05;
 
             similarityScores.put(property.getId(), Math.min(score, 1.0));
+            candidatesById.put(property.getId(), property);
         }
 
         return similarityScores.entrySet().stream()
                 .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
                 .limit(limit)
                 .map(entry -> {
-                    Property property = propertyRepository.findById(entry.getKey()).orElse(null);
+                    Property property = candidatesById.get(entry.getKey());
                     if (property == null) return null;
                     
                     PropertyDto dto = propertyMapper.toDto(property);
@@ -277,6 +489,7 @@ public class RecommendationService {
         Set<Long> favoriteIds = favoriteRepository.findByTenantId(tenant.getId()).stream()
                 .map(f -> f.getProperty().getId())
                 .collect(Collectors.toSet());
+        Map<Long, Double> affinities = affinityService.getAffinities(tenant.getId());
 
         Map<Long, Double> scores = new HashMap<>();
 
@@ -309,10 +522,10 @@ public class RecommendationService {
                 score += 0.2;
             }
 
-            // Score d'interaction précédente
-            Double interactionScore = interactionRepository.getTotalInteractionScore(tenant.getId(), property.getId());
-            if (interactionScore != null && interactionScore > 0) {
-                score += Math.min(interactionScore * 0.1, 0.1);
+            // Affinité issue des interactions précédentes (décroissance temporelle)
+            double affinity = affinities.getOrDefault(property.getId(), 0.0);
+            if (affinity > 0) {
+                score += Math.min(affinity * 0.1, 0.1);
             }
 
             if (score > 0) {
@@ -342,49 +555,52 @@ public class RecommendationService {
     }
 
     /**
-     * Propriétés populaires (fallback)
+     * Propriétés populaires (fallback), de la plus ciblée à la plus générale : segment du tenant,
+     * sa région (déclarée, sinon celle de ses favoris), son type de bien préféré, puis popularité globale
      */
-    private List<RecommendationDto> getPopularRecommendations(int limit) {
-        LocalDateTime since = LocalDateTime.now().minusDays(30);
-        List<Object[]> popularData = interactionRepository.findPopularPropertyIds(since);
+    private List<RecommendationDto> getPopularRecommendations(Tenant tenant, int limit) {
+        Map<Long, String> reasons = new LinkedHashMap<>();
+        addPopular(reasons, tenantSegmentationService.getSegmentTopPropertyIds(tenant, limit),
+                "Populaire auprès de locataires au profil similaire", limit);
+        if (reasons.size() < limit) {
+            TenantProfileService.TasteProfile profile = tenantProfileService.getProfile(tenant.getId());
+            String region = tenant.getPreferredRegion() != null
+                    ? tenant.getPreferredRegion()
+                    : profile.preferred(TenantProfileFacet.Facet.REGION);
+            addPopular(reasons, popularityService.getTopPropertyIdsByRegion(region, limit),
+                    "Populaire dans votre région", limit);
+            addPopular(reasons, popularityService.getTopPropertyIdsByType(
+                    profile.preferred(TenantProfileFacet.Facet.PROPERTY_TYPE), limit),
+                    "Populaire parmi le type de bien que vous préférez", limit);
+            addPopular(reasons, popularityService.getTopPropertyIds(limit), "Propriété populaire", limit);
+        }
+        Map<Long, Property> propertiesById = propertyRepository.findAllById(reasons.keySet()).stream()
+                .collect(Collectors.toMap(Property::getId, property -> property));
 
-        return popularData.stream()
-                .limit(limit)
-                .map(data -> {
-                    Long propertyId = ((Number) data[0]).longValue();
-                    Property property = propertyRepository.findById(propertyId).orElse(null);
-                    if (property == null) return null;
-                    
+        return reasons.keySet().stream()
+                .map(propertiesById::get)
+                .filter(Objects::nonNull)
+                .map(property -> {
                     PropertyDto dto = propertyMapper.toDto(property);
                     enrichPropertyDto(dto, property.getId());
                     
                     return RecommendationDto.builder()
                             .property(dto)
                             .recommendationScore(0.5) // Score de base pour les populaires
-                            .reason("Propriété populaire")
+                            .reason(reasons.get(property.getId()))
                             .recommendationType("POPULAR")
                             .build();
                 })
-                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    /**
-     * Compte les caractéristiques communes entre deux propriétés
-     */
-    private int countCommonFeatures(Property p1, Property p2) {
-        int count = 0;
-        if (Boolean.TRUE.equals(p1.getHasWifi()) && Boolean.TRUE.equals(p2.getHasWifi())) count++;
-        if (Boolean.TRUE.equals(p1.getHasParking()) && Boolean.TRUE.equals(p2.getHasParking())) count++;
-        if (Boolean.TRUE.equals(p1.getHasAirConditioning()) && Boolean.TRUE.equals(p2.getHasAirConditioning())) count++;
-        if (Boolean.TRUE.equals(p1.getHasHeating()) && Boolean.TRUE.equals(p2.getHasHeating())) count++;
-        if (Boolean.TRUE.equals(p1.getHasFurnished()) && Boolean.TRUE.equals(p2.getHasFurnished())) count++;
-        if (Boolean.TRUE.equals(p1.getPetsAllowed()) && Boolean.TRUE.equals(p2.getPetsAllowed())) count++;
-        if (p1.getNumberOfBedrooms() != null && p2.getNumberOfBedrooms() != null &&
-            p1.getNumberOfBedrooms().equals(p2.getNumberOfBedrooms())) count++;
-        if (p1.getNumberOfBathrooms() != null && p2.getNumberOfBathrooms() != null &&
-            p1.getNumberOfBathrooms().equals(p2.getNumberOfBathrooms())) count++;
-        return count;
+    private void addPopular(Map<Long, String> reasons, List<Long> propertyIds, String reason, int limit) {
+        for (Long propertyId : propertyIds) {
+            if (reasons.size() >= limit) {
+                return;
+            }
+            reasons.putIfAbsent(propertyId, reason);
+        }
     }
 
     /**
@@ -0,0 +1,122 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.util.MinHashLshIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Découverte des tenants similaires par MinHash/LSH sur les ensembles de propriétés
+ * en favoris ou cliquées, sans auto-jointure de user_interactions.
+ * Les signatures sont mises à jour au fil des interactions enregistrées et recalculées au retrait d'un favori.
+ */
+@Slf4j
+@Service
+public class SimilarTenantService implements InteractionListener {
+    private final JdbcTemplate jdbcTemplate;
+    private final MinHashLshIndex index;
+    private final int maxCandidates;
+
+    public SimilarTenantService(JdbcTemplate jdbcTemplate,
+                                @Value("${recommendations.minhash.bands:32}") int bands,
+                                @Value("${recommendations.minhash.rows:2}") int rows,
+                                @Value("${recommendations.minhash.max-candidates:500}") int maxCandidates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.index = new MinHashLshIndex(bands, rows);
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Construit les signatures à partir des tables au démarrage.
+     * Les favoris sont lus dans la table favorites : l'interaction FAVORITE survit au retrait du favori.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            index.clear();
+            jdbcTemplate.query(
+                    "SELECT tenant_id, property_id FROM interaction_history WHERE interaction_type = 'CLICK' " +
+                    "UNION SELECT tenant_id, property_id FROM favorites",
+                    (RowCallbackHandler) rs -> index.add(rs.getLong(1), rs.getLong(2)));
+            log.info("Similar-tenant index built for {} tenants", index.size());
+        } catch (Exception e) {
+            log.error("Error building similar-tenant index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Clics uniquement : les favoris suivent la table favorites via onFavoriteAdded / onFavoriteRemoved,
+     * l'interaction FAVORITE d'un favori retiré puis remis n'étant pas réenregistrée
+     */
+    @Override
+    public void onInteractionRecorded(InteractionEvent event) {
+        if (event.interactionType() == UserInteraction.InteractionType.CLICK) {
+            index.add(event.tenantId(), event.propertyId());
+        }
+    }
+
+    /**
+     * Ajoute la propriété à la signature du tenant après le commit du favori (ou immédiatement hors transaction)
+     */
+    public void onFavoriteAdded(Long tenantId, Long propertyId) {
+        afterCommit(() -> index.add(tenantId, propertyId));
+    }
+
+    /**
+     * Recalcule la signature du tenant après le commit du retrait (ou immédiatement hors transaction) :
+     * un minimum MinHash ne se retire pas, seul un recalcul sur l'ensemble restant l'efface
+     */
+    public void onFavoriteRemoved(Long tenantId) {
+        afterCommit(() -> recompute(tenantId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void recompute(Long tenantId) {
+        try {
+            List<Long> propertyIds = jdbcTemplate.queryForList(
+                    "SELECT property_id FROM interaction_history WHERE tenant_id = ? AND interaction_type = 'CLICK' " +
+                    "UNION SELECT property_id FROM favorites WHERE tenant_id = ?",
+                    Long.class, tenantId, tenantId);
+            index.replace(tenantId, propertyIds);
+        } catch (Exception e) {
+            log.error("Error recomputing similar-tenant signature for tenant {}: {}", tenantId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tenants voisins triés par similarité de Jaccard estimée décroissante
+     */
+    public List<SimilarTenant> findSimilarTenants(Long tenantId, int limit) {
+        return index.candidates(tenantId, maxCandidates).entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(entry -> new SimilarTenant(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(SimilarTenant::similarity).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public record SimilarTenant(Long tenantId, double similarity) {
+    }
+}
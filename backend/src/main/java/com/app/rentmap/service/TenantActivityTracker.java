@@ -0,0 +1,75 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.UserInteraction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dernière activité de chaque tenant susceptible de modifier ses recommandations
+ * (vues, clics, favoris ajoutés ou retirés). Les recherches ne comptent pas : elles ne
+ * produisent que des impressions de faible poids.
+ * Sert à décider si une liste précalculée est encore valable. L'activité vue par ce nœud
+ * répond sans requête ; sinon la date de mise à jour du profil de goût, écrite par tous les
+ * nœuds à chaque vue, clic ou favori, fait foi.
+ */
+@Slf4j
+@Component
+public class TenantActivityTracker implements InteractionListener {
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, LocalDateTime> lastActivity = new ConcurrentHashMap<>();
+
+    public TenantActivityTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void onInteractionsObserved(List<InteractionEvent> events) {
+        for (InteractionEvent event : events) {
+            if (event.interactionType() != UserInteraction.InteractionType.SEARCH) {
+                touch(event.tenantId(), event.occurredAt());
+            }
+        }
+    }
+
+    public void touch(Long tenantId) {
+        touch(tenantId, LocalDateTime.now());
+    }
+
+    /**
+     * Vrai si le tenant a eu une activité après l'instant donné, sur ce nœud ou sur un autre
+     */
+    public boolean hasActivitySince(Long tenantId, LocalDateTime since) {
+        LocalDateTime last = lastActivity.get(tenantId);
+        if (last != null && last.isAfter(since)) {
+            return true;
+        }
+        try {
+            List<Timestamp> updatedAt = jdbcTemplate.queryForList(
+                    "SELECT updated_at FROM tenant_profiles WHERE tenant_id = ?", Timestamp.class, tenantId);
+            return !updatedAt.isEmpty() && updatedAt.get(0) != null
+                    && updatedAt.get(0).toLocalDateTime().isAfter(since);
+        } catch (Exception e) {
+            // Dans le doute la liste précalculée est considérée comme périmée
+            log.error("Error reading tenant activity for tenant {}: {}", tenantId, e.getMessage(), e);
+            return true;
+        }
+    }
+
+    /**
+     * Oublie l'activité antérieure à l'instant donné (déjà prise en compte par un calcul plus récent)
+     */
+    public void pruneBefore(LocalDateTime cutoff) {
+        lastActivity.values().removeIf(at -> at.isBefore(cutoff));
+    }
+
+    private void touch(Long tenantId, LocalDateTime at) {
+        lastActivity.merge(tenantId, at, (a, b) -> a.isAfter(b) ? a : b);
+    }
+}
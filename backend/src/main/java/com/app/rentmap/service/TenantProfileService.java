@@ -0,0 +1,327 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.Property;
+import com.app.rentmap.entity.TenantProfileFacet.Facet;
+import com.app.rentmap.entity.UserInteraction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profil de goûts des tenants, mis à jour en O(1) à chaque ajout ou retrait de favori
+ * et à chaque vue ou clic enregistré, au lieu d'être recalculé à partir de tous les favoris
+ * à chaque demande de recommandations.
+ * Les mises à jour sont des upserts additifs, sûrs en concurrence ; celles liées aux favoris
+ * participent à la transaction qui modifie le favori.
+ */
+@Slf4j
+@Service
+public class TenantProfileService implements InteractionListener {
+    private static final String UPSERT_PROFILE_SQL =
+            "INSERT INTO tenant_profiles (tenant_id, favorite_count, price_sum, price_sum_squares, area_sum, " +
+            "area_sum_squares, wifi_count, parking_count, air_conditioning_count, heating_count, furnished_count, " +
+            "pets_allowed_count, interaction_count, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (tenant_id) DO UPDATE SET " +
+            "favorite_count = tenant_profiles.favorite_count + EXCLUDED.favorite_count, " +
+            "price_sum = tenant_profiles.price_sum + EXCLUDED.price_sum, " +
+            "price_sum_squares = tenant_profiles.price_sum_squares + EXCLUDED.price_sum_squares, " +
+            "area_sum = tenant_profiles.area_sum + EXCLUDED.area_sum, " +
+            "area_sum_squares = tenant_profiles.area_sum_squares + EXCLUDED.area_sum_squares, " +
+            "wifi_count = tenant_profiles.wifi_count + EXCLUDED.wifi_count, " +
+            "parking_count = tenant_profiles.parking_count + EXCLUDED.parking_count, " +
+            "air_conditioning_count = tenant_profiles.air_conditioning_count + EXCLUDED.air_conditioning_count, " +
+            "heating_count = tenant_profiles.heating_count + EXCLUDED.heating_count, " +
+            "furnished_count = tenant_profiles.furnished_count + EXCLUDED.furnished_count, " +
+            "pets_allowed_count = tenant_profiles.pets_allowed_count + EXCLUDED.pets_allowed_count, " +
+            "interaction_count = tenant_profiles.interaction_count + EXCLUDED.interaction_count, " +
+            "updated_at = GREATEST(tenant_profiles.updated_at, EXCLUDED.updated_at)";
+
+    private static final String UPSERT_FACET_SQL =
+            "INSERT INTO tenant_profile_facets (tenant_id, facet, facet_value, favorite_count, interaction_weight) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (tenant_id, facet, facet_value) DO UPDATE SET " +
+            "favorite_count = tenant_profile_facets.favorite_count + EXCLUDED.favorite_count, " +
+            "interaction_weight = tenant_profile_facets.interaction_weight + EXCLUDED.interaction_weight";
+
+    // Pour une interaction, région et type sont lus dans la même requête que l'upsert
+    private static final String UPSERT_INTERACTION_FACETS_SQL =
+            "INSERT INTO tenant_profile_facets (tenant_id, facet, facet_value, favorite_count, interaction_weight) " +
+            "SELECT ?, f.facet, f.facet_value, 0, ? FROM properties p " +
+            "CROSS JOIN LATERAL (VALUES ('REGION', p.region), ('PROPERTY_TYPE', p.property_type)) AS f(facet, facet_value) " +
+            "WHERE p.id = ? AND f.facet_value IS NOT NULL " +
+            "ON CONFLICT (tenant_id, facet, facet_value) DO UPDATE SET " +
+            "interaction_weight = tenant_profile_facets.interaction_weight + EXCLUDED.interaction_weight";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterJobLock clusterJobLock;
+
+    public TenantProfileService(JdbcTemplate jdbcTemplate, ClusterJobLock clusterJobLock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterJobLock = clusterJobLock;
+    }
+
+    /**
+     * Profil de goûts figé à un instant donné
+     */
+    public record TasteProfile(int favoriteCount,
+                               double priceSum, double priceSumSquares,
+                               double areaSum, double areaSumSquares,
+                               int[] amenityCounts,
+                               int interactionCount,
+                               Map<Facet, Map<String, Integer>> favoriteCounts,
+                               Map<Facet, Map<String, Double>> interactionWeights) {
+        static final TasteProfile EMPTY = new TasteProfile(0, 0, 0, 0, 0, new int[6], 0, Map.of(), Map.of());
+
+        public double averagePrice() {
+            return favoriteCount > 0 ? priceSum / favoriteCount : 0;
+        }
+
+        public double averageArea() {
+            return favoriteCount > 0 ? areaSum / favoriteCount : 0;
+        }
+
+        public double priceStdDev() {
+            return stdDev(priceSum, priceSumSquares);
+        }
+
+        public double areaStdDev() {
+            return stdDev(areaSum, areaSumSquares);
+        }
+
+        /**
+         * Valeur la plus fréquente parmi les favoris pour une dimension, ou null
+         */
+        public String preferred(Facet facet) {
+            return favoriteCounts.getOrDefault(facet, Map.of()).entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+        }
+
+        public int favoriteCount(Facet facet, String value) {
+            return value != null ? favoriteCounts.getOrDefault(facet, Map.of()).getOrDefault(value, 0) : 0;
+        }
+
+        public Map<String, Double> interactionWeights(Facet facet) {
+            return interactionWeights.getOrDefault(facet, Map.of());
+        }
+
+        /**
+         * Part du poids des vues et clics portée par une valeur dans sa dimension, entre 0 et 1
+         */
+        public double interactionShare(Facet facet, String value) {
+            Map<String, Double> weights = interactionWeights(facet);
+            double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+            return value != null && total > 0 ? weights.getOrDefault(value, 0.0) / total : 0;
+        }
+
+        /**
+         * Somme, sur tous les favoris, du nombre de caractéristiques partagées avec la propriété
+         * (équipements, nombre de chambres et de salles de bain)
+         */
+        public int sharedFeatureCount(Property property) {
+            boolean[] amenities = amenities(property);
+            int count = 0;
+            for (int i = 0; i < amenities.length; i++) {
+                if (amenities[i]) {
+                    count += amenityCounts[i];
+                }
+            }
+            if (property.getNumberOfBedrooms() != null) {
+                count += favoriteCount(Facet.BEDROOMS, property.getNumberOfBedrooms().toString());
+            }
+            if (property.getNumberOfBathrooms() != null) {
+                count += favoriteCount(Facet.BATHROOMS, property.getNumberOfBathrooms().toString());
+            }
+            return count;
+        }
+
+        private double stdDev(double sum, double sumSquares) {
+            if (favoriteCount < 2) {
+                return 0;
+            }
+            double mean = sum / favoriteCount;
+            return Math.sqrt(Math.max(0, sumSquares / favoriteCount - mean * mean));
+        }
+    }
+
+    /**
+     * Initialise les profils depuis les favoris et l'historique des interactions si la table est vide.
+     * Passe juste après la création de la vue interaction_history, avant la segmentation qui lit les profils.
+     * Un seul nœud initialise, les autres attendent puis trouvent la table remplie
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            clusterJobLock.runExclusively("tenant-profiles.seed", this::seedIfEmpty);
+        } catch (Exception e) {
+            log.error("Error locking tenant taste profile seeding: {}", e.getMessage(), e);
+        }
+    }
+
+    private void seedIfEmpty() {
+        try {
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM tenant_profiles)", Boolean.class);
+            if (!Boolean.TRUE.equals(empty)) {
+                return;
+            }
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int profiles = jdbcTemplate.update(
+                    "INSERT INTO tenant_profiles (tenant_id, favorite_count, price_sum, price_sum_squares, area_sum, " +
+                    "area_sum_squares, wifi_count, parking_count, air_conditioning_count, heating_count, " +
+                    "furnished_count, pets_allowed_count, interaction_count, updated_at) " +
+                    "SELECT f.tenant_id, COUNT(*), SUM(p.price), SUM(p.price * p.price), SUM(p.area), " +
+                    "SUM(p.area * p.area), " +
+                    "COUNT(*) FILTER (WHERE p.has_wifi), COUNT(*) FILTER (WHERE p.has_parking), " +
+                    "COUNT(*) FILTER (WHERE p.has_air_conditioning), COUNT(*) FILTER (WHERE p.has_heating), " +
+                    "COUNT(*) FILTER (WHERE p.has_furnished), COUNT(*) FILTER (WHERE p.pets_allowed), 0, ? " +
+                    "FROM favorites f JOIN properties p ON p.id = f.property_id GROUP BY f.tenant_id",
+                    now);
+            jdbcTemplate.update(
+                    "INSERT INTO tenant_profile_facets (tenant_id, facet, facet_value, favorite_count, interaction_weight) " +
+                    "SELECT f.tenant_id, v.facet, v.facet_value, COUNT(*), 0 " +
+                    "FROM favorites f JOIN properties p ON p.id = f.property_id " +
+                    "CROSS JOIN LATERAL (VALUES ('REGION', p.region), ('PROPERTY_TYPE', p.property_type), " +
+                    "('BEDROOMS', CAST(p.number_of_bedrooms AS varchar)), " +
+                    "('BATHROOMS', CAST(p.number_of_bathrooms AS varchar))) AS v(facet, facet_value) " +
+                    "WHERE v.facet_value IS NOT NULL " +
+                    "GROUP BY f.tenant_id, v.facet, v.facet_value");
+            jdbcTemplate.update(
+                    "INSERT INTO tenant_profiles (tenant_id, favorite_count, price_sum, price_sum_squares, area_sum, " +
+                    "area_sum_squares, wifi_count, parking_count, air_conditioning_count, heating_count, " +
+                    "furnished_count, pets_allowed_count, interaction_count, updated_at) " +
+                    "SELECT tenant_id, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, SUM(interaction_count), ? FROM interaction_history " +
+                    "WHERE interaction_type IN ('VIEW', 'CLICK') GROUP BY tenant_id " +
+                    "ON CONFLICT (tenant_id) DO UPDATE SET interaction_count = EXCLUDED.interaction_count",
+                    now);
+            jdbcTemplate.update(
+                    "INSERT INTO tenant_profile_facets (tenant_id, facet, facet_value, favorite_count, interaction_weight) " +
+                    "SELECT i.tenant_id, v.facet, v.facet_value, 0, SUM(i.interaction_score) " +
+                    "FROM interaction_history i JOIN properties p ON p.id = i.property_id " +
+                    "CROSS JOIN LATERAL (VALUES ('REGION', p.region), ('PROPERTY_TYPE', p.property_type)) " +
+                    "AS v(facet, facet_value) " +
+                    "WHERE i.interaction_type IN ('VIEW', 'CLICK') AND v.facet_value IS NOT NULL " +
+                    "GROUP BY i.tenant_id, v.facet, v.facet_value " +
+                    "ON CONFLICT (tenant_id, facet, facet_value) DO UPDATE SET " +
+                    "interaction_weight = EXCLUDED.interaction_weight");
+            log.info("Seeded {} tenant taste profiles from favorites", profiles);
+        } catch (Exception e) {
+            log.error("Error seeding tenant taste profiles: {}", e.getMessage(), e);
+        }
+    }
+
+    public void onFavoriteAdded(Long tenantId, Property property) {
+        applyFavorite(tenantId, property, 1);
+    }
+
+    public void onFavoriteRemoved(Long tenantId, Property property) {
+        applyFavorite(tenantId, property, -1);
+    }
+
+    /**
+     * Vues et clics nouvellement enregistrés ; les favoris passent par onFavoriteAdded
+     */
+    @Override
+    public void onInteractionRecorded(InteractionEvent event) {
+        UserInteraction.InteractionType type = event.interactionType();
+        if (type != UserInteraction.InteractionType.VIEW && type != UserInteraction.InteractionType.CLICK) {
+            return;
+        }
+        jdbcTemplate.update(UPSERT_PROFILE_SQL, event.tenantId(), 0, 0.0, 0.0, 0.0, 0.0, 0, 0, 0, 0, 0, 0, 1,
+                Timestamp.valueOf(event.occurredAt()));
+        jdbcTemplate.update(UPSERT_INTERACTION_FACETS_SQL, event.tenantId(), event.score(), event.propertyId());
+    }
+
+    public TasteProfile getProfile(Long tenantId) {
+        Map<Facet, Map<String, Integer>> favoriteCounts = new EnumMap<>(Facet.class);
+        Map<Facet, Map<String, Double>> interactionWeights = new EnumMap<>(Facet.class);
+        List<TasteProfile> rows = jdbcTemplate.query(
+                "SELECT favorite_count, price_sum, price_sum_squares, area_sum, area_sum_squares, wifi_count, " +
+                "parking_count, air_conditioning_count, heating_count, furnished_count, pets_allowed_count, " +
+                "interaction_count FROM tenant_profiles WHERE tenant_id = ?",
+                (rs, rowNum) -> new TasteProfile(
+                        Math.max(0, rs.getInt("favorite_count")),
+                        rs.getDouble("price_sum"), rs.getDouble("price_sum_squares"),
+                        rs.getDouble("area_sum"), rs.getDouble("area_sum_squares"),
+                        new int[]{
+                                rs.getInt("wifi_count"), rs.getInt("parking_count"),
+                                rs.getInt("air_conditioning_count"), rs.getInt("heating_count"),
+                                rs.getInt("furnished_count"), rs.getInt("pets_allowed_count")
+                        },
+                        rs.getInt("interaction_count"),
+                        favoriteCounts, interactionWeights),
+                tenantId);
+        if (rows.isEmpty()) {
+            return TasteProfile.EMPTY;
+        }
+        jdbcTemplate.query(
+                "SELECT facet, facet_value, favorite_count, interaction_weight FROM tenant_profile_facets " +
+                "WHERE tenant_id = ?",
+                (RowCallbackHandler) rs -> {
+                    Facet facet = Facet.valueOf(rs.getString("facet"));
+                    int favorites = rs.getInt("favorite_count");
+                    double weight = rs.getDouble("interaction_weight");
+                    if (favorites > 0) {
+                        favoriteCounts.computeIfAbsent(facet, f -> new HashMap<>())
+                                .put(rs.getString("facet_value"), favorites);
+                    }
+                    if (weight > 0) {
+                        interactionWeights.computeIfAbsent(facet, f -> new HashMap<>())
+                                .put(rs.getString("facet_value"), weight);
+                    }
+                },
+                tenantId);
+        return rows.get(0);
+    }
+
+    private void applyFavorite(Long tenantId, Property property, int sign) {
+        double price = property.getPrice().doubleValue();
+        double area = property.getArea();
+        boolean[] amenities = amenities(property);
+        jdbcTemplate.update(UPSERT_PROFILE_SQL, tenantId, sign,
+                sign * price, sign * price * price, sign * area, sign * area * area,
+                amenities[0] ? sign : 0, amenities[1] ? sign : 0, amenities[2] ? sign : 0,
+                amenities[3] ? sign : 0, amenities[4] ? sign : 0, amenities[5] ? sign : 0,
+                0, Timestamp.valueOf(LocalDateTime.now()));
+
+        List<Object[]> facets = new ArrayList<>(4);
+        addFacet(facets, tenantId, Facet.REGION, property.getRegion(), sign);
+        addFacet(facets, tenantId, Facet.PROPERTY_TYPE, property.getPropertyType(), sign);
+        addFacet(facets, tenantId, Facet.BEDROOMS, property.getNumberOfBedrooms(), sign);
+        addFacet(facets, tenantId, Facet.BATHROOMS, property.getNumberOfBathrooms(), sign);
+        jdbcTemplate.batchUpdate(UPSERT_FACET_SQL, facets);
+    }
+
+    private static void addFacet(List<Object[]> facets, Long tenantId, Facet facet, Object value, int sign) {
+        if (value != null) {
+            facets.add(new Object[]{tenantId, facet.name(), value.toString(), sign, 0.0});
+        }
+    }
+
+    private static boolean[] amenities(Property property) {
+        return new boolean[]{
+                Boolean.TRUE.equals(property.getHasWifi()),
+                Boolean.TRUE.equals(property.getHasParking()),
+                Boolean.TRUE.equals(property.getHasAirConditioning()),
+                Boolean.TRUE.equals(property.getHasHeating()),
+                Boolean.TRUE.equals(property.getHasFurnished()),
+                Boolean.TRUE.equals(property.getPetsAllowed())
+        };
+    }
+}
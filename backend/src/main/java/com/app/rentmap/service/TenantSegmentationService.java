@@ -0,0 +1,257 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.Tenant;
+import com.app.rentmap.util.KMeans;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Segmentation périodique des tenants par k-means pour les recommandations de démarrage à froid.
+ * Chaque tenant est décrit par ses préférences déclarées (région préférée, budget) puis par ses goûts
+ * observés (répartition de ses favoris et interactions par région et par type). Chaque segment
+ * reçoit une liste précalculée des propriétés les plus appréciées par ses membres.
+ * Un tenant sans historique est rattaché au segment le plus proche sur ses seules préférences
+ * déclarées, en O(k).
+ */
+@Slf4j
+@Service
+public class TenantSegmentationService {
+    private final JdbcTemplate jdbcTemplate;
+    private final int segmentCount;
+    private final int iterations;
+    private final int topN;
+    private final int windowDays;
+
+    private volatile Segmentation segmentation;
+
+    public TenantSegmentationService(JdbcTemplate jdbcTemplate,
+                                     @Value("${recommendations.segments.k:8}") int segmentCount,
+                                     @Value("${recommendations.segments.iterations:25}") int iterations,
+                                     @Value("${recommendations.segments.top-n:50}") int topN,
+                                     @Value("${recommendations.segments.window-days:90}") int windowDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.segmentCount = segmentCount;
+        this.iterations = iterations;
+        this.topN = topN;
+        this.windowDays = windowDays;
+    }
+
+    /**
+     * Résultat d'une segmentation : vocabulaires et normalisation utilisés pour encoder
+     * les tenants, centres des segments et listes précalculées
+     */
+    private record Segmentation(Map<String, Integer> regionIndex,
+                                Map<String, Integer> typeIndex,
+                                double budgetMean,
+                                double budgetDeviation,
+                                double[][] centroids,
+                                Map<Long, Integer> segmentByTenant,
+                                List<List<Long>> topPropertiesBySegment) {
+
+        int declaredDimensions() {
+            return regionIndex.size() + 1;
+        }
+
+        int dimensions() {
+            return 2 * regionIndex.size() + 1 + typeIndex.size();
+        }
+    }
+
+    private static final class TenantFeatures {
+        String preferredRegion;
+        Double maxBudget;
+        Double averageFavoritePrice;
+        final Map<String, Double> regionWeights = new HashMap<>();
+        final Map<String, Double> typeWeights = new HashMap<>();
+    }
+
+    // Au démarrage, une fois les profils initialisés par TenantProfileService.seed
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${recommendations.segments.refresh-interval-ms:21600000}",
+               initialDelayString = "${recommendations.segments.refresh-interval-ms:21600000}")
+    public void rebuild() {
+        try {
+            Map<String, Integer> regionIndex = vocabulary(
+                    "SELECT DISTINCT LOWER(region) FROM properties WHERE region IS NOT NULL ORDER BY 1");
+            Map<String, Integer> typeIndex = vocabulary(
+                    "SELECT DISTINCT UPPER(property_type) FROM properties WHERE property_type IS NOT NULL ORDER BY 1");
+            Map<Long, TenantFeatures> features = loadFeatures();
+            if (features.isEmpty() || regionIndex.isEmpty()) {
+                return;
+            }
+
+            // Budget : déclaré, sinon prix moyen des favoris ; normalisé en log
+            List<Double> logBudgets = new ArrayList<>();
+            for (TenantFeatures f : features.values()) {
+                Double budget = f.maxBudget != null ? f.maxBudget : f.averageFavoritePrice;
+                if (budget != null && budget > 0) {
+                    logBudgets.add(Math.log(budget));
+                }
+            }
+            double mean = logBudgets.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+            double variance = logBudgets.stream().mapToDouble(b -> (b - mean) * (b - mean)).average().orElse(1);
+            double deviation = variance > 1e-9 ? Math.sqrt(variance) : 1.0;
+
+            Segmentation draft = new Segmentation(regionIndex, typeIndex, mean, deviation,
+                    new double[0][], Map.of(), List.of());
+            List<Long> tenantIds = new ArrayList<>(features.keySet());
+            double[][] points = new double[tenantIds.size()][];
+            for (int i = 0; i < points.length; i++) {
+                TenantFeatures f = features.get(tenantIds.get(i));
+                points[i] = encode(draft, f.preferredRegion, f.maxBudget != null ? f.maxBudget : f.averageFavoritePrice,
+                        f.regionWeights, f.typeWeights);
+            }
+
+            double[][] centroids = KMeans.fit(points, segmentCount, iterations, 42L);
+            Map<Long, Integer> segmentByTenant = new HashMap<>();
+            for (int i = 0; i < points.length; i++) {
+                segmentByTenant.put(tenantIds.get(i), KMeans.nearest(centroids, points[i], points[i].length));
+            }
+
+            segmentation = new Segmentation(regionIndex, typeIndex, mean, deviation, centroids,
+                    segmentByTenant, topPropertiesBySegment(segmentByTenant, centroids.length));
+            log.info("Tenant segmentation rebuilt: {} tenants in {} segments", points.length, centroids.length);
+        } catch (Exception e) {
+            log.error("Error rebuilding tenant segmentation: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Propriétés les plus appréciées du segment du tenant, ou une liste vide si le tenant ne peut
+     * être rattaché à aucun segment (aucune segmentation, ni historique ni préférence déclarée)
+     */
+    public List<Long> getSegmentTopPropertyIds(Tenant tenant, int limit) {
+        Segmentation current = segmentation;
+        if (current == null || current.centroids().length == 0) {
+            return List.of();
+        }
+        Integer segment = current.segmentByTenant().get(tenant.getId());
+        if (segment == null) {
+            if (tenant.getPreferredRegion() == null && tenant.getMaxBudget() == null) {
+                return List.of();
+            }
+            double[] point = encode(current, tenant.getPreferredRegion(), tenant.getMaxBudget(), Map.of(), Map.of());
+            segment = KMeans.nearest(current.centroids(), point, current.declaredDimensions());
+        }
+        List<Long> top = current.topPropertiesBySegment().get(segment);
+        return top.subList(0, Math.min(limit, top.size()));
+    }
+
+    private double[] encode(Segmentation s, String preferredRegion, Double budget,
+                            Map<String, Double> regionWeights, Map<String, Double> typeWeights) {
+        int regions = s.regionIndex().size();
+        double[] point = new double[s.dimensions()];
+        if (preferredRegion != null) {
+            Integer index = s.regionIndex().get(preferredRegion.toLowerCase(Locale.ROOT));
+            if (index != null) {
+                point[index] = 1.0;
+            }
+        }
+        if (budget != null && budget > 0) {
+            point[regions] = (Math.log(budget) - s.budgetMean()) / s.budgetDeviation();
+        }
+        normalizeInto(point, regions + 1, s.regionIndex(), regionWeights);
+        normalizeInto(point, 2 * regions + 1, s.typeIndex(), typeWeights);
+        return point;
+    }
+
+    // Écrit la répartition (somme = 1) des poids dans les dimensions commençant à offset
+    private static void normalizeInto(double[] point, int offset, Map<String, Integer> index, Map<String, Double> weights) {
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            return;
+        }
+        weights.forEach((value, weight) -> {
+            Integer position = index.get(value);
+            if (position != null) {
+                point[offset + position] += weight / total;
+            }
+        });
+    }
+
+    private Map<String, Integer> vocabulary(String sql) {
+        Map<String, Integer> index = new HashMap<>();
+        for (String value : jdbcTemplate.queryForList(sql, String.class)) {
+            index.put(value, index.size());
+        }
+        return index;
+    }
+
+    private Map<Long, TenantFeatures> loadFeatures() {
+        Map<Long, TenantFeatures> features = new HashMap<>();
+        // Seuls les tenants ayant un historique participent au clustering
+        jdbcTemplate.query(
+                "SELECT t.id, t.preferred_region, t.max_budget, " +
+                "CASE WHEN p.favorite_count > 0 THEN p.price_sum / p.favorite_count END " +
+                "FROM tenants t JOIN tenant_profiles p ON p.tenant_id = t.id " +
+                "WHERE p.favorite_count > 0 OR p.interaction_count > 0",
+                (RowCallbackHandler) rs -> {
+                    TenantFeatures f = new TenantFeatures();
+                    f.preferredRegion = rs.getString(2);
+                    f.maxBudget = rs.getObject(3, Double.class);
+                    f.averageFavoritePrice = rs.getObject(4, Double.class);
+                    features.put(rs.getLong(1), f);
+                });
+        jdbcTemplate.query(
+                "SELECT tenant_id, facet, facet_value, favorite_count + interaction_weight FROM tenant_profile_facets " +
+                "WHERE facet IN ('REGION', 'PROPERTY_TYPE')",
+                (RowCallbackHandler) rs -> {
+                    TenantFeatures f = features.get(rs.getLong(1));
+                    if (f == null) {
+                        return;
+                    }
+                    double weight = rs.getDouble(4);
+                    if ("REGION".equals(rs.getString(2))) {
+                        f.regionWeights.merge(rs.getString(3).toLowerCase(Locale.ROOT), weight, Double::sum);
+                    } else {
+                        f.typeWeights.merge(rs.getString(3).toUpperCase(Locale.ROOT), weight, Double::sum);
+                    }
+                });
+        return features;
+    }
+
+    // Score d'une propriété dans un segment : somme des scores d'interaction de ses membres sur la fenêtre
+    private List<List<Long>> topPropertiesBySegment(Map<Long, Integer> segmentByTenant, int segments) {
+        List<Map<Long, Double>> scores = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            scores.add(new HashMap<>());
+        }
+        jdbcTemplate.query(
+                "SELECT tenant_id, property_id, SUM(interaction_score) FROM interaction_history " +
+                "WHERE created_at >= ? AND interaction_type <> 'SEARCH' GROUP BY tenant_id, property_id",
+                (RowCallbackHandler) rs -> {
+                    Integer segment = segmentByTenant.get(rs.getLong(1));
+                    if (segment != null) {
+                        scores.get(segment).merge(rs.getLong(2), rs.getDouble(3), Double::sum);
+                    }
+                },
+                Timestamp.valueOf(LocalDateTime.now().minusDays(windowDays)));
+
+        List<List<Long>> top = new ArrayList<>(segments);
+        for (Map<Long, Double> segmentScores : scores) {
+            top.add(segmentScores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                    .limit(topN)
+                    .map(Map.Entry::getKey)
+                    .toList());
+        }
+        return top;
+    }
+}
@@ -0,0 +1,192 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.dto.UnreadCountsDto;
+import com.app.rentmap.repository.MessageRepository;
+import com.app.rentmap.repository.NotificationRepository;
+import com.app.rentmap.websocket.ClusterMessageBus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nombre de messages et de notifications non lus par utilisateur, tenu en mémoire.
+ * Le compteur d'un utilisateur est chargé depuis la base à sa première lecture, puis ajusté
+ * après le commit des envois et lectures ; chaque changement est poussé sur /queue/unread.
+ * Un ajustement qui vise un utilisateur pas encore chargé est ignoré : la base le contient déjà
+ * quand ce compteur sera chargé. Les chargements sont sérialisés par des verrous répartis
+ * (userId modulo stripes) pour qu'un même utilisateur ne soit lu qu'une fois en base.
+ * Chaque chargement (une fois la lecture terminée) et chaque ajustement reçoit un numéro de séquence :
+ * un chargement terminé après l'enregistrement d'un ajustement a pu lire la base avant ou après
+ * le commit, l'entrée est alors évincée plutôt qu'ajustée (sinon l'écriture serait comptée deux fois).
+ * Les entrées expirent après un TTL et leur nombre est borné. Avec un bus de cluster, les
+ * ajustements faits sur les autres nœuds ne sont pas visibles : le cache est alors contourné
+ * et chaque lecture interroge la base.
+ */
+@Service
+public class UnreadCounterService {
+    private record Entry(UnreadCountsDto counts, long loadSequence, long expiresAt) {
+    }
+
+    private final MessageRepository messageRepository;
+    private final NotificationRepository notificationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConcurrentHashMap<Long, Entry> countsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object[] loadLocks;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final boolean clustered;
+
+    public UnreadCounterService(MessageRepository messageRepository,
+                                NotificationRepository notificationRepository,
+                                SimpMessagingTemplate messagingTemplate,
+                                ObjectProvider<ClusterMessageBus> clusterBus,
+                                @Value("${unread.counters.stripes:64}") int stripes,
+                                @Value("${unread.counters.ttl-ms:600000}") long ttlMs,
+                                @Value("${unread.counters.max-entries:100000}") int maxEntries) {
+        this.messageRepository = messageRepository;
+        this.notificationRepository = notificationRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.loadLocks = new Object[Math.max(1, stripes)];
+        for (int i = 0; i < loadLocks.length; i++) {
+            loadLocks[i] = new Object();
+        }
+        this.ttlMs = ttlMs;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.clustered = clusterBus.getIfAvailable() != null;
+    }
+
+    public UnreadCountsDto getCounts(Long userId) {
+        if (clustered) {
+            return load(userId);
+        }
+        Entry entry = countsByUser.get(userId);
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            return entry.counts();
+        }
+        synchronized (loadLocks[Math.floorMod(userId.hashCode(), loadLocks.length)]) {
+            entry = countsByUser.get(userId);
+            if (entry == null || entry.expiresAt() <= System.currentTimeMillis()) {
+                UnreadCountsDto counts = load(userId);
+                // Numéro pris après la lecture : tout ajustement enregistré avant est déjà inclus ou le sera
+                entry = new Entry(counts, sequence.incrementAndGet(), System.currentTimeMillis() + ttlMs);
+                countsByUser.put(userId, entry);
+                if (countsByUser.size() > maxEntries) {
+                    evict();
+                }
+            }
+            return entry.counts();
+        }
+    }
+
+    /**
+     * Applique les deltas après le commit de la transaction courante (immédiatement hors transaction)
+     */
+    public void adjustAfterCommit(Long userId, long messagesDelta, long notificationsDelta) {
+        long adjustSequence = sequence.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            adjust(userId, messagesDelta, notificationsDelta, adjustSequence);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                adjust(userId, messagesDelta, notificationsDelta, adjustSequence);
+            }
+        });
+    }
+
+    /**
+     * Recale le compteur de messages sur une valeur exacte lue en base (ouverture de la boîte de réception)
+     */
+    public void syncMessages(Long userId, long messages) {
+        Entry current = countsByUser.get(userId);
+        if (current == null || current.counts().getMessages() == messages) {
+            return;
+        }
+        Entry updated = countsByUser.computeIfPresent(userId, (id, entry) -> new Entry(
+                new UnreadCountsDto(messages, entry.counts().getNotifications()), entry.loadSequence(), entry.expiresAt()));
+        push(userId, updated != null ? updated.counts() : null);
+    }
+
+    /**
+     * Recale le compteur de notifications sur une valeur exacte lue en base
+     */
+    public void syncNotifications(Long userId, long notifications) {
+        Entry current = countsByUser.get(userId);
+        if (current == null || current.counts().getNotifications() == notifications) {
+            return;
+        }
+        Entry updated = countsByUser.computeIfPresent(userId, (id, entry) -> new Entry(
+                new UnreadCountsDto(entry.counts().getMessages(), notifications), entry.loadSequence(), entry.expiresAt()));
+        push(userId, updated != null ? updated.counts() : null);
+    }
+
+    /**
+     * Retire les entrées expirées
+     */
+    @Scheduled(fixedDelayString = "${unread.counters.sweep-interval-ms:60000}")
+    public void expireEntries() {
+        long now = System.currentTimeMillis();
+        countsByUser.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private void adjust(Long userId, long messagesDelta, long notificationsDelta, long adjustSequence) {
+        if (messagesDelta == 0 && notificationsDelta == 0) {
+            return;
+        }
+        if (clustered) {
+            push(userId, load(userId));
+            return;
+        }
+        boolean[] evicted = new boolean[1];
+        Entry updated = countsByUser.computeIfPresent(userId, (id, entry) -> {
+            if (entry.loadSequence() > adjustSequence) {
+                // Lecture terminée après l'enregistrement de l'ajustement : peut déjà l'inclure
+                evicted[0] = true;
+                return null;
+            }
+            return new Entry(new UnreadCountsDto(
+                    Math.max(0, entry.counts().getMessages() + messagesDelta),
+                    Math.max(0, entry.counts().getNotifications() + notificationsDelta)),
+                    entry.loadSequence(), entry.expiresAt());
+        });
+        push(userId, evicted[0] ? getCounts(userId) : updated != null ? updated.counts() : null);
+    }
+
+    private UnreadCountsDto load(Long userId) {
+        Long messages = messageRepository.countUnreadMessagesForUser(userId);
+        return new UnreadCountsDto(messages != null ? messages : 0L,
+                notificationRepository.countByTenantIdAndReadFalse(userId));
+    }
+
+    // Au-delà de la taille maximale : les entrées expirées d'abord, puis les plus anciennement chargées
+    private void evict() {
+        expireEntries();
+        int excess = countsByUser.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        countsByUser.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadSequence()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(countsByUser::remove);
+    }
+
+    private void push(Long userId, UnreadCountsDto counts) {
+        if (counts != null) {
+            messagingTemplate.convertAndSendToUser(String.valueOf(userId), "/queue/unread", counts);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.app.rentmap.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over 64-bit keys, safe for concurrent use without locks.
+ * Answers "definitely not seen" or "probably seen"; memory is fixed at construction time.
+ */
+public final class ConcurrentBloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public ConcurrentBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.words = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public boolean mightContain(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the key was definitely absent before this call
+     */
+    public boolean put(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0) {
+                if (words.compareAndSet(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+                word = words.get(index);
+            }
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * True once more keys were inserted than the filter was sized for,
+     * i.e. the false-positive rate is above the configured target.
+     */
+    public boolean isSaturated() {
+        return insertions.get() > expectedInsertions;
+    }
+
+    public long approximateSize() {
+        return insertions.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0L);
+        }
+        insertions.set(0);
+    }
+
+    public static long hash(long a, long b, long c) {
+        long h = mix(a);
+        h = mix(h ^ (b * 0xC2B2AE3D27D4EB4FL));
+        return mix(h ^ (c * 0x165667B19E3779F9L));
+    }
+
+    // MurmurHash3 64-bit finalizer (fmix64)
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC9L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
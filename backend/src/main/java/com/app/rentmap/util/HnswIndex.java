@@ -0,0 +1,432 @@
+package com.app.rentmap.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour search over
+ * fixed-length float vectors (squared Euclidean distance).
+ * Inserts are incremental; re-inserting an existing id replaces its vector (the old node is
+ * tombstoned and skipped by searches). Searches run concurrently under a read lock, inserts
+ * take the write lock.
+ */
+public final class HnswIndex {
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int dimension;
+    private final int maxConnections;
+    private final int maxConnectionsLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private float[][] vectors = new float[INITIAL_CAPACITY][];
+    // links[node][level] = neighbour node indexes, at most maxConnections(level) of them
+    private int[][][] links = new int[INITIAL_CAPACITY][][];
+    private final BitSet deleted = new BitSet();
+    private int nodeCount;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    public HnswIndex(int dimension, int maxConnections, int efConstruction) {
+        if (dimension < 1 || maxConnections < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        this.dimension = dimension;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsLayer0 = maxConnections * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(maxConnections);
+    }
+
+    public record Neighbor(long id, float distance) {
+    }
+
+    /**
+     * Inserts a vector, replacing the previous one if the id is already indexed
+     */
+    public void add(long id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected vector of dimension " + dimension + " but got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodeById.get(id);
+            if (previous != null) {
+                if (Arrays.equals(vectors[previous], vector)) {
+                    return;
+                }
+                deleted.set(previous);
+            }
+            insert(id, vector.clone());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeById.remove(id);
+            if (node != null) {
+                deleted.set(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return nodeById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public float[] getVector(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeById.get(id);
+            return node != null ? vectors[node].clone() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live (non-tombstoned) vectors
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * The k nearest live vectors to the query, closest first.
+     *
+     * @param ef      size of the dynamic candidate list, trades recall for latency (at least k)
+     * @param exclude ids to skip, e.g. the query item itself; may be null
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, LongPredicate exclude) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Expected vector of dimension " + dimension + " but got " + query.length);
+        }
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int level = topLevel; level > 0; level--) {
+                current = greedyClosest(query, current, level);
+            }
+            PriorityQueue<Candidate> found = searchLayer(query, current, Math.max(ef, k), 0);
+
+            List<Candidate> ordered = new ArrayList<>(found);
+            Collections.sort(ordered);
+            List<Neighbor> result = new ArrayList<>(k);
+            for (Candidate candidate : ordered) {
+                if (result.size() >= k) {
+                    break;
+                }
+                long id = ids[candidate.node];
+                if (deleted.get(candidate.node) || (exclude != null && exclude.test(id))) {
+                    continue;
+                }
+                result.add(new Neighbor(id, candidate.distance));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Serialises the graph, tombstones included, so it can be reloaded without a rebuild
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimension);
+            out.writeInt(maxConnections);
+            out.writeInt(efConstruction);
+            out.writeInt(nodeCount);
+            out.writeInt(entryPoint);
+            out.writeInt(topLevel);
+            for (int node = 0; node < nodeCount; node++) {
+                out.writeLong(ids[node]);
+                out.writeBoolean(deleted.get(node));
+                for (float value : vectors[node]) {
+                    out.writeFloat(value);
+                }
+                out.writeInt(links[node].length);
+                for (int[] levelLinks : links[node]) {
+                    out.writeInt(levelLinks.length);
+                    for (int neighbor : levelLinks) {
+                        out.writeInt(neighbor);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an HNSW index file");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported HNSW index format version " + version);
+        }
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+        int count = in.readInt();
+        index.ensureCapacity(count);
+        index.entryPoint = in.readInt();
+        index.topLevel = in.readInt();
+        for (int node = 0; node < count; node++) {
+            long id = in.readLong();
+            boolean isDeleted = in.readBoolean();
+            float[] vector = new float[index.dimension];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = in.readFloat();
+            }
+            int[][] nodeLinks = new int[in.readInt()][];
+            for (int level = 0; level < nodeLinks.length; level++) {
+                int[] levelLinks = new int[in.readInt()];
+                for (int i = 0; i < levelLinks.length; i++) {
+                    levelLinks[i] = in.readInt();
+                }
+                nodeLinks[level] = levelLinks;
+            }
+            index.ids[node] = id;
+            index.vectors[node] = vector;
+            index.links[node] = nodeLinks;
+            if (isDeleted) {
+                index.deleted.set(node);
+            } else {
+                index.nodeById.put(id, node);
+            }
+        }
+        index.nodeCount = count;
+        return index;
+    }
+
+    // Caller holds the write lock
+    private void insert(long id, float[] vector) {
+        ensureCapacity(nodeCount + 1);
+        int node = nodeCount++;
+        int level = randomLevel();
+        ids[node] = id;
+        vectors[node] = vector;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[0];
+        }
+        nodeById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = topLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(vector, current, efConstruction, l);
+            List<Candidate> ordered = new ArrayList<>(found);
+            Collections.sort(ordered);
+            int[] selected = selectNeighbors(ordered, maxConnections(l));
+            links[node][l] = selected;
+            for (int neighbor : selected) {
+                connect(neighbor, node, l);
+            }
+            current = ordered.get(0).node;
+        }
+        if (level > topLevel) {
+            topLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    // Adds the link from -> to, pruning with the selection heuristic when the list is full
+    private void connect(int from, int to, int level) {
+        int[] existing = links[from][level];
+        int max = maxConnections(level);
+        if (existing.length < max) {
+            int[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = to;
+            links[from][level] = grown;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(existing.length + 1);
+        float[] base = vectors[from];
+        for (int neighbor : existing) {
+            candidates.add(new Candidate(neighbor, distance(base, vectors[neighbor])));
+        }
+        candidates.add(new Candidate(to, distance(base, vectors[to])));
+        Collections.sort(candidates);
+        links[from][level] = selectNeighbors(candidates, max);
+    }
+
+    /**
+     * Neighbour selection heuristic (Malkov & Yashunin, algorithm 4): a candidate is kept only if it
+     * is closer to the base than to any neighbour already kept, which preserves links across clusters.
+     * Remaining slots are filled with the closest discarded candidates.
+     */
+    private int[] selectNeighbors(List<Candidate> sortedCandidates, int max) {
+        List<Integer> selected = new ArrayList<>(max);
+        List<Integer> discarded = new ArrayList<>();
+        for (Candidate candidate : sortedCandidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            boolean keep = true;
+            for (int chosen : selected) {
+                if (distance(vectors[candidate.node], vectors[chosen]) < candidate.distance) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(candidate.node);
+            } else {
+                discarded.add(candidate.node);
+            }
+        }
+        for (int i = 0; i < discarded.size() && selected.size() < max; i++) {
+            selected.add(discarded.get(i));
+        }
+        return selected.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors(current, level)) {
+                float d = distance(query, vectors[neighbor]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer; returns at most ef results as a max-heap on distance.
+     * Tombstoned nodes are traversed (they keep the graph connected) but filtered by the caller.
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(nodeCount);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Collections.reverseOrder());
+
+        Candidate first = new Candidate(start, distance(query, vectors[start]));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (closest.distance > results.peek().distance && results.size() >= ef) {
+                break;
+            }
+            for (int neighbor : neighbors(closest.node, level)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distance(query, vectors[neighbor]);
+                if (results.size() < ef || d < results.peek().distance) {
+                    Candidate candidate = new Candidate(neighbor, d);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private int[] neighbors(int node, int level) {
+        int[][] nodeLinks = links[node];
+        return level < nodeLinks.length ? nodeLinks[level] : new int[0];
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxConnectionsLayer0 : maxConnections;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return (int) (-Math.log(r) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        vectors = Arrays.copyOf(vectors, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private record Candidate(int node, float distance) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            int byDistance = Float.compare(distance, other.distance);
+            return byDistance != 0 ? byDistance : Integer.compare(node, other.node);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.app.rentmap.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Lloyd's k-means with greedy k-means++ seeding over dense double vectors (squared Euclidean distance).
+ */
+public final class KMeans {
+
+    private KMeans() {
+    }
+
+    /**
+     * Clusters the points and returns the centroids; fewer than k centroids are returned
+     * when there are fewer distinct points than k.
+     */
+    public static double[][] fit(double[][] points, int k, int maxIterations, long seed) {
+        if (points.length == 0 || k < 1) {
+            return new double[0][];
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] centroids = seed(points, Math.min(k, points.length), random);
+        int[] assignment = new int[points.length];
+        Arrays.fill(assignment, -1);
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < points.length; i++) {
+                int nearest = nearest(centroids, points[i], points[i].length);
+                if (nearest != assignment[i]) {
+                    assignment[i] = nearest;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                break;
+            }
+            double[][] sums = new double[centroids.length][points[0].length];
+            int[] counts = new int[centroids.length];
+            for (int i = 0; i < points.length; i++) {
+                double[] sum = sums[assignment[i]];
+                for (int d = 0; d < sum.length; d++) {
+                    sum[d] += points[i][d];
+                }
+                counts[assignment[i]]++;
+            }
+            for (int c = 0; c < centroids.length; c++) {
+                if (counts[c] == 0) {
+                    // Empty cluster: reseed it on a random point
+                    centroids[c] = points[random.nextInt(points.length)].clone();
+                    continue;
+                }
+                for (int d = 0; d < sums[c].length; d++) {
+                    sums[c][d] /= counts[c];
+                }
+                centroids[c] = sums[c];
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * Index of the closest centroid, comparing only the first {@code dimensions} coordinates
+     * (lets partially known points, e.g. cold-start users, be assigned on the dimensions they have)
+     */
+    public static int nearest(double[][] centroids, double[] point, int dimensions) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int c = 0; c < centroids.length; c++) {
+            double distance = distance(centroids[c], point, dimensions);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    // Greedy k-means++: several candidates are drawn per step and the one lowering the total
+    // distance the most is kept, so two seeds rarely land in the same cluster
+    private static double[][] seed(double[][] points, int k, SplittableRandom random) {
+        double[][] centroids = new double[k][];
+        centroids[0] = points[random.nextInt(points.length)].clone();
+        double[] distances = new double[points.length];
+        double total = 0;
+        for (int i = 0; i < points.length; i++) {
+            distances[i] = distance(centroids[0], points[i], points[i].length);
+            total += distances[i];
+        }
+        int trials = 2 + (int) Math.log(k);
+        double[] candidateDistances = new double[points.length];
+        double[] bestDistances = new double[points.length];
+        int chosen = 1;
+        for (; chosen < k && total > 0; chosen++) {
+            int bestPick = -1;
+            double bestTotal = Double.MAX_VALUE;
+            for (int trial = 0; trial < trials; trial++) {
+                double target = random.nextDouble() * total;
+                int pick = 0;
+                for (double cumulative = distances[0]; cumulative < target && pick < points.length - 1; ) {
+                    cumulative += distances[++pick];
+                }
+                double candidateTotal = 0;
+                for (int i = 0; i < points.length; i++) {
+                    candidateDistances[i] = Math.min(distances[i], distance(points[pick], points[i], points[i].length));
+                    candidateTotal += candidateDistances[i];
+                }
+                if (candidateTotal < bestTotal) {
+                    bestTotal = candidateTotal;
+                    bestPick = pick;
+                    System.arraycopy(candidateDistances, 0, bestDistances, 0, points.length);
+                }
+            }
+            centroids[chosen] = points[bestPick].clone();
+            System.arraycopy(bestDistances, 0, distances, 0, points.length);
+            total = bestTotal;
+        }
+        return chosen == k ? centroids : Arrays.copyOf(centroids, chosen);
+    }
+
+    private static double distance(double[] a, double[] b, int dimensions) {
+        double sum = 0;
+        for (int d = 0; d < dimensions; d++) {
+            double diff = a[d] - b[d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,205 @@
+package com.app.rentmap.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MinHash signatures over member sets (e.g. tenant -> interacted property ids) with an LSH
+ * banding index. Signatures are updated incrementally as elements are added (a minimum cannot be
+ * undone, so removals go through {@link #replace}); members whose
+ * signatures agree on at least one band become candidates, ranked by estimated Jaccard similarity.
+ */
+public final class MinHashLshIndex {
+    private final int bands;
+    private final int rows;
+    private final int hashCount;
+    private final long[] seeds;
+    private final Map<Long, long[]> signatures = new ConcurrentHashMap<>();
+    private final List<Map<Long, Set<Long>>> bandBuckets;
+
+    public MinHashLshIndex(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("bands and rows must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.hashCount = bands * rows;
+        this.seeds = new Random(0x5EEDL).longs(hashCount).toArray();
+        this.bandBuckets = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            bandBuckets.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Adds an element to a member's set, updating its signature and band buckets when they change.
+     */
+    public void add(long memberId, long elementId) {
+        signatures.compute(memberId, (id, signature) -> {
+            boolean isNew = signature == null;
+            long[] previous = isNew ? null : signature.clone();
+            long[] updated = isNew ? newSignature() : signature;
+
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                long hash = mix(elementId ^ seeds[i]);
+                if (hash < updated[i]) {
+                    updated[i] = hash;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return updated;
+            }
+
+            for (int band = 0; band < bands; band++) {
+                long newKey = bandKey(updated, band);
+                if (previous != null) {
+                    long oldKey = bandKey(previous, band);
+                    if (oldKey == newKey) {
+                        continue;
+                    }
+                    removeFromBucket(band, oldKey, memberId);
+                }
+                addToBucket(band, newKey, memberId);
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Recomputes a member's signature from its full element set, e.g. after elements were removed.
+     * An empty set drops the member from the index.
+     */
+    public void replace(long memberId, Collection<Long> elementIds) {
+        signatures.compute(memberId, (id, previous) -> {
+            long[] updated = null;
+            if (!elementIds.isEmpty()) {
+                updated = newSignature();
+                for (long elementId : elementIds) {
+                    for (int i = 0; i < hashCount; i++) {
+                        long hash = mix(elementId ^ seeds[i]);
+                        if (hash < updated[i]) {
+                            updated[i] = hash;
+                        }
+                    }
+                }
+            }
+            for (int band = 0; band < bands; band++) {
+                Long oldKey = previous != null ? bandKey(previous, band) : null;
+                Long newKey = updated != null ? bandKey(updated, band) : null;
+                if (oldKey != null && oldKey.equals(newKey)) {
+                    continue;
+                }
+                if (oldKey != null) {
+                    removeFromBucket(band, oldKey, memberId);
+                }
+                if (newKey != null) {
+                    addToBucket(band, newKey, memberId);
+                }
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Candidate neighbours of a member with their estimated Jaccard similarity.
+     *
+     * @param maxCandidates upper bound on the number of candidates examined, protects against huge buckets
+     */
+    public Map<Long, Double> candidates(long memberId, int maxCandidates) {
+        long[] signature = signatures.get(memberId);
+        if (signature == null) {
+            return Map.of();
+        }
+        Map<Long, Double> result = new HashMap<>();
+        for (int band = 0; band < bands && result.size() < maxCandidates; band++) {
+            Set<Long> bucket = bandBuckets.get(band).get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Long candidate : bucket) {
+                if (result.size() >= maxCandidates) {
+                    break;
+                }
+                if (candidate == memberId || result.containsKey(candidate)) {
+                    continue;
+                }
+                long[] other = signatures.get(candidate);
+                if (other != null) {
+                    result.put(candidate, estimateSimilarity(signature, other));
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean contains(long memberId) {
+        return signatures.containsKey(memberId);
+    }
+
+    public int size() {
+        return signatures.size();
+    }
+
+    public void clear() {
+        signatures.clear();
+        bandBuckets.forEach(Map::clear);
+    }
+
+    private double estimateSimilarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < hashCount; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / hashCount;
+    }
+
+    private long[] newSignature() {
+        long[] signature = new long[hashCount];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        return signature;
+    }
+
+    private long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < rows; row++) {
+            key = mix(key * 31 + signature[band * rows + row]);
+        }
+        return key;
+    }
+
+    private void addToBucket(int band, long key, long memberId) {
+        bandBuckets.get(band).compute(key, (k, members) -> {
+            Set<Long> set = members != null ? members : ConcurrentHashMap.newKeySet();
+            set.add(memberId);
+            return set;
+        });
+    }
+
+    private void removeFromBucket(int band, long key, long memberId) {
+        bandBuckets.get(band).computeIfPresent(key, (k, members) -> {
+            members.remove(memberId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    // MurmurHash3 64-bit finalizer (fmix64)
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC9L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
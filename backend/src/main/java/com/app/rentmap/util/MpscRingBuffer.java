@@ -0,0 +1,103 @@
+package com.app.rentmap.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free multi-producer / single-consumer ring buffer.
+ * Each slot carries a sequence number so producers claim slots with a single CAS
+ * and the consumer never contends with them. {@link #offer} fails fast when full.
+ */
+public final class MpscRingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile long consumerIndex;
+
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element without blocking. Safe to call from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        long position = producerIndex.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(position, position + 1)) {
+                    buffer.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerIndex.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = producerIndex.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element. Must only be called from the single consumer thread.
+     *
+     * @return null if the buffer is empty
+     */
+    public E poll() {
+        long position = consumerIndex;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = buffer.get(index);
+        buffer.set(index, null);
+        sequences.set(index, position + capacity);
+        consumerIndex = position + 1;
+        return element;
+    }
+
+    /**
+     * Drains up to {@code limit} elements into the consumer. Single consumer thread only.
+     *
+     * @return the number of drained elements
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int drained = 0;
+        E element;
+        while (drained < limit && (element = poll()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
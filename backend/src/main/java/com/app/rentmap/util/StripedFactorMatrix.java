@@ -0,0 +1,117 @@
+package com.app.rentmap.util;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latent factor rows (one per external id) stored in fixed-size float stripes.
+ * Growing the matrix allocates a new stripe instead of copying, so rows never move and
+ * readers and writers need no lock. Updates to a row are plain float writes
+ * (Hogwild-style): concurrent SGD steps on the same row may interleave, which is tolerated
+ * by the learner in exchange for lock-free updates.
+ * Initial row values depend only on the matrix seed and the id, not on allocation order.
+ */
+public final class StripedFactorMatrix {
+    private static final int ROWS_PER_STRIPE = 1024;
+    private static final int MAX_STRIPES = 4096;
+
+    private final int rank;
+    private final float initScale;
+    private final long seed;
+    private final Map<Long, Integer> rowById = new ConcurrentHashMap<>();
+    private final AtomicInteger rowCount = new AtomicInteger();
+    private final AtomicReferenceArray<float[]> stripes = new AtomicReferenceArray<>(MAX_STRIPES);
+
+    public StripedFactorMatrix(int rank, float initScale, long seed) {
+        if (rank < 1) {
+            throw new IllegalArgumentException("rank must be positive");
+        }
+        this.rank = rank;
+        this.initScale = initScale;
+        this.seed = seed;
+    }
+
+    public int rank() {
+        return rank;
+    }
+
+    public int size() {
+        return rowCount.get();
+    }
+
+    /**
+     * Row of an id, allocated and randomly initialised on first use
+     */
+    public int rowFor(long id) {
+        Integer row = rowById.get(id);
+        if (row != null) {
+            return row;
+        }
+        return rowById.computeIfAbsent(id, key -> {
+            int newRow = rowCount.getAndIncrement();
+            if (newRow >= ROWS_PER_STRIPE * MAX_STRIPES) {
+                throw new IllegalStateException("Factor matrix is full");
+            }
+            float[] stripe = stripeFor(newRow);
+            int offset = offset(newRow);
+            SplittableRandom random = new SplittableRandom(seed ^ id * 0x9E3779B97F4A7C15L);
+            for (int k = 0; k < rank; k++) {
+                stripe[offset + k] = (float) ((random.nextDouble() - 0.5) * 2 * initScale);
+            }
+            return newRow;
+        });
+    }
+
+    /**
+     * Row of an id, or -1 if it has never been seen
+     */
+    public int rowIfPresent(long id) {
+        Integer row = rowById.get(id);
+        return row != null ? row : -1;
+    }
+
+    public float[] stripe(int row) {
+        return stripeFor(row);
+    }
+
+    public int offset(int row) {
+        return (row % ROWS_PER_STRIPE) * rank;
+    }
+
+    public float dot(int row, StripedFactorMatrix other, int otherRow) {
+        float[] a = stripe(row);
+        float[] b = other.stripe(otherRow);
+        int ao = offset(row);
+        int bo = other.offset(otherRow);
+        float sum = 0f;
+        for (int k = 0; k < rank; k++) {
+            sum += a[ao + k] * b[bo + k];
+        }
+        return sum;
+    }
+
+    /**
+     * Visits every (row, id) pair; rows added during the visit may or may not be seen
+     */
+    public void forEachRow(RowVisitor visitor) {
+        rowById.forEach((id, row) -> visitor.visit(row, id));
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(int row, long id);
+    }
+
+    private float[] stripeFor(int row) {
+        int index = row / ROWS_PER_STRIPE;
+        float[] stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new float[ROWS_PER_STRIPE * rank]);
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+}
@@ -1,7 +1,10 @@
 package com.app.rentmap.websocket;
 
 import com.app.rentmap.dto.MessageDto;
+import com.app.rentmap.entity.User;
+import com.app.rentmap.service.ChatWriteBehindService;
 import com.app.rentmap.service.MessageService;
+import com.app.rentmap.service.PresenceService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -10,16 +13,24 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
-import java.util.Map;
+import java.util.HashMap;
 
 @Controller
 public class ChatController {
     private final SimpMessagingTemplate messagingTemplate;
     private final MessageService messageService;
+    private final ChatWriteBehindService chatWriteBehindService;
+    private final TypingStateTracker typingStateTracker;
+    private final PresenceService presenceService;
 
-    public ChatController(SimpMessagingTemplate messagingTemplate, MessageService messageService) {
+    public ChatController(SimpMessagingTemplate messagingTemplate, MessageService messageService,
+                          ChatWriteBehindService chatWriteBehindService, TypingStateTracker typingStateTracker,
+                          PresenceService presenceService) {
         this.messagingTemplate = messagingTemplate;
         this.messageService = messageService;
+        this.chatWriteBehindService = chatWriteBehindService;
+        this.typingStateTracker = typingStateTracker;
+        this.presenceService = presenceService;
     }
 
     @MessageMapping("/chat.send")
@@ -28,13 +39,27 @@ public class ChatController {
             throw new IllegalStateException("User not authenticated");
         }
 
-        String senderEmail = principal.getName();
+        User sender = getSender(principal);
+        String senderEmail = sender != null ? sender.getEmail() : principal.getName();
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String senderRole = auth != null && auth.getAuthorities() != null && !auth.getAuthorities().isEmpty()
             ? auth.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "")
             : "USER";
 
+        // Posting a message ends the sender's typing state in this conversation
+        if (sender != null && chatMessage.getReceiverId() != null) {
+            typingStateTracker.stop(sender.getId(), chatMessage.getReceiverId());
+        }
+
         try {
+            // Write-behind mode: the service delivers the message and persists it in the background.
+            // A full queue falls through to the synchronous path below.
+            if (chatWriteBehindService.isEnabled() && sender != null
+                    && chatWriteBehindService.submit(sender, chatMessage.getReceiverId(), chatMessage.getContent(),
+                            chatMessage.getFileUrl(), chatMessage.getMessageType()) != null) {
+                return;
+            }
+
             MessageDto messageDto = messageService.sendMessage(
                     senderEmail,
                     senderRole,
@@ -44,16 +69,17 @@ public class ChatController {
                     chatMessage.getMessageType() != null ? chatMessage.getMessageType() : "TEXT"
             );
             
-            // Add reactions to messageDto
-            Map<String, Long> reactions = messageService.getReactionsForMessage(messageDto.getId());
-            messageDto.setReactions(reactions);
-
-            // Send to receiver
-            messagingTemplate.convertAndSendToUser(
-                String.valueOf(chatMessage.getReceiverId()),
-                "/queue/messages",
-                messageDto
-            );
+            // A message that was just created cannot have reactions yet
+            messageDto.setReactions(new HashMap<>());
+
+            // Send to receiver, unless they have no live session (they will load it from the inbox)
+            if (presenceService.isReachable(chatMessage.getReceiverId())) {
+                messagingTemplate.convertAndSendToUser(
+                    String.valueOf(chatMessage.getReceiverId()),
+                    "/queue/messages",
+                    messageDto
+                );
+            }
 
             // Send to sender so they get the saved message with ID (replaces temp message)
             messagingTemplate.convertAndSendToUser(
@@ -70,29 +96,23 @@ public class ChatController {
 
     @MessageMapping("/chat.typing")
     public void handleTyping(@Payload TypingMessage typingMessage, Principal principal) {
-        if (principal == null) return;
+        User sender = principal != null ? getSender(principal) : null;
+        if (sender == null || typingMessage.getReceiverId() == null) return;
 
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Long senderId = auth != null ? getUserIdFromAuth(auth) : null;
-        
-        if (senderId == null) return;
-
-        messagingTemplate.convertAndSendToUser(
-            String.valueOf(typingMessage.getReceiverId()),
-            "/queue/typing",
-            new TypingStatus(senderId, typingMessage.isTyping())
-        );
+        // Keystrokes are coalesced into start/stop transitions by the tracker
+        if (typingMessage.isTyping()) {
+            typingStateTracker.keystroke(sender.getId(), typingMessage.getReceiverId());
+        } else {
+            typingStateTracker.stop(sender.getId(), typingMessage.getReceiverId());
+        }
     }
 
-    private Long getUserIdFromAuth(Authentication auth) {
-        try {
-            if (auth.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
-                return null;
-            }
-            return null;
-        } catch (Exception e) {
-            return null;
+    // The WebSocket auth interceptor stores the loaded User as the principal of the STOMP session
+    private User getSender(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user;
         }
+        return null;
     }
 
     public static class ChatMessage {
@@ -0,0 +1,8 @@
+package com.app.rentmap.websocket;
+
+/**
+ * A broker message as exchanged between nodes: the STOMP destination (/topic/... or unresolved
+ * /user/{name}/...), its content type and the already serialized payload.
+ */
+public record ClusterEnvelope(String origin, String destination, String contentType, String payload) {
+}
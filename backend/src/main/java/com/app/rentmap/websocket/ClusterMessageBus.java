@@ -0,0 +1,15 @@
+package com.app.rentmap.websocket;
+
+import java.util.function.Consumer;
+
+/**
+ * Inter-node channel used to relay STOMP sends so that a user connected to any node receives them.
+ * Selected with websocket.cluster.bus: in-memory or postgres; no bus (single node) by default.
+ * Envelopes published by a node are also delivered back to it: receivers filter on origin.
+ */
+public interface ClusterMessageBus {
+
+    void publish(ClusterEnvelope envelope);
+
+    void subscribe(Consumer<ClusterEnvelope> receiver);
+}
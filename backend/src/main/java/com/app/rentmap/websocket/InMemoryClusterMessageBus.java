@@ -0,0 +1,39 @@
+package com.app.rentmap.websocket;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM bus: all application contexts of the same JVM share one channel,
+ * which lets tests and local runs start several nodes side by side. Delivery is synchronous.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.cluster.bus", havingValue = "in-memory")
+public class InMemoryClusterMessageBus implements ClusterMessageBus {
+    private static final List<Consumer<ClusterEnvelope>> RECEIVERS = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<ClusterEnvelope>> ownReceivers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        for (Consumer<ClusterEnvelope> receiver : RECEIVERS) {
+            receiver.accept(envelope);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEnvelope> receiver) {
+        ownReceivers.add(receiver);
+        RECEIVERS.add(receiver);
+    }
+
+    @PreDestroy
+    public void close() {
+        RECEIVERS.removeAll(ownReceivers);
+    }
+}
@@ -0,0 +1,212 @@
+package com.app.rentmap.websocket;
+
+import com.app.rentmap.util.MpscRingBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bus over Postgres LISTEN/NOTIFY, for several backend instances sharing the same database.
+ * Publishing never blocks the caller: envelopes go through a bounded ring and a publisher thread
+ * sends them with pg_notify, a batch per transaction. A listener thread opens its own connection
+ * with DriverManager, outside the Hikari pool, so that a connection held open forever for LISTEN
+ * never counts against the application's pool. That thread dispatches incoming notifications. Envelopes larger than the NOTIFY payload limit are
+ * stored in cluster_bus_payloads and only their id is notified; these rows are purged after a few minutes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "websocket.cluster.bus", havingValue = "postgres")
+public class PostgresClusterMessageBus implements ClusterMessageBus {
+    private static final int MAX_NOTIFY_BYTES = 7900;
+    private static final String OVERFLOW_PREFIX = "@";
+    private static final long OVERFLOW_PURGE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final MpscRingBuffer<ClusterEnvelope> outbox;
+    private final List<Consumer<ClusterEnvelope>> receivers = new CopyOnWriteArrayList<>();
+
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean running;
+    private Thread publisherThread;
+    private Thread listenerThread;
+
+    public PostgresClusterMessageBus(DataSourceProperties dataSourceProperties,
+                                     JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${websocket.cluster.channel:stomp_relay}") String channel,
+                                     @Value("${websocket.cluster.capacity:8192}") int capacity) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid cluster channel name: " + channel);
+        }
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        this.outbox = new MpscRingBuffer<>(capacity);
+
+        this.publishedCounter = meterRegistry.counter("websocket.cluster.published");
+        this.receivedCounter = meterRegistry.counter("websocket.cluster.received");
+        this.droppedCounter = meterRegistry.counter("websocket.cluster.dropped");
+        meterRegistry.gauge("websocket.cluster.outbox.depth", outbox, MpscRingBuffer::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS cluster_bus_payloads (" +
+                "id BIGSERIAL PRIMARY KEY, payload TEXT NOT NULL, created_at TIMESTAMP NOT NULL DEFAULT now())");
+        running = true;
+        publisherThread = Thread.ofPlatform().name("cluster-bus-publisher").daemon(true).start(this::runPublisher);
+        listenerThread = Thread.ofPlatform().name("cluster-bus-listener").daemon(true).start(this::runListener);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(publisherThread);
+        try {
+            publisherThread.join(TimeUnit.SECONDS.toMillis(5));
+            listenerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        if (!outbox.offer(envelope)) {
+            droppedCounter.increment();
+            return;
+        }
+        LockSupport.unpark(publisherThread);
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEnvelope> receiver) {
+        receivers.add(receiver);
+    }
+
+    private void runPublisher() {
+        List<ClusterEnvelope> batch = new ArrayList<>();
+        while (running || outbox.size() > 0) {
+            if (outbox.size() == 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            batch.clear();
+            outbox.drain(batch::add, 256);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                // Notifications are delivered to listeners when the transaction commits
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (ClusterEnvelope envelope : batch) {
+                        notify(envelope);
+                    }
+                });
+                publishedCounter.increment(batch.size());
+            } catch (Exception e) {
+                droppedCounter.increment(batch.size());
+                log.error("Failed to publish {} cluster messages: {}", batch.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void notify(ClusterEnvelope envelope) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(envelope);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot serialize cluster message", e);
+        }
+        String payload = json;
+        if (json.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+            Long id = jdbcTemplate.queryForObject(
+                    "INSERT INTO cluster_bus_payloads (payload) VALUES (?) RETURNING id", Long.class, json);
+            payload = OVERFLOW_PREFIX + id;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, channel, payload);
+    }
+
+    private void runListener() {
+        long nextPurge = System.nanoTime();
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                    if (System.nanoTime() - nextPurge > 0) {
+                        jdbcTemplate.update("DELETE FROM cluster_bus_payloads WHERE created_at < now() - interval '5 minutes'");
+                        nextPurge = System.nanoTime() + OVERFLOW_PURGE_INTERVAL_NANOS;
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Cluster bus listener failed, reconnecting: {}", e.getMessage());
+                    LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            String json = payload;
+            if (payload.startsWith(OVERFLOW_PREFIX)) {
+                json = jdbcTemplate.queryForObject("SELECT payload FROM cluster_bus_payloads WHERE id = ?",
+                        String.class, Long.parseLong(payload.substring(OVERFLOW_PREFIX.length())));
+            }
+            ClusterEnvelope envelope = objectMapper.readValue(json, ClusterEnvelope.class);
+            receivedCounter.increment();
+            for (Consumer<ClusterEnvelope> receiver : receivers) {
+                receiver.accept(envelope);
+            }
+        } catch (Exception e) {
+            log.error("Failed to dispatch cluster message: {}", e.getMessage(), e);
+        }
+    }
+}
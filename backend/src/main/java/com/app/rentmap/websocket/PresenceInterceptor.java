@@ -0,0 +1,42 @@
+package com.app.rentmap.websocket;
+
+import com.app.rentmap.config.WebSocketUserAuthentication;
+import com.app.rentmap.service.PresenceService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Client inbound channel interceptor recording activity for presence: every frame of an
+ * authenticated session, heartbeats included, refreshes its last-seen timestamp.
+ * Session start and end are tracked from the connect/disconnect events by the presence service.
+ */
+@Component
+public class PresenceInterceptor implements ChannelInterceptor {
+    private final PresenceService presenceService;
+
+    public PresenceInterceptor(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (type == SimpMessageType.CONNECT || type == SimpMessageType.DISCONNECT) {
+            return message;
+        }
+        Principal user = SimpMessageHeaderAccessor.getUser(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (user instanceof WebSocketUserAuthentication authentication && sessionId != null) {
+            presenceService.touch(authentication.getUser().getId(), sessionId);
+        }
+        return message;
+    }
+}
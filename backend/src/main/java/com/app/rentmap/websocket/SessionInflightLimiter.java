@@ -0,0 +1,96 @@
+package com.app.rentmap.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client inbound channel interceptor bounding the number of application messages (/app/...)
+ * a single session may have queued or running at once. Frames beyond the limit are dropped
+ * before reaching the executor, so one flooding client cannot fill the shared queue;
+ * CONNECT, SUBSCRIBE and DISCONNECT frames are never limited.
+ */
+@Slf4j
+@Component
+public class SessionInflightLimiter implements ExecutorChannelInterceptor {
+    private final int maxInflight;
+    private final Counter rejectedCounter;
+    private final Map<String, AtomicInteger> inflightBySession = new ConcurrentHashMap<>();
+
+    public SessionInflightLimiter(MeterRegistry meterRegistry,
+                                  @Value("${websocket.session.max-inflight:32}") int maxInflight) {
+        this.maxInflight = maxInflight;
+        this.rejectedCounter = meterRegistry.counter("websocket.channel.rejected", "channel", "inbound", "cause", "session-limit");
+        meterRegistry.gaugeMapSize("websocket.session.inflight.sessions", Tags.empty(), inflightBySession);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.DISCONNECT) {
+            inflightBySession.remove(sessionId);
+            return message;
+        }
+        if (!isApplicationMessage(message)) {
+            return message;
+        }
+        AtomicInteger inflight = inflightBySession.computeIfAbsent(sessionId, id -> new AtomicInteger());
+        if (inflight.incrementAndGet() > maxInflight) {
+            inflight.decrementAndGet();
+            rejectedCounter.increment();
+            log.debug("Dropping message from session {}: {} messages already in flight", sessionId, maxInflight);
+            return null;
+        }
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        // The task never reached the executor (e.g. executor saturated): nothing will release it
+        if (ex != null && isApplicationMessage(message)) {
+            release(message);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        // Every subscriber gets its own task; only the @MessageMapping handler's one is counted
+        if (handler instanceof SimpAnnotationMethodMessageHandler && isApplicationMessage(message)) {
+            release(message);
+        }
+    }
+
+    private void release(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            inflightBySession.computeIfPresent(sessionId, (id, inflight) -> {
+                inflight.updateAndGet(value -> Math.max(0, value - 1));
+                return inflight;
+            });
+        }
+    }
+
+    private static boolean isApplicationMessage(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && destination != null && destination.startsWith("/app/");
+    }
+}
@@ -0,0 +1,99 @@
+package com.app.rentmap.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the executors of the STOMP client inbound and outbound channels.
+ * In POOL mode a classic bounded pool is used; in VIRTUAL mode tasks run on virtual threads that
+ * expire as soon as they are idle, and only the concurrency cap and the queue bound the work in
+ * flight, which suits handlers blocking on JPA calls.
+ * Queue depth, active tasks, submit-to-completion latency and rejections are exported per channel.
+ */
+@Component
+public class StompChannelExecutors {
+    public enum Mode { POOL, VIRTUAL }
+
+    private record Settings(Mode mode, int corePoolSize, int maxPoolSize, int queueCapacity) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Settings inbound;
+    private final Settings outbound;
+    private final int virtualMaxConcurrency;
+
+    public StompChannelExecutors(MeterRegistry meterRegistry,
+                                 @Value("${websocket.channels.inbound.mode:POOL}") Mode inboundMode,
+                                 @Value("${websocket.channels.inbound.core-pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}") int inboundCore,
+                                 @Value("${websocket.channels.inbound.max-pool-size:64}") int inboundMax,
+                                 @Value("${websocket.channels.inbound.queue-capacity:10000}") int inboundQueue,
+                                 @Value("${websocket.channels.outbound.mode:POOL}") Mode outboundMode,
+                                 @Value("${websocket.channels.outbound.core-pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}") int outboundCore,
+                                 @Value("${websocket.channels.outbound.max-pool-size:64}") int outboundMax,
+                                 @Value("${websocket.channels.outbound.queue-capacity:10000}") int outboundQueue,
+                                 @Value("${websocket.channels.virtual-max-concurrency:2000}") int virtualMaxConcurrency) {
+        this.meterRegistry = meterRegistry;
+        this.inbound = new Settings(inboundMode, inboundCore, Math.max(inboundCore, inboundMax), inboundQueue);
+        this.outbound = new Settings(outboundMode, outboundCore, Math.max(outboundCore, outboundMax), outboundQueue);
+        this.virtualMaxConcurrency = virtualMaxConcurrency;
+    }
+
+    public ThreadPoolTaskExecutor inbound() {
+        return create("inbound", inbound);
+    }
+
+    public ThreadPoolTaskExecutor outbound() {
+        return create("outbound", outbound);
+    }
+
+    private ThreadPoolTaskExecutor create(String channel, Settings settings) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("stomp-" + channel + "-");
+        executor.setQueueCapacity(settings.queueCapacity());
+        if (settings.mode() == Mode.VIRTUAL) {
+            executor.setThreadFactory(Thread.ofVirtual().name("stomp-" + channel + "-vt-", 0).factory());
+            executor.setCorePoolSize(virtualMaxConcurrency);
+            executor.setMaxPoolSize(virtualMaxConcurrency);
+            executor.setKeepAliveSeconds(1);
+            executor.setAllowCoreThreadTimeOut(true);
+        } else {
+            executor.setCorePoolSize(settings.corePoolSize());
+            executor.setMaxPoolSize(settings.maxPoolSize());
+            executor.setKeepAliveSeconds(60);
+        }
+
+        Timer latency = meterRegistry.timer("websocket.channel.task.latency", "channel", channel);
+        Counter rejected = meterRegistry.counter("websocket.channel.rejected", "channel", channel, "cause", "executor");
+        // Decoration happens on submit, so the sample covers queue wait plus handling
+        executor.setTaskDecorator(task -> {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                try {
+                    task.run();
+                } finally {
+                    latency.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        });
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("STOMP " + channel + " channel saturated");
+        });
+
+        Gauge.builder("websocket.channel.queue.depth", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("websocket.channel.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        return executor;
+    }
+}
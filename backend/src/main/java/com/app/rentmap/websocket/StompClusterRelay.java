@@ -0,0 +1,79 @@
+package com.app.rentmap.websocket;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Broker channel interceptor that relays locally produced sends to the other nodes.
+ * Topic sends and unresolved user sends (/user/{name}/...) are published on the cluster bus;
+ * on the receiving nodes they are re-injected into the broker channel, where the user destination
+ * handler resolves them against that node's own sessions. Messages resolved to a session, and
+ * messages that were themselves relayed, are never published. Inactive when no bus is configured.
+ */
+@Component
+public class StompClusterRelay implements ChannelInterceptor {
+    static final String RELAYED_HEADER = "clusterRelayedFrom";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ClusterMessageBus bus;
+    private final MessageChannel brokerChannel;
+
+    public StompClusterRelay(ObjectProvider<ClusterMessageBus> busProvider,
+                             @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        this.bus = busProvider.getIfAvailable();
+        this.brokerChannel = brokerChannel;
+        if (bus != null) {
+            bus.subscribe(this::receive);
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (bus == null || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (destination == null || (type != null && type != SimpMessageType.MESSAGE)
+                || headers.containsKey(RELAYED_HEADER) || SimpMessageHeaderAccessor.getSessionId(headers) != null) {
+            return message;
+        }
+        if (destination.startsWith("/topic/") || destination.startsWith("/user/")) {
+            Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+            bus.publish(new ClusterEnvelope(nodeId, destination,
+                    contentType != null ? contentType.toString() : null,
+                    new String(payload, StandardCharsets.UTF_8)));
+        }
+        return message;
+    }
+
+    private void receive(ClusterEnvelope envelope) {
+        if (nodeId.equals(envelope.origin())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            MimeType contentType = MimeTypeUtils.parseMimeType(envelope.contentType());
+            accessor.setContentType(contentType);
+        }
+        accessor.setHeader(RELAYED_HEADER, envelope.origin());
+        brokerChannel.send(MessageBuilder.createMessage(
+                envelope.payload().getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+    }
+}
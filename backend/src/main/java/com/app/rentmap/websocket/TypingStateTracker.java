@@ -0,0 +1,117 @@
+package com.app.rentmap.websocket;
+
+import com.app.rentmap.service.PresenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-conversation typing state. Keystroke frames only refresh a timestamp; the receiver is sent
+ * a "typing" frame on the idle → typing transition and a "stopped" frame once no keystroke has been
+ * seen for the idle timeout (or when the sender posts a message). While the sender keeps typing,
+ * the "typing" frame is repeated at most once per refresh interval so the receiver's own safety
+ * timeout never fires mid-sentence.
+ */
+@Component
+public class TypingStateTracker {
+    private record Conversation(long senderId, long receiverId) {
+    }
+
+    private static final class State {
+        volatile long lastKeystrokeAt;
+        volatile long lastSentAt;
+
+        State(long now) {
+            this.lastKeystrokeAt = now;
+            this.lastSentAt = now;
+        }
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceService presenceService;
+    private final long idleTimeoutMs;
+    private final long refreshIntervalMs;
+    private final Counter receivedCounter;
+    private final Counter sentCounter;
+    private final Map<Conversation, State> states = new ConcurrentHashMap<>();
+
+    public TypingStateTracker(SimpMessagingTemplate messagingTemplate,
+                              PresenceService presenceService,
+                              MeterRegistry meterRegistry,
+                              @Value("${chat.typing.idle-timeout-ms:3000}") long idleTimeoutMs,
+                              @Value("${chat.typing.refresh-interval-ms:5000}") long refreshIntervalMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.presenceService = presenceService;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.receivedCounter = meterRegistry.counter("chat.typing.frames", "direction", "in");
+        this.sentCounter = meterRegistry.counter("chat.typing.frames", "direction", "out");
+        meterRegistry.gaugeMapSize("chat.typing.active", Tags.empty(), states);
+    }
+
+    public void keystroke(long senderId, long receiverId) {
+        receivedCounter.increment();
+        long now = System.currentTimeMillis();
+        boolean[] started = new boolean[1];
+        states.compute(new Conversation(senderId, receiverId), (key, state) -> {
+            if (state == null) {
+                started[0] = true;
+                return new State(now);
+            }
+            state.lastKeystrokeAt = now;
+            return state;
+        });
+        if (started[0]) {
+            send(senderId, receiverId, true);
+        }
+    }
+
+    /** Explicit stop (the client cleared its input or sent the message) */
+    public void stop(long senderId, long receiverId) {
+        if (states.remove(new Conversation(senderId, receiverId)) != null) {
+            send(senderId, receiverId, false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.typing.sweep-interval-ms:500}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Conversation, State> entry : states.entrySet()) {
+            Conversation conversation = entry.getKey();
+            boolean[] expired = new boolean[1];
+            // Atomic with keystroke(): a keystroke racing with the sweep keeps the state alive
+            State state = states.computeIfPresent(conversation, (key, current) -> {
+                if (now - current.lastKeystrokeAt >= idleTimeoutMs) {
+                    expired[0] = true;
+                    return null;
+                }
+                return current;
+            });
+            if (expired[0]) {
+                send(conversation.senderId(), conversation.receiverId(), false);
+            } else if (state != null && now - state.lastSentAt >= refreshIntervalMs) {
+                state.lastSentAt = now;
+                send(conversation.senderId(), conversation.receiverId(), true);
+            }
+        }
+    }
+
+    private void send(long senderId, long receiverId, boolean typing) {
+        if (!presenceService.isReachable(receiverId)) {
+            return;
+        }
+        sentCounter.increment();
+        messagingTemplate.convertAndSendToUser(
+            String.valueOf(receiverId),
+            "/queue/typing",
+            new ChatController.TypingStatus(senderId, typing)
+        );
+    }
+}
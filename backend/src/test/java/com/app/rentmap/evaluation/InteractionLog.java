@@ -0,0 +1,105 @@
+package com.app.rentmap.evaluation;
+
+import com.app.rentmap.entity.UserInteraction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Chronological interaction log replayed by {@link RecommendationReplayHarness}.
+ * Either read from a CSV export of user_interactions or generated synthetically.
+ */
+final class InteractionLog {
+    static final String[] REGIONS = {"Rabat", "Casablanca", "Marrakech", "Agadir", "Tanger", "Fes"};
+    static final String[] PROPERTY_TYPES = {"APARTMENT", "HOUSE", "STUDIO", "VILLA"};
+
+    private InteractionLog() {
+    }
+
+    record LoggedInteraction(long tenantKey,
+                             long propertyKey,
+                             UserInteraction.InteractionType type,
+                             LocalDateTime occurredAt) {
+    }
+
+    /**
+     * Reads a CSV export with the header {@code tenant_id,property_id,interaction_type,created_at}
+     * (created_at in ISO-8601, e.g. {@code 2024-05-01T10:15:30} or {@code 2024-05-01 10:15:30}).
+     */
+    static List<LoggedInteraction> readCsv(Path path) throws IOException {
+        DateTimeFormatter sqlFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSSSSS][.SSS]");
+        try (Stream<String> lines = Files.lines(path)) {
+            return lines.skip(1)
+                    .filter(line -> !line.isBlank())
+                    .map(line -> line.split(","))
+                    .map(columns -> {
+                        String timestamp = columns[3].trim();
+                        LocalDateTime occurredAt = timestamp.contains("T")
+                                ? LocalDateTime.parse(timestamp)
+                                : LocalDateTime.parse(timestamp, sqlFormat);
+                        return new LoggedInteraction(
+                                Long.parseLong(columns[0].trim()),
+                                Long.parseLong(columns[1].trim()),
+                                UserInteraction.InteractionType.valueOf(columns[2].trim().toUpperCase()),
+                                occurredAt);
+                    })
+                    .sorted(Comparator.comparing(LoggedInteraction::occurredAt))
+                    .toList();
+        }
+    }
+
+    /**
+     * Generates a log where each tenant has a hidden preferred region and property type
+     * and mostly interacts with matching properties, so ranking quality is measurable.
+     */
+    static List<LoggedInteraction> synthetic(int tenants, int properties, int interactions, int days, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime start = LocalDateTime.now().minusDays(days);
+        long spanSeconds = days * 86_400L;
+
+        List<List<Long>> propertiesByRegion = new ArrayList<>();
+        for (int i = 0; i < REGIONS.length; i++) {
+            propertiesByRegion.add(new ArrayList<>());
+        }
+        for (long property = 0; property < properties; property++) {
+            propertiesByRegion.get(regionOf(property)).add(property);
+        }
+
+        List<LoggedInteraction> log = new ArrayList<>(interactions);
+        for (int i = 0; i < interactions; i++) {
+            long tenant = random.nextInt(tenants);
+            int preferredRegion = (int) (tenant % REGIONS.length);
+            List<Long> pool = propertiesByRegion.get(preferredRegion);
+
+            long property;
+            if (!pool.isEmpty() && random.nextDouble() < 0.75) {
+                property = pool.get(random.nextInt(pool.size()));
+            } else {
+                property = random.nextInt(properties);
+            }
+
+            double roll = random.nextDouble();
+            UserInteraction.InteractionType type = roll < 0.5 ? UserInteraction.InteractionType.SEARCH
+                    : roll < 0.8 ? UserInteraction.InteractionType.VIEW
+                    : roll < 0.95 ? UserInteraction.InteractionType.CLICK
+                    : UserInteraction.InteractionType.FAVORITE;
+
+            LocalDateTime occurredAt = start.plusSeconds((long) (random.nextDouble() * spanSeconds));
+            log.add(new LoggedInteraction(tenant, property, type, occurredAt));
+        }
+        log.sort(Comparator.comparing(LoggedInteraction::occurredAt));
+        return log;
+    }
+
+    static int regionOf(long propertyKey) {
+        return (int) (Math.floorMod(propertyKey * 2654435761L, (long) REGIONS.length));
+    }
+}
@@ -0,0 +1,377 @@
+package com.app.rentmap.evaluation;
+
+import com.app.rentmap.RentMapApplication;
+import com.app.rentmap.dto.RecommendationDto;
+import com.app.rentmap.entity.Owner;
+import com.app.rentmap.entity.Property;
+import com.app.rentmap.entity.Tenant;
+import com.app.rentmap.entity.UserInteraction;
+import com.app.rentmap.repository.OwnerRepository;
+import com.app.rentmap.repository.PropertyRepository;
+import com.app.rentmap.repository.TenantRepository;
+import com.app.rentmap.service.AffinityService;
+import com.app.rentmap.service.FavoriteService;
+import com.app.rentmap.service.InteractionDedupeFilter;
+import com.app.rentmap.service.InteractionRetentionService;
+import com.app.rentmap.service.OnlineCollaborativeFilteringService;
+import com.app.rentmap.service.PopularityService;
+import com.app.rentmap.service.PropertyVectorIndexService;
+import com.app.rentmap.service.RecommendationBatchService;
+import com.app.rentmap.service.RecommendationService;
+import com.app.rentmap.service.SimilarTenantService;
+import com.app.rentmap.service.TenantProfileService;
+import com.app.rentmap.service.TenantSegmentationService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Offline replay and evaluation of {@link RecommendationService}.
+ *
+ * <p>Starts the application in-process against an embedded PostgreSQL and bulk-loads the first part
+ * of a chronological interaction log as history. The rest of the log is then replayed event by
+ * event through the live services (interaction recording, favorites). Before each click or new
+ * favorite, the tenant's recommendations are requested. That request sees only the events that
+ * precede it, and it is scored on whether the property about to be clicked or favorited is in the
+ * top k. Reports precision@k, recall@k (the hit rate), catalog coverage, latency percentiles and
+ * heap allocation per request, and exits with status 2 when a configured gate is not met.
+ *
+ * <p>Run with {@code mvn -Preplay test-compile exec:java -Dreplay.args="--synthetic --k=10"}.
+ * Options: {@code --log=<csv>} or {@code --synthetic}, {@code --tenants}, {@code --properties},
+ * {@code --interactions}, {@code --days}, {@code --seed}, {@code --history-ratio} (share of the log
+ * bulk-loaded before the replay), {@code --k}, {@code --warmup} (unscored first requests),
+ * {@code --precompute} (run the nightly batch after loading the history), and gates
+ * {@code --min-precision}, {@code --min-recall}, {@code --max-p99-ms}.
+ */
+public final class RecommendationReplayHarness {
+    private static final String JWT_SECRET = "replay-harness-secret-key-0123456789abcdef";
+
+    private final Map<String, String> options;
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Long> propertyIds = new HashMap<>();
+    private final Map<Long, Tenant> tenants = new HashMap<>();
+
+    private RecommendationReplayHarness(Map<String, String> options, ConfigurableApplicationContext context) {
+        this.options = options;
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        ReplayReport report;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+            properties.put("spring.datasource.username", "postgres");
+            properties.put("spring.datasource.password", "postgres");
+            properties.put("spring.jpa.hibernate.ddl-auto", "create");
+            properties.put("spring.main.banner-mode", "off");
+            properties.put("server.port", "0");
+            properties.put("jwt.secret", JWT_SECRET);
+            properties.put("logging.level.root", "WARN");
+            properties.put("recommendations.ann.index-path",
+                    Files.createTempDirectory("replay").resolve("property-hnsw.bin").toString());
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RentMapApplication.class)
+                    .properties(properties)
+                    .run()) {
+                report = new RecommendationReplayHarness(options, context).run();
+            }
+        }
+
+        System.out.println(report.format());
+        System.exit(checkGates(options, report) ? 0 : 2);
+    }
+
+    private ReplayReport run() throws Exception {
+        List<InteractionLog.LoggedInteraction> log = options.containsKey("log")
+                ? InteractionLog.readCsv(Path.of(options.get("log")))
+                : InteractionLog.synthetic(
+                        intOption("tenants", 300),
+                        intOption("properties", 400),
+                        intOption("interactions", 30_000),
+                        intOption("days", 60),
+                        intOption("seed", 42));
+        if (log.isEmpty()) {
+            throw new IllegalStateException("Interaction log is empty");
+        }
+
+        int split = (int) (log.size() * doubleOption("history-ratio", 0.5));
+        List<InteractionLog.LoggedInteraction> history = log.subList(0, split);
+        List<InteractionLog.LoggedInteraction> replay = log.subList(split, log.size());
+        // Shift the log so that the end of the history is "now" for the sliding windows;
+        // replayed events are recorded by the live services at the current time
+        Duration shift = Duration.between(log.get(Math.max(0, split - 1)).occurredAt(), LocalDateTime.now());
+
+        createCatalog(log);
+        Map<Long, Set<Long>> favorites = loadHistory(history, shift);
+        refreshIndexes();
+        if (options.containsKey("precompute")) {
+            // Serve the nightly batch output until replayed activity makes it stale
+            context.getBean(RecommendationBatchService.class).precomputeAll();
+        }
+
+        return replay(replay, favorites);
+    }
+
+    private void createCatalog(List<InteractionLog.LoggedInteraction> log) {
+        Owner owner = context.getBean(OwnerRepository.class).save(Owner.builder()
+                .email("replay-owner@rentmap.local")
+                .password("replay")
+                .firstName("Replay")
+                .lastName("Owner")
+                .role("OWNER")
+                .build());
+
+        Set<Long> propertyKeys = new HashSet<>();
+        Set<Long> tenantKeys = new HashSet<>();
+        for (InteractionLog.LoggedInteraction interaction : log) {
+            propertyKeys.add(interaction.propertyKey());
+            tenantKeys.add(interaction.tenantKey());
+        }
+
+        Random random = new Random(intOption("seed", 42));
+        PropertyRepository propertyRepository = context.getBean(PropertyRepository.class);
+        for (Long key : propertyKeys) {
+            Property property = propertyRepository.save(syntheticProperty(key, owner, random));
+            propertyIds.put(key, property.getId());
+        }
+
+        TenantRepository tenantRepository = context.getBean(TenantRepository.class);
+        for (Long key : tenantKeys) {
+            Tenant tenant = tenantRepository.save(Tenant.builder()
+                    .email("replay-tenant-" + key + "@rentmap.local")
+                    .password("replay")
+                    .firstName("Tenant")
+                    .lastName(String.valueOf(key))
+                    .role("TENANT")
+                    .preferredRegion(InteractionLog.REGIONS[(int) Math.floorMod(key, (long) InteractionLog.REGIONS.length)])
+                    .maxBudget(4000.0 + random.nextInt(8000))
+                    .build());
+            tenants.put(key, tenant);
+        }
+    }
+
+    private Property syntheticProperty(long key, Owner owner, Random random) {
+        String region = InteractionLog.REGIONS[InteractionLog.regionOf(key)];
+        return Property.builder()
+                .title("Replay property " + key)
+                .description("Generated by the recommendation replay harness")
+                .price(BigDecimal.valueOf(2000 + random.nextInt(13000)))
+                .area(30.0 + random.nextInt(220))
+                .region(region)
+                .latitude(30.0 + random.nextDouble() * 6)
+                .longitude(-9.5 + random.nextDouble() * 7)
+                .availability(LocalDate.now().minusDays(random.nextInt(30)))
+                .numberOfRooms(1 + random.nextInt(6))
+                .numberOfBedrooms(1 + random.nextInt(4))
+                .numberOfBathrooms(1 + random.nextInt(3))
+                .hasWifi(random.nextBoolean())
+                .hasParking(random.nextBoolean())
+                .hasAirConditioning(random.nextBoolean())
+                .hasHeating(random.nextBoolean())
+                .hasFurnished(random.nextBoolean())
+                .petsAllowed(random.nextBoolean())
+                .propertyType(InteractionLog.PROPERTY_TYPES[(int) Math.floorMod(key, (long) InteractionLog.PROPERTY_TYPES.length)])
+                .rentalPeriod("MONTH")
+                .owner(owner)
+                .build();
+    }
+
+    // Returns the favorites of each tenant (by tenant key) after the history
+    private Map<Long, Set<Long>> loadHistory(List<InteractionLog.LoggedInteraction> history, Duration shift) {
+        List<Object[]> interactions = new ArrayList<>(history.size());
+        List<Object[]> favorites = new ArrayList<>();
+        Map<Long, Set<Long>> favoritesByTenant = new HashMap<>();
+        for (InteractionLog.LoggedInteraction interaction : history) {
+            Long tenantId = tenants.get(interaction.tenantKey()).getId();
+            Long propertyId = propertyIds.get(interaction.propertyKey());
+            Timestamp occurredAt = Timestamp.valueOf(interaction.occurredAt().plus(shift));
+            interactions.add(new Object[]{tenantId, propertyId, interaction.type().name(),
+                    interaction.type().getDefaultScore(), occurredAt});
+            if (interaction.type() == UserInteraction.InteractionType.FAVORITE
+                    && favoritesByTenant.computeIfAbsent(interaction.tenantKey(), key -> new HashSet<>()).add(propertyId)) {
+                favorites.add(new Object[]{tenantId, propertyId, occurredAt});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_interactions " +
+                "(tenant_id, property_id, interaction_type, interaction_score, created_at) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT DO NOTHING", interactions);
+        jdbcTemplate.batchUpdate("INSERT INTO favorites (tenant_id, property_id, created_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT DO NOTHING", favorites);
+        return favoritesByTenant;
+    }
+
+    // In-memory structures are normally built at startup; rebuild them once the training data is loaded
+    private void refreshIndexes() {
+        // Closed days are read from the daily rollups, as after the nightly maintenance job
+        context.getBean(InteractionRetentionService.class).rollUp();
+        context.getBean(InteractionDedupeFilter.class).warmUp();
+        context.getBean(PopularityService.class).rebuild();
+        context.getBean(SimilarTenantService.class).rebuild();
+        context.getBean(AffinityService.class).seed();
+        context.getBean(PropertyVectorIndexService.class).rebuild();
+        context.getBean(TenantProfileService.class).seed();
+        context.getBean(OnlineCollaborativeFilteringService.class).rebuild();
+        context.getBean(TenantSegmentationService.class).rebuild();
+    }
+
+    private ReplayReport replay(List<InteractionLog.LoggedInteraction> replay, Map<Long, Set<Long>> favorites)
+            throws InterruptedException {
+        RecommendationService recommendationService = context.getBean(RecommendationService.class);
+        FavoriteService favoriteService = context.getBean(FavoriteService.class);
+        AllocationProbe allocation = new AllocationProbe();
+        int k = intOption("k", 10);
+        int warmup = intOption("warmup", 20);
+        ReplayReport report = new ReplayReport(k, propertyIds.size());
+
+        for (InteractionLog.LoggedInteraction interaction : replay) {
+            Tenant tenant = tenants.get(interaction.tenantKey());
+            Long propertyId = propertyIds.get(interaction.propertyKey());
+            Set<Long> tenantFavorites = favorites.computeIfAbsent(interaction.tenantKey(), key -> new HashSet<>());
+            UserInteraction.InteractionType type = interaction.type();
+
+            // Ask before the event is applied: the request only sees what happened earlier
+            boolean target = (type == UserInteraction.InteractionType.CLICK
+                    || type == UserInteraction.InteractionType.FAVORITE) && !tenantFavorites.contains(propertyId);
+            if (target && warmup > 0) {
+                warmup--;
+                recommendationService.getRecommendations(tenant.getEmail(), k);
+            } else if (target) {
+                Map<Long, Long> carriersBefore = allocation.carrierSnapshot();
+                long requestBefore = allocation.currentThreadBytes();
+                long start = System.nanoTime();
+                List<RecommendationDto> recommendations = recommendationService.getRecommendations(tenant.getEmail(), k);
+                long latency = System.nanoTime() - start;
+                long allocated = allocation.currentThreadBytes() - requestBefore + allocation.carrierBytesSince(carriersBefore);
+
+                List<Long> recommended = recommendations.stream()
+                        .map(recommendation -> recommendation.getProperty().getId())
+                        .toList();
+                report.record(recommended, Set.of(propertyId), latency, allocated);
+            }
+
+            if (type == UserInteraction.InteractionType.FAVORITE) {
+                if (tenantFavorites.add(propertyId)) {
+                    favoriteService.addFavorite(tenant.getEmail(), propertyId);
+                }
+            } else {
+                recommendationService.recordInteraction(tenant.getId(), propertyId, type, null);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Bytes allocated by the request thread and by the threads running the recommendation strategies.
+     * Strategies run on virtual threads, for which ThreadMXBean reports nothing; their allocations
+     * are accounted to the carrier threads of the default virtual-thread scheduler, which nothing
+     * else uses during the replay, so those carriers are measured instead.
+     */
+    private static final class AllocationProbe {
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final String carrierPrefix;
+
+        AllocationProbe() throws InterruptedException {
+            // A mounted virtual thread prints its carrier, e.g. VirtualThread[#42]/runnable@ForkJoinPool-1-worker-3
+            String[] description = new String[1];
+            Thread.ofVirtual().start(() -> description[0] = Thread.currentThread().toString()).join();
+            String carrier = description[0].substring(description[0].indexOf('@') + 1);
+            this.carrierPrefix = carrier.substring(0, carrier.lastIndexOf('-') + 1);
+        }
+
+        long currentThreadBytes() {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+
+        Map<Long, Long> carrierSnapshot() {
+            Map<Long, Long> snapshot = new HashMap<>();
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+                if (info != null && info.getThreadName().startsWith(carrierPrefix)) {
+                    long bytes = threads.getThreadAllocatedBytes(info.getThreadId());
+                    if (bytes >= 0) {
+                        snapshot.put(info.getThreadId(), bytes);
+                    }
+                }
+            }
+            return snapshot;
+        }
+
+        // Carriers started during the request count from zero
+        long carrierBytesSince(Map<Long, Long> before) {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> carrier : carrierSnapshot().entrySet()) {
+                allocated += carrier.getValue() - before.getOrDefault(carrier.getKey(), 0L);
+            }
+            return allocated;
+        }
+    }
+
+    private static boolean checkGates(Map<String, String> options, ReplayReport report) {
+        boolean passed = true;
+        if (options.containsKey("min-precision")
+                && report.precisionAtK() < Double.parseDouble(options.get("min-precision"))) {
+            System.err.println("Gate failed: precision@k below " + options.get("min-precision"));
+            passed = false;
+        }
+        if (options.containsKey("min-recall")
+                && report.recallAtK() < Double.parseDouble(options.get("min-recall"))) {
+            System.err.println("Gate failed: recall@k below " + options.get("min-recall"));
+            passed = false;
+        }
+        if (options.containsKey("max-p99-ms")
+                && report.latencyPercentileMillis(99) > Double.parseDouble(options.get("max-p99-ms"))) {
+            System.err.println("Gate failed: p99 latency above " + options.get("max-p99-ms") + " ms");
+            passed = false;
+        }
+        return passed;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
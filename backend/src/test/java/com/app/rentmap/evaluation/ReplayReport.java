@@ -0,0 +1,90 @@
+package com.app.rentmap.evaluation;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Accumulates ranking quality and cost measurements for each evaluated recommendation request.
+ */
+final class ReplayReport {
+    private final int k;
+    private final int catalogSize;
+    private final Set<Long> recommendedProperties = new HashSet<>();
+    private long[] latenciesNanos = new long[64];
+    private long[] allocatedBytes = new long[64];
+    private int requests;
+    private double precisionSum;
+    private double recallSum;
+
+    ReplayReport(int k, int catalogSize) {
+        this.k = k;
+        this.catalogSize = catalogSize;
+    }
+
+    void record(List<Long> recommended, Set<Long> relevant, long latencyNanos, long allocated) {
+        if (requests == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, requests * 2);
+            allocatedBytes = Arrays.copyOf(allocatedBytes, requests * 2);
+        }
+        latenciesNanos[requests] = latencyNanos;
+        allocatedBytes[requests] = allocated;
+        requests++;
+
+        long hits = recommended.stream().limit(k).filter(relevant::contains).count();
+        precisionSum += (double) hits / k;
+        recallSum += relevant.isEmpty() ? 0 : (double) hits / relevant.size();
+        recommendedProperties.addAll(recommended);
+    }
+
+    int requests() {
+        return requests;
+    }
+
+    double precisionAtK() {
+        return requests == 0 ? 0 : precisionSum / requests;
+    }
+
+    double recallAtK() {
+        return requests == 0 ? 0 : recallSum / requests;
+    }
+
+    double coverage() {
+        return catalogSize == 0 ? 0 : (double) recommendedProperties.size() / catalogSize;
+    }
+
+    double latencyPercentileMillis(double percentile) {
+        if (requests == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latenciesNanos, requests);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(requests - 1, Math.ceil(percentile / 100.0 * requests) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    double meanAllocatedKilobytes() {
+        return requests == 0 ? 0 : Arrays.stream(allocatedBytes, 0, requests).average().orElse(0) / 1024.0;
+    }
+
+    String format() {
+        return String.format(Locale.ROOT, """
+                Recommendation replay report
+                  requests evaluated : %d
+                  precision@%d       : %.4f
+                  recall@%d          : %.4f
+                  catalog coverage   : %.4f
+                  latency p50 (ms)   : %.2f
+                  latency p90 (ms)   : %.2f
+                  latency p99 (ms)   : %.2f
+                  latency max (ms)   : %.2f
+                  allocation / req   : %.1f KB
+                """,
+                requests, k, precisionAtK(), k, recallAtK(), coverage(),
+                latencyPercentileMillis(50), latencyPercentileMillis(90),
+                latencyPercentileMillis(99), latencyPercentileMillis(100),
+                meanAllocatedKilobytes());
+    }
+}
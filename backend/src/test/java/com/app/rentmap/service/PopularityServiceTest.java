@@ -0,0 +1,137 @@
+package com.app.rentmap.service;
+
+import com.app.rentmap.entity.UserInteraction;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Classements global, par région et par type, sans base : les attributs des propriétés
+ * viennent d'un JdbcTemplate simulé.
+ */
+class PopularityServiceTest {
+    private static final String[] REGIONS = {"Tunis", "Sousse", "Sfax"};
+    private static final String[] TYPES = {"APARTMENT", "HOUSE"};
+    private static final int PROPERTIES = 60;
+    private static final int GROUP_TOP_K = 5;
+
+    @Test
+    void groupRankingsMatchBruteForceWhateverTheArrivalOrder() throws Exception {
+        List<Long> events = new ArrayList<>();
+        Random random = new Random(9);
+        for (int i = 0; i < 3000; i++) {
+            // Skewed towards low ids so that rankings have clear leaders and many ties further down
+            events.add((long) Math.min(random.nextInt(PROPERTIES), random.nextInt(PROPERTIES)));
+        }
+        PopularityService inOrder = newService(GROUP_TOP_K, List.of());
+        events.forEach(propertyId -> inOrder.onInteractionRecorded(event(propertyId)));
+        List<Long> shuffled = new ArrayList<>(events);
+        Collections.shuffle(shuffled, new Random(10));
+        PopularityService reordered = newService(GROUP_TOP_K, List.of());
+        shuffled.forEach(propertyId -> reordered.onInteractionRecorded(event(propertyId)));
+
+        Map<Long, Long> counts = events.stream().collect(Collectors.groupingBy(id -> id, Collectors.counting()));
+        assertThat(inOrder.getTopPropertyIds(10)).isEqualTo(expectedTop(counts, id -> true, 10));
+        assertThat(reordered.getTopPropertyIds(10)).isEqualTo(inOrder.getTopPropertyIds(10));
+        for (String region : REGIONS) {
+            List<Long> expected = expectedTop(counts, id -> region(id).equals(region), GROUP_TOP_K);
+            assertThat(inOrder.getTopPropertyIdsByRegion(region, 10)).isEqualTo(expected);
+            assertThat(reordered.getTopPropertyIdsByRegion(region, 10)).isEqualTo(expected);
+        }
+        for (String type : TYPES) {
+            List<Long> expected = expectedTop(counts, id -> type(id).equals(type), GROUP_TOP_K);
+            assertThat(inOrder.getTopPropertyIdsByType(type.toLowerCase(), 10)).isEqualTo(expected);
+            assertThat(reordered.getTopPropertyIdsByType(type, 10)).isEqualTo(expected);
+        }
+        assertThat(inOrder.getTopPropertyIdsByRegion("Bizerte", 10)).isEmpty();
+    }
+
+    @Test
+    void pruningADeletedLeaderPromotesTheNextMemberOfItsGroups() throws Exception {
+        // Properties 0, 3 and 6 are all in Tunis; the region top only keeps two of them
+        PopularityService service = newService(2, List.of(3L, 6L));
+        record(service, 0L, 5);
+        record(service, 3L, 4);
+        record(service, 6L, 3);
+        assertThat(service.getTopPropertyIdsByRegion("Tunis", 10)).containsExactly(0L, 3L);
+
+        service.pruneDeletedProperties();
+
+        assertThat(service.getCount(0L)).isZero();
+        assertThat(service.getTopPropertyIds(10)).containsExactly(3L, 6L);
+        assertThat(service.getTopPropertyIdsByRegion("Tunis", 10)).containsExactly(3L, 6L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PopularityService newService(int groupTopK, List<Long> existingAfterPrune) throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    long propertyId = (Long) invocation.getArgument(2);
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.next()).thenReturn(true);
+                    when(rs.getString(1)).thenReturn(region(propertyId));
+                    when(rs.getString(2)).thenReturn(type(propertyId));
+                    return invocation.<ResultSetExtractor<?>>getArgument(1).extractData(rs);
+                });
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(existingAfterPrune);
+        PopularityService service = new PopularityService(jdbcTemplate, 30, 1, groupTopK);
+        // Empty history: the live stream starts now
+        service.rebuild();
+        return service;
+    }
+
+    private static void record(PopularityService service, long propertyId, int times) {
+        for (int i = 0; i < times; i++) {
+            service.onInteractionRecorded(event(propertyId));
+        }
+    }
+
+    private static InteractionEvent event(long propertyId) {
+        return new InteractionEvent(1L, propertyId, UserInteraction.InteractionType.VIEW, null, LocalDateTime.now());
+    }
+
+    private static String region(long propertyId) {
+        return REGIONS[(int) (propertyId % REGIONS.length)];
+    }
+
+    private static String type(long propertyId) {
+        return TYPES[(int) (propertyId % TYPES.length)];
+    }
+
+    private static List<Long> expectedTop(Map<Long, Long> counts, LongPredicate inGroup, int limit) {
+        Map<Long, Long> group = new HashMap<>();
+        counts.forEach((id, count) -> {
+            if (inGroup.test(id)) {
+                group.put(id, count);
+            }
+        });
+        return group.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.app.rentmap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrentBloomFilterTest {
+    private static final int EXPECTED = 100_000;
+    private static final double TARGET_RATE = 0.01;
+
+    @Test
+    void insertedKeysAreAlwaysReported() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(EXPECTED, TARGET_RATE);
+        SplittableRandom random = new SplittableRandom(3);
+        long[] keys = random.longs(EXPECTED).toArray();
+
+        LongStream.of(keys).parallel().forEach(filter::put);
+
+        for (long key : keys) {
+            assertThat(filter.mightContain(key)).isTrue();
+        }
+        assertThat(filter.isSaturated()).isFalse();
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredTarget() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(EXPECTED, TARGET_RATE);
+        // Dedupe keys are structured (tenant, property, month); hash them the way the filter's users do
+        for (long i = 0; i < EXPECTED; i++) {
+            filter.put(ConcurrentBloomFilter.hash(i % 1000, i / 1000, 24_300));
+        }
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (long i = 0; i < probes; i++) {
+            if (filter.mightContain(ConcurrentBloomFilter.hash(i % 1000, i / 1000, 24_301))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives / (double) probes).isLessThan(TARGET_RATE * 1.5);
+    }
+
+    @Test
+    void putReportsFirstInsertionAndClearForgetsEverything() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(1000, TARGET_RATE);
+
+        assertThat(filter.put(42L)).isTrue();
+        assertThat(filter.put(42L)).isFalse();
+        assertThat(filter.approximateSize()).isEqualTo(1);
+
+        filter.clear();
+        assertThat(filter.mightContain(42L)).isFalse();
+        assertThat(filter.approximateSize()).isZero();
+    }
+
+    @Test
+    void reportsSaturationOncePastTheSizedCapacity() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(100, TARGET_RATE);
+        for (long key = 0; key < 200; key++) {
+            filter.put(ConcurrentBloomFilter.hash(key, 0, 0));
+        }
+        assertThat(filter.isSaturated()).isTrue();
+    }
+}
@@ -0,0 +1,144 @@
+package com.app.rentmap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+    private static final int DIMENSION = 16;
+    private static final int SIZE = 2000;
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+
+    @Test
+    void searchMatchesBruteForceWithHighRecall() {
+        SplittableRandom random = new SplittableRandom(7);
+        float[][] vectors = randomVectors(random, SIZE);
+        HnswIndex index = build(vectors);
+
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector(random);
+            Set<Long> expected = new HashSet<>(bruteForce(vectors, query, K));
+            for (HnswIndex.Neighbor neighbor : index.search(query, K, 100, null)) {
+                if (expected.contains(neighbor.id())) {
+                    hits++;
+                }
+            }
+        }
+        assertThat(hits / (double) (QUERIES * K)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void resultsAreSortedByExactDistance() {
+        SplittableRandom random = new SplittableRandom(11);
+        float[][] vectors = randomVectors(random, 500);
+        HnswIndex index = build(vectors);
+        float[] query = randomVector(random);
+
+        List<HnswIndex.Neighbor> neighbors = index.search(query, K, 64, null);
+
+        assertThat(neighbors).hasSize(K);
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            assertThat(neighbor.distance()).isEqualTo(distance(vectors[(int) neighbor.id()], query));
+        }
+        assertThat(neighbors).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Neighbor::distance));
+    }
+
+    @Test
+    void excludedReplacedAndRemovedIdsAreHonoured() {
+        SplittableRandom random = new SplittableRandom(13);
+        float[][] vectors = randomVectors(random, 500);
+        HnswIndex index = build(vectors);
+        float[] query = vectors[0].clone();
+
+        assertThat(index.search(query, 1, 64, null).get(0).id()).isEqualTo(0L);
+        assertThat(index.search(query, K, 64, id -> id == 0L)).extracting(HnswIndex.Neighbor::id)
+                .doesNotContain(0L);
+
+        // Moving id 1 onto the query makes it the exact match, id 0 is then dropped
+        index.add(1L, query);
+        index.remove(0L);
+        List<HnswIndex.Neighbor> neighbors = index.search(query, K, 64, null);
+        assertThat(neighbors.get(0).id()).isEqualTo(1L);
+        assertThat(neighbors.get(0).distance()).isZero();
+        assertThat(neighbors).extracting(HnswIndex.Neighbor::id).doesNotContain(0L).doesNotHaveDuplicates();
+        assertThat(index.size()).isEqualTo(499);
+        assertThat(index.contains(0L)).isFalse();
+    }
+
+    @Test
+    void serialisedIndexAnswersLikeTheOriginal() throws IOException {
+        SplittableRandom random = new SplittableRandom(17);
+        HnswIndex index = build(randomVectors(random, 500));
+        index.remove(3L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.writeTo(out);
+        }
+        HnswIndex reloaded = HnswIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(reloaded.size()).isEqualTo(index.size());
+        assertThat(reloaded.contains(3L)).isFalse();
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomVector(random);
+            assertThat(reloaded.search(query, K, 64, null)).isEqualTo(index.search(query, K, 64, null));
+        }
+    }
+
+    private static HnswIndex build(float[][] vectors) {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 200);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, vectors[i]);
+        }
+        return index;
+    }
+
+    private static List<Long> bruteForce(float[][] vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> distance(vectors[i], query)))
+                .limit(k)
+                .map(Integer::longValue)
+                .toList();
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static float[][] randomVectors(SplittableRandom random, int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector(random));
+        }
+        return vectors.toArray(new float[0][]);
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
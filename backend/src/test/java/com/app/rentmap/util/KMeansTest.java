@@ -0,0 +1,77 @@
+package com.app.rentmap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class KMeansTest {
+    private static final double[][] CENTERS = {{0, 0}, {10, 0}, {0, 10}};
+
+    @Test
+    void sameSeedGivesSameCentroids() {
+        double[][] points = blobs(new SplittableRandom(1), 300);
+
+        double[][] first = KMeans.fit(points, 3, 50, 42L);
+        double[][] second = KMeans.fit(points, 3, 50, 42L);
+
+        assertThat(second).isDeepEqualTo(first);
+    }
+
+    @Test
+    void recoversWellSeparatedClusters() {
+        double[][] points = blobs(new SplittableRandom(2), 300);
+
+        double[][] centroids = KMeans.fit(points, 3, 50, 42L);
+
+        assertThat(centroids).hasNumberOfRows(3);
+        double[][] sorted = centroids.clone();
+        Arrays.sort(sorted, Comparator.comparingDouble(c -> c[0] + 2 * c[1]));
+        double[][] expected = {CENTERS[0], CENTERS[1], CENTERS[2]};
+        for (int c = 0; c < 3; c++) {
+            assertThat(sorted[c][0]).isCloseTo(expected[c][0], within(0.5));
+            assertThat(sorted[c][1]).isCloseTo(expected[c][1], within(0.5));
+        }
+        for (double[] point : points) {
+            int nearest = KMeans.nearest(centroids, point, 2);
+            assertThat(distance(centroids[nearest], point)).isLessThan(25);
+        }
+    }
+
+    @Test
+    void returnsAtMostOneCentroidPerDistinctPoint() {
+        double[][] points = {{1, 1}, {1, 1}, {2, 2}, {2, 2}};
+
+        double[][] centroids = KMeans.fit(points, 5, 10, 42L);
+
+        assertThat(centroids).hasNumberOfRows(2);
+        assertThat(KMeans.fit(new double[0][], 3, 10, 42L)).isEmpty();
+    }
+
+    @Test
+    void nearestComparesOnlyTheGivenDimensions() {
+        double[][] centroids = {{0, 0}, {0, 100}};
+
+        assertThat(KMeans.nearest(centroids, new double[]{0, 90}, 2)).isEqualTo(1);
+        assertThat(KMeans.nearest(centroids, new double[]{0, 90}, 1)).isZero();
+    }
+
+    private static double[][] blobs(SplittableRandom random, int perCenter) {
+        double[][] points = new double[CENTERS.length * perCenter][];
+        for (int i = 0; i < points.length; i++) {
+            double[] center = CENTERS[i % CENTERS.length];
+            points[i] = new double[]{center[0] + random.nextGaussian(), center[1] + random.nextGaussian()};
+        }
+        return points;
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        return dx * dx + dy * dy;
+    }
+}
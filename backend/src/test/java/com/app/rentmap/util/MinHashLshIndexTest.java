@@ -0,0 +1,69 @@
+package com.app.rentmap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MinHashLshIndexTest {
+
+    @Test
+    void insertionOrderDoesNotChangeCandidatesOrSimilarities() {
+        List<long[]> pairs = new ArrayList<>();
+        for (long member = 0; member < 50; member++) {
+            for (long element = member; element < member + 20; element++) {
+                pairs.add(new long[]{member, element});
+            }
+        }
+        MinHashLshIndex inOrder = new MinHashLshIndex(32, 2);
+        pairs.forEach(pair -> inOrder.add(pair[0], pair[1]));
+        Collections.shuffle(pairs, new Random(5));
+        MinHashLshIndex shuffled = new MinHashLshIndex(32, 2);
+        pairs.forEach(pair -> shuffled.add(pair[0], pair[1]));
+
+        for (long member = 0; member < 50; member++) {
+            assertThat(shuffled.candidates(member, 500)).isEqualTo(inOrder.candidates(member, 500));
+        }
+    }
+
+    @Test
+    void estimatedSimilarityTracksJaccard() {
+        MinHashLshIndex index = new MinHashLshIndex(64, 2);
+        // Member 1 shares 60 of 100 distinct elements with member 0: Jaccard 0.6
+        LongStream.range(0, 80).forEach(element -> index.add(0, element));
+        LongStream.range(20, 100).forEach(element -> index.add(1, element));
+        // Disjoint member, never a candidate of the others in practice
+        LongStream.range(1000, 1080).forEach(element -> index.add(2, element));
+
+        Map<Long, Double> candidates = index.candidates(0, 500);
+        assertThat(candidates.get(1L)).isCloseTo(0.6, within(0.15));
+        assertThat(candidates.getOrDefault(2L, 0.0)).isLessThan(0.1);
+    }
+
+    @Test
+    void replaceMatchesAFreshSignatureAndEmptySetRemovesTheMember() {
+        MinHashLshIndex index = new MinHashLshIndex(32, 2);
+        LongStream.range(0, 10).forEach(element -> index.add(0, element));
+        LongStream.range(0, 10).forEach(element -> index.add(1, element));
+        LongStream.range(0, 5).forEach(element -> index.add(2, element));
+        assertThat(index.candidates(1, 500).get(0L)).isEqualTo(1.0);
+
+        // Member 0 drops half of its elements: it must now look exactly like member 2
+        index.replace(0, List.of(0L, 1L, 2L, 3L, 4L));
+        assertThat(index.candidates(2, 500).get(0L)).isEqualTo(1.0);
+        assertThat(index.candidates(1, 500).get(0L)).isEqualTo(index.candidates(1, 500).get(2L));
+
+        index.replace(0, List.of());
+        assertThat(index.contains(0)).isFalse();
+        assertThat(index.candidates(0, 500)).isEmpty();
+        assertThat(index.candidates(1, 500)).doesNotContainKey(0L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+}
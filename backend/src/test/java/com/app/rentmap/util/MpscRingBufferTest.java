@@ -0,0 +1,91 @@
+package com.app.rentmap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscRingBufferTest {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 100_000;
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwoAndOfferFailsWhenFull() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(5);
+        assertThat(ring.capacity()).isEqualTo(8);
+
+        for (int i = 0; i < 8; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(8)).isFalse();
+        assertThat(ring.size()).isEqualTo(8);
+
+        assertThat(ring.poll()).isZero();
+        assertThat(ring.offer(8)).isTrue();
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ring.drain(drained::add, 100)).isEqualTo(8);
+        assertThat(drained).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    void concurrentProducersAreDrainedExactlyOnceInPerProducerOrder() throws InterruptedException {
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    long[] element = {producer, i};
+                    while (!ring.offer(element)) {
+                        rejected.incrementAndGet();
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+
+        int[] nextExpected = new int[PRODUCERS];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        start.countDown();
+        while (received < PRODUCERS * PER_PRODUCER && System.nanoTime() < deadline) {
+            int drained = ring.drain(element -> {
+                int producer = (int) element[0];
+                // Each producer's elements come out in the order it offered them, none lost or repeated
+                assertThat(element[1]).isEqualTo(nextExpected[producer]);
+                nextExpected[producer]++;
+            }, 256);
+            if (drained == 0) {
+                Thread.onSpinWait();
+            }
+            received += drained;
+        }
+        for (Thread producer : producers) {
+            producer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertThat(received).isEqualTo(PRODUCERS * PER_PRODUCER);
+        assertThat(nextExpected).containsOnly(PER_PRODUCER);
+        assertThat(ring.poll()).isNull();
+        assertThat(ring.size()).isZero();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
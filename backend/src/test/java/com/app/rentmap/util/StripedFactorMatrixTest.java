@@ -0,0 +1,96 @@
+package com.app.rentmap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedFactorMatrixTest {
+    private static final int RANK = 8;
+    // Spans several stripes
+    private static final int IDS = 5000;
+
+    @Test
+    void initialRowsDependOnlyOnSeedAndId() {
+        StripedFactorMatrix ascending = new StripedFactorMatrix(RANK, 0.1f, 1L);
+        StripedFactorMatrix descending = new StripedFactorMatrix(RANK, 0.1f, 1L);
+        StripedFactorMatrix otherSeed = new StripedFactorMatrix(RANK, 0.1f, 2L);
+        for (long id = 0; id < IDS; id++) {
+            ascending.rowFor(id);
+            otherSeed.rowFor(id);
+        }
+        for (long id = IDS - 1; id >= 0; id--) {
+            descending.rowFor(id);
+        }
+
+        for (long id = 0; id < IDS; id++) {
+            float[] row = vector(ascending, id);
+            assertThat(vector(descending, id)).isEqualTo(row);
+            assertThat(vector(otherSeed, id)).isNotEqualTo(row);
+            for (float value : row) {
+                assertThat(Math.abs(value)).isLessThanOrEqualTo(0.1f);
+            }
+        }
+    }
+
+    @Test
+    void concurrentAllocationGivesEachIdOneStableRow() throws Exception {
+        StripedFactorMatrix matrix = new StripedFactorMatrix(RANK, 0.1f, 1L);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<Long, Integer>>> futures = executor.invokeAll(IntStream.range(0, 4)
+                    .mapToObj(thread -> (Callable<Map<Long, Integer>>) () -> {
+                        Map<Long, Integer> rows = new HashMap<>();
+                        for (long id = 0; id < IDS; id++) {
+                            rows.put(id, matrix.rowFor(id));
+                        }
+                        return rows;
+                    })
+                    .toList());
+            Map<Long, Integer> first = futures.get(0).get();
+            for (Future<Map<Long, Integer>> future : futures) {
+                assertThat(future.get()).isEqualTo(first);
+            }
+            Set<Integer> rows = new HashSet<>(first.values());
+            assertThat(rows).hasSize(IDS);
+            assertThat(matrix.size()).isEqualTo(IDS);
+            assertThat(rows).allMatch(row -> row >= 0 && row < IDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void dotProductReadsBothRows() {
+        StripedFactorMatrix tenants = new StripedFactorMatrix(RANK, 0.1f, 1L);
+        StripedFactorMatrix properties = new StripedFactorMatrix(RANK, 0.1f, 2L);
+        int tenantRow = tenants.rowFor(7);
+        int propertyRow = properties.rowFor(9);
+
+        float[] a = vector(tenants, 7);
+        float[] b = vector(properties, 9);
+        float expected = 0f;
+        for (int k = 0; k < RANK; k++) {
+            expected += a[k] * b[k];
+        }
+        assertThat(tenants.dot(tenantRow, properties, propertyRow)).isEqualTo(expected);
+        assertThat(tenants.rowIfPresent(8)).isEqualTo(-1);
+    }
+
+    private static float[] vector(StripedFactorMatrix matrix, long id) {
+        int row = matrix.rowIfPresent(id);
+        float[] vector = new float[RANK];
+        System.arraycopy(matrix.stripe(row), matrix.offset(row), vector, 0, RANK);
+        return vector;
+    }
+}
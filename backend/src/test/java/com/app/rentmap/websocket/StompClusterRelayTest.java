@@ -0,0 +1,137 @@
+package com.app.rentmap.websocket;
+
+import com.app.rentmap.RentMapApplication;
+import com.app.rentmap.entity.Tenant;
+import com.app.rentmap.repository.TenantRepository;
+import com.app.rentmap.security.JwtTokenProvider;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application contexts in one JVM, linked by the in-memory cluster bus: sends made on node A
+ * must reach a STOMP session connected to node B exactly once.
+ */
+class StompClusterRelayTest {
+    private static final String JWT_SECRET = "cluster-relay-test-secret-key-0123456789abcdef";
+
+    @Test
+    void userAndTopicSendsOnOneNodeReachSessionsOnTheOtherOnce() throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             ConfigurableApplicationContext nodeA = startNode(postgres, "create");
+             ConfigurableApplicationContext nodeB = startNode(postgres, "none")) {
+            Tenant tenant = nodeA.getBean(TenantRepository.class).save(Tenant.builder()
+                    .email("cluster-tenant@rentmap.local")
+                    .password("cluster")
+                    .firstName("Cluster")
+                    .lastName("Tenant")
+                    .role("TENANT")
+                    .build());
+            String token = nodeB.getBean(JwtTokenProvider.class)
+                    .generateToken(tenant.getEmail(), tenant.getRole(), tenant.getId());
+            int portB = ((ServletWebServerApplicationContext) nodeB).getWebServer().getPort();
+
+            WebSocketStompClient client = new WebSocketStompClient(
+                    new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+            client.setMessageConverter(new MappingJackson2MessageConverter());
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + token);
+            StompSession session = client.connectAsync("http://localhost:" + portB + "/ws/chat",
+                    new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+                    }).get(10, TimeUnit.SECONDS);
+            try {
+                BlockingQueue<Map<?, ?>> userMessages = new LinkedBlockingQueue<>();
+                BlockingQueue<Map<?, ?>> topicMessages = new LinkedBlockingQueue<>();
+                session.subscribe("/user/queue/notifications", collectInto(userMessages));
+                session.subscribe("/topic/cluster-test", collectInto(topicMessages));
+                awaitSubscriptions(nodeB.getBean(SimpUserRegistry.class), String.valueOf(tenant.getId()), 2);
+
+                SimpMessagingTemplate templateA = nodeA.getBean(SimpMessagingTemplate.class);
+                templateA.convertAndSendToUser(String.valueOf(tenant.getId()), "/queue/notifications",
+                        Map.of("kind", "user"));
+                templateA.convertAndSend("/topic/cluster-test", Map.of("kind", "topic"));
+
+                assertThat(userMessages.poll(10, TimeUnit.SECONDS)).isEqualTo(Map.of("kind", "user"));
+                assertThat(topicMessages.poll(10, TimeUnit.SECONDS)).isEqualTo(Map.of("kind", "topic"));
+                // A duplicate would arrive right behind the original
+                assertThat(userMessages.poll(1, TimeUnit.SECONDS)).isNull();
+                assertThat(topicMessages.poll(1, TimeUnit.SECONDS)).isNull();
+            } finally {
+                session.disconnect();
+                client.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(EmbeddedPostgres postgres, String ddlAuto) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.jpa.hibernate.ddl-auto", ddlAuto);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("server.port", "0");
+        properties.put("jwt.secret", JWT_SECRET);
+        properties.put("logging.level.root", "WARN");
+        properties.put("websocket.cluster.bus", "in-memory");
+        properties.put("recommendations.ann.index-path",
+                Files.createTempDirectory("cluster-node").resolve("property-hnsw.bin").toString());
+        return new SpringApplicationBuilder(RentMapApplication.class).properties(properties).run();
+    }
+
+    private static StompFrameHandler collectInto(BlockingQueue<Map<?, ?>> messages) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                messages.add((Map<?, ?>) payload);
+            }
+        };
+    }
+
+    // SUBSCRIBE frames are handled asynchronously by the broker; sends made before would be lost
+    private static void awaitSubscriptions(SimpUserRegistry registry, String user, int expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            SimpUser simpUser = registry.getUser(user);
+            if (simpUser != null && simpUser.getSessions().stream()
+                    .mapToInt(simpSession -> simpSession.getSubscriptions().size()).sum() >= expected) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Subscriptions of user " + user + " not registered on node B");
+    }
+}
@@ -39,8 +39,11 @@ messagesAxios.interceptors.response.use(
 );
 
 export const messagesApi = {
-  getConversation: async (otherUserId) => {
-    const response = await messagesAxios.get(`/messages/conversation/${otherUserId}`);
+  // Most recent messages first; pass { before: messageId } to fetch the previous page
+  getConversation: async (otherUserId, { before, limit } = {}) => {
+    const response = await messagesAxios.get(`/messages/conversation/${otherUserId}`, {
+      params: { before, limit },
+    });
     return response.data;
   },
 
@@ -104,6 +107,14 @@ export const messagesApi = {
     return response.data;
   },
 
+  // Online status and last-seen time of up to 200 users
+  getPresence: async (userIds) => {
+    const response = await messagesAxios.get(`/presence`, {
+      params: { userIds: userIds.join(',') },
+    });
+    return response.data;
+  },
+
   addReaction: async (messageId, emoji) => {
     const response = await messagesAxios.post(`/messages/${messageId}/reaction`, { emoji });
     return response.data;
@@ -3,6 +3,10 @@ import { Link, useNavigate } from 'react-router-dom';
 import { useTranslation } from 'react-i18next';
 import { messagesApi } from '../api/messages';
 import { useAuth } from '../context/AuthContext';
+import { useUnreadCounts } from '../hooks/useUnreadCounts';
+
+// Counters are pushed over STOMP; the poll only covers pushes missed while reconnecting
+const UNREAD_POLL_MS = 120000;
 
 export const ChatDropdown = () => {
   const { t } = useTranslation();
@@ -14,15 +18,22 @@ export const ChatDropdown = () => {
   const [loading, setLoading] = useState(false);
   const dropdownRef = useRef(null);
 
-  // Load unread count on mount and periodically
+  // Load unread count on mount, then follow server pushes
   useEffect(() => {
     if (user) {
       loadUnreadCount();
-      const interval = setInterval(loadUnreadCount, 10000); // Check every 10 seconds
+      const interval = setInterval(loadUnreadCount, UNREAD_POLL_MS);
       return () => clearInterval(interval);
     }
   }, [user]);
 
+  useUnreadCounts((counts) => {
+    setUnreadCount(counts.messages || 0);
+    if (isOpen) {
+      loadConversations();
+    }
+  });
+
   useEffect(() => {
     if (isOpen && user) {
       loadConversations();
@@ -66,30 +77,21 @@ export const ChatDropdown = () => {
     try {
       const data = await messagesApi.getConversations();
       
-      // Get unread counts for each conversation
-      const formatted = await Promise.all(
-        data.map(async (msg) => {
-          const partnerId = msg.senderId === parseInt(user.id) ? msg.receiverId : msg.senderId;
-          const partnerName = msg.senderId === parseInt(user.id) ? msg.receiverName : msg.senderName;
-          
-          // Get unread count for this conversation
-          let unreadCount = 0;
-          try {
-            unreadCount = await messagesApi.getUnreadCountForConversation(partnerId);
-          } catch (error) {
-            console.error('Failed to load unread count for conversation:', error);
-          }
-          
-          return {
-            partnerId,
-            partnerName,
-            lastMessage: msg.content,
-            lastMessageTime: msg.createdAt,
-            unreadCount: unreadCount || 0,
-            unread: unreadCount > 0,
-          };
-        })
-      );
+      // Unread counts come with each conversation summary
+      const formatted = data.map((msg) => {
+        const partnerId = msg.senderId === parseInt(user.id) ? msg.receiverId : msg.senderId;
+        const partnerName = msg.senderId === parseInt(user.id) ? msg.receiverName : msg.senderName;
+        const unreadCount = msg.unreadCount || 0;
+        
+        return {
+          partnerId,
+          partnerName,
+          lastMessage: msg.content,
+          lastMessageTime: msg.createdAt,
+          unreadCount,
+          unread: unreadCount > 0,
+        };
+      });
       
       // Sort by last message time (most recent first)
       formatted.sort((a, b) => {
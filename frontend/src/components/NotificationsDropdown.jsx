@@ -3,6 +3,7 @@ import { Link } from 'react-router-dom';
 import { useTranslation } from 'react-i18next';
 import { notificationsApi } from '../api/notifications';
 import { useAuth } from '../context/AuthContext';
+import { useUnreadCounts } from '../hooks/useUnreadCounts';
 
 export const NotificationsDropdown = () => {
   const { t } = useTranslation();
@@ -25,6 +26,12 @@ export const NotificationsDropdown = () => {
     }
   }, [user]);
 
+  useUnreadCounts((counts) => {
+    if (user?.role === 'TENANT') {
+      setUnreadCount(counts.notifications || 0);
+    }
+  });
+
   useEffect(() => {
     const handleClickOutside = (event) => {
       if (dropdownRef.current && !dropdownRef.current.contains(event.target)) {
@@ -0,0 +1,108 @@
+import { useState, useEffect, useRef } from 'react';
+import { messagesApi } from '../api/messages';
+
+const MESSAGES_PAGE_SIZE = 50;
+
+/**
+ * Messages of the conversation with otherUserId, newest page first; older pages are prepended
+ * when the list is scrolled near its top. Attach messagesContainerRef and handleMessagesScroll
+ * to the scrolling list and messagesEndRef to an element after the last message.
+ */
+export const usePagedConversation = (otherUserId) => {
+  const [messages, setMessages] = useState([]);
+  const [loading, setLoading] = useState(true);
+  const [hasOlderMessages, setHasOlderMessages] = useState(false);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  const messagesEndRef = useRef(null);
+  const messagesContainerRef = useRef(null);
+  const preserveScrollRef = useRef(null);
+
+  const scrollToBottom = () => {
+    setTimeout(() => {
+      messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
+    }, 100);
+  };
+
+  useEffect(() => {
+    // Older page prepended: keep the viewport on the same message instead of jumping to the bottom
+    if (preserveScrollRef.current !== null) {
+      const container = messagesContainerRef.current;
+      if (container) {
+        container.scrollTop = container.scrollHeight - preserveScrollRef.current;
+      }
+      preserveScrollRef.current = null;
+      return;
+    }
+    scrollToBottom();
+  }, [messages]);
+
+  // The id can be given explicitly when it was resolved in the same render (chatbot user id)
+  const loadMessages = async (userId = otherUserId) => {
+    if (!userId) {
+      setLoading(false);
+      return;
+    }
+
+    setLoading(true);
+    try {
+      const data = await messagesApi.getConversation(userId, { limit: MESSAGES_PAGE_SIZE });
+      if (data && Array.isArray(data)) {
+        const sortedMessages = [...data].sort((a, b) => {
+          const timeA = new Date(a.createdAt).getTime();
+          const timeB = new Date(b.createdAt).getTime();
+          return timeA - timeB;
+        });
+        setMessages(sortedMessages);
+        setHasOlderMessages(data.length === MESSAGES_PAGE_SIZE);
+      } else {
+        setMessages([]);
+        setHasOlderMessages(false);
+      }
+    } catch (error) {
+      console.error('Failed to load messages:', error);
+      setMessages([]);
+      setHasOlderMessages(false);
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  const loadOlderMessages = async () => {
+    if (loadingOlder || !hasOlderMessages || !otherUserId) return;
+    const oldest = messages.find(m => m.id && !m.id.toString().startsWith('temp-'));
+    if (!oldest) return;
+
+    setLoadingOlder(true);
+    try {
+      const data = await messagesApi.getConversation(otherUserId, { before: oldest.id, limit: MESSAGES_PAGE_SIZE });
+      if (data && Array.isArray(data)) {
+        const container = messagesContainerRef.current;
+        preserveScrollRef.current = container ? container.scrollHeight - container.scrollTop : null;
+        const older = [...data].reverse();
+        setMessages(prev => [...older.filter(m => !prev.some(p => p.id === m.id)), ...prev]);
+        setHasOlderMessages(data.length === MESSAGES_PAGE_SIZE);
+      }
+    } catch (error) {
+      console.error('Failed to load older messages:', error);
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
+
+  const handleMessagesScroll = (e) => {
+    if (e.currentTarget.scrollTop < 80) {
+      loadOlderMessages();
+    }
+  };
+
+  return {
+    messages,
+    setMessages,
+    loading,
+    loadMessages,
+    scrollToBottom,
+    messagesEndRef,
+    messagesContainerRef,
+    handleMessagesScroll,
+  };
+};
@@ -0,0 +1,61 @@
+import { useEffect, useRef } from 'react';
+import SockJS from 'sockjs-client';
+import { Client } from '@stomp/stompjs';
+import { useAuth } from '../context/AuthContext';
+
+// One STOMP connection shared by every component showing unread counters
+let client = null;
+const listeners = new Set();
+
+const connect = () => {
+  const token = localStorage.getItem('token');
+  if (!token) {
+    return;
+  }
+
+  client = new Client({
+    webSocketFactory: () => new SockJS('http://localhost:8080/ws/chat'),
+    reconnectDelay: 5000,
+    heartbeatIncoming: 4000,
+    heartbeatOutgoing: 4000,
+    connectHeaders: {
+      Authorization: `Bearer ${token}`
+    },
+    onConnect: () => {
+      client.subscribe('/user/queue/unread', (message) => {
+        const counts = JSON.parse(message.body);
+        listeners.forEach(listener => listener(counts));
+      });
+    },
+  });
+  client.activate();
+};
+
+/**
+ * Calls onCounts with { messages, notifications } each time the server pushes new unread counters.
+ * The connection is opened with the first subscriber and closed with the last one.
+ */
+export const useUnreadCounts = (onCounts) => {
+  const { user } = useAuth();
+  const onCountsRef = useRef(onCounts);
+  onCountsRef.current = onCounts;
+
+  useEffect(() => {
+    if (!user) {
+      return undefined;
+    }
+
+    const listener = (counts) => onCountsRef.current(counts);
+    listeners.add(listener);
+    if (!client) {
+      connect();
+    }
+    return () => {
+      listeners.delete(listener);
+      if (listeners.size === 0 && client) {
+        client.deactivate();
+        client = null;
+      }
+    };
+  }, [user]);
+};
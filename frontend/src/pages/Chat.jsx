@@ -8,6 +8,13 @@ import { chatbotApi } from '../api/chatbot';
 import { useAuth } from '../context/AuthContext';
 import { useLanguage } from '../context/LanguageContext';
 import { VoiceMessagePlayer } from '../components/VoiceMessagePlayer';
+import { usePagedConversation } from '../hooks/usePagedConversation';
+
+// The server coalesces keystrokes into start/stop events; one frame per window is enough
+const TYPING_THROTTLE_MS = 1500;
+// Fallback in case the server's stop event is lost (it repeats "typing" every 5s while active)
+const TYPING_SAFETY_TIMEOUT_MS = 15000;
+const PRESENCE_POLL_MS = 30000;
 
 export const Chat = () => {
   const { t } = useTranslation();
@@ -15,17 +22,24 @@ export const Chat = () => {
   const navigate = useNavigate();
   const { user, loading: authLoading } = useAuth();
   const { currentLanguage } = useLanguage();
-  const [messages, setMessages] = useState([]);
+  const {
+    messages,
+    setMessages,
+    loading,
+    loadMessages,
+    scrollToBottom,
+    messagesEndRef,
+    messagesContainerRef,
+    handleMessagesScroll,
+  } = usePagedConversation(otherUserId);
   const [newMessage, setNewMessage] = useState('');
   const [stompClient, setStompClient] = useState(null);
-  const [loading, setLoading] = useState(true);
   const [connected, setConnected] = useState(false);
   const [otherUser, setOtherUser] = useState(null);
   const [isTyping, setIsTyping] = useState(false);
-  const [typingTimeout, setTypingTimeout] = useState(null);
-  const messagesEndRef = useRef(null);
+  const typingTimeoutRef = useRef(null);
+  const lastTypingSentRef = useRef(0);
   const clientRef = useRef(null);
-  const messagesContainerRef = useRef(null);
   const fileInputRef = useRef(null);
   const [isRecording, setIsRecording] = useState(false);
   const [mediaRecorder, setMediaRecorder] = useState(null);
@@ -43,6 +57,7 @@ export const Chat = () => {
   const [searchQuery, setSearchQuery] = useState('');
   const [chatbotUserId, setChatbotUserId] = useState(null);
   const [isChatbot, setIsChatbot] = useState(false);
+  const [onlineUserIds, setOnlineUserIds] = useState(() => new Set());
 
   useEffect(() => {
     if (user && otherUserId) {
@@ -92,10 +107,6 @@ export const Chat = () => {
     };
   }, [user?.id, otherUserId]);
 
-  useEffect(() => {
-    scrollToBottom();
-  }, [messages]);
-
   useEffect(() => {
     // Mark messages as read when conversation is opened
     if (messages.length > 0 && user && otherUserId) {
@@ -104,24 +115,15 @@ export const Chat = () => {
       );
       
       if (unreadMessages.length > 0) {
-        // Mark each unread message individually
-        unreadMessages.forEach(message => {
-          if (message.id && !message.id.toString().startsWith('temp-')) {
-            messagesApi.markAsRead(message.id).catch(console.error);
-          }
-        });
-        // Also mark conversation as read
+        // One bulk update marks the whole conversation as read
         messagesApi.markConversationAsRead(otherUserId).catch(console.error);
+        setMessages(prev => prev.map(m =>
+          !m.read && m.receiverId === parseInt(user.id) ? { ...m, read: true } : m
+        ));
       }
     }
   }, [messages, user, otherUserId]);
 
-  const scrollToBottom = () => {
-    setTimeout(() => {
-      messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
-    }, 100);
-  };
-
   const loadOtherUser = async () => {
     try {
       // Check if it's the chatbot
@@ -156,31 +158,22 @@ export const Chat = () => {
     try {
       const data = await messagesApi.getConversations();
       
-      // Get unread counts for each conversation
-      const formatted = await Promise.all(
-        data.map(async (msg) => {
-          const partnerId = msg.senderId === parseInt(user.id) ? msg.receiverId : msg.senderId;
-          const partnerName = msg.senderId === parseInt(user.id) ? msg.receiverName : msg.senderName;
-          
-          // Get unread count for this conversation
-          let unreadCount = 0;
-          try {
-            unreadCount = await messagesApi.getUnreadCountForConversation(partnerId);
-          } catch (error) {
-            console.error('Failed to load unread count for conversation:', error);
-          }
-          
-          return {
-            partnerId,
-            partnerName,
-            lastMessage: msg.content,
-            lastMessageTime: msg.createdAt,
-            unreadCount: unreadCount || 0,
-            unread: unreadCount > 0,
-            isChatbot: partnerId === chatbotUserId,
-          };
-        })
-      );
+      // Unread counts come with each conversation summary
+      const formatted = data.map((msg) => {
+        const partnerId = msg.senderId === parseInt(user.id) ? msg.receiverId : msg.senderId;
+        const partnerName = msg.senderId === parseInt(user.id) ? msg.receiverName : msg.senderName;
+        const unreadCount = msg.unreadCount || 0;
+        
+        return {
+          partnerId,
+          partnerName,
+          lastMessage: msg.content,
+          lastMessageTime: msg.createdAt,
+          unreadCount,
+          unread: unreadCount > 0,
+          isChatbot: partnerId === chatbotUserId,
+        };
+      });
       
       // Add chatbot conversation for tenants if it doesn't exist
       if (user.role === 'TENANT' && chatbotUserId) {
@@ -231,34 +224,32 @@ export const Chat = () => {
     return date.toLocaleDateString('en-US', { month: 'short', day: 'numeric' });
   };
 
+  // One batch presence query for all conversation partners, refreshed periodically
+  const partnerIdsKey = conversations
+    .filter(c => !c.isChatbot)
+    .map(c => c.partnerId)
+    .join(',');
+
+  useEffect(() => {
+    if (!partnerIdsKey) return;
+    const userIds = partnerIdsKey.split(',');
+    const loadPresence = async () => {
+      try {
+        const presence = await messagesApi.getPresence(userIds);
+        setOnlineUserIds(new Set(presence.filter(p => p.online).map(p => p.userId)));
+      } catch (error) {
+        console.error('Error loading presence:', error);
+      }
+    };
+    loadPresence();
+    const interval = setInterval(loadPresence, PRESENCE_POLL_MS);
+    return () => clearInterval(interval);
+  }, [partnerIdsKey]);
+
   const filteredConversations = conversations.filter(conv =>
     conv.partnerName?.toLowerCase().includes(searchQuery.toLowerCase())
   );
 
-  const loadMessages = async () => {
-    if (!user || !otherUserId) return;
-    
-    setLoading(true);
-    try {
-      const data = await messagesApi.getConversation(otherUserId);
-      if (data && Array.isArray(data)) {
-        const sortedMessages = [...data].sort((a, b) => {
-          const timeA = new Date(a.createdAt).getTime();
-          const timeB = new Date(b.createdAt).getTime();
-          return timeA - timeB;
-        });
-        setMessages(sortedMessages);
-      } else {
-        setMessages([]);
-      }
-    } catch (error) {
-      console.error('Failed to load messages:', error);
-      setMessages([]);
-    } finally {
-      setLoading(false);
-    }
-  };
-
   const connectWebSocket = () => {
     if (clientRef.current?.connected) {
       return;
@@ -281,8 +272,7 @@ export const Chat = () => {
       },
       onConnect: () => {
         setConnected(true);
-        const userId = user.id.toString();
-        client.subscribe(`/user/${userId}/queue/messages`, (message) => {
+        client.subscribe('/user/queue/messages', (message) => {
           const messageData = JSON.parse(message.body);
           // Check if message is for this conversation
           const isForThisConversation = 
@@ -321,16 +311,22 @@ export const Chat = () => {
           loadConversations();
         });
 
-        client.subscribe(`/user/${userId}/queue/typing`, (message) => {
+        client.subscribe('/user/queue/read-receipts', (message) => {
+          const receipt = JSON.parse(message.body);
+          if (receipt.readerId === parseInt(otherUserId)) {
+            setMessages(prev => prev.map(m =>
+              !m.read && m.senderId === parseInt(user.id) ? { ...m, read: true } : m
+            ));
+          }
+        });
+
+        client.subscribe('/user/queue/typing', (message) => {
           const typingData = JSON.parse(message.body);
           if (typingData.userId === parseInt(otherUserId)) {
             setIsTyping(typingData.typing);
+            clearTimeout(typingTimeoutRef.current);
             if (typingData.typing) {
-              if (typingTimeout) {
-                clearTimeout(typingTimeout);
-              }
-              const timeout = setTimeout(() => setIsTyping(false), 3000);
-              setTypingTimeout(timeout);
+              typingTimeoutRef.current = setTimeout(() => setIsTyping(false), TYPING_SAFETY_TIMEOUT_MS);
             }
           }
         });
@@ -371,6 +367,8 @@ export const Chat = () => {
     
     setNewMessage('');
     setReplyingTo(null);
+    // Sending ends the typing state server-side; the next keystroke starts a new one
+    lastTypingSentRef.current = 0;
 
     const tempId = `temp-${Date.now()}`;
     const tempMessage = {
@@ -455,16 +453,19 @@ export const Chat = () => {
   };
 
 
-  const handleTyping = useCallback(() => {
-    if (stompClient && stompClient.connected) {
-      stompClient.publish({
-        destination: '/app/chat.typing',
-        body: JSON.stringify({
-          receiverId: parseInt(otherUserId),
-          typing: true,
-        }),
-      });
-    }
+  const handleTyping = useCallback((text) => {
+    if (!stompClient || !stompClient.connected) return;
+    const typing = text.length > 0;
+    const now = Date.now();
+    if (typing && now - lastTypingSentRef.current < TYPING_THROTTLE_MS) return;
+    lastTypingSentRef.current = typing ? now : 0;
+    stompClient.publish({
+      destination: '/app/chat.typing',
+      body: JSON.stringify({
+        receiverId: parseInt(otherUserId),
+        typing,
+      }),
+    });
   }, [stompClient, otherUserId]);
 
   const handleKeyPress = (e) => {
@@ -739,6 +740,7 @@ export const Chat = () => {
 
         <div
           ref={messagesContainerRef}
+          onScroll={handleMessagesScroll}
           className="flex-1 overflow-y-auto bg-gray-50 dark:bg-gray-900 px-4 py-4 transition-colors duration-300"
           style={{ backgroundImage: 'radial-gradient(circle at 20% 50%, rgba(59, 130, 246, 0.05) 0%, transparent 50%), radial-gradient(circle at 80% 80%, rgba(147, 51, 234, 0.05) 0%, transparent 50%)' }}
         >
@@ -1156,7 +1158,7 @@ export const Chat = () => {
                 value={newMessage}
                 onChange={(e) => {
                   setNewMessage(e.target.value);
-                  handleTyping();
+                  handleTyping(e.target.value);
                 }}
                 onKeyPress={handleKeyPress}
                 placeholder={t('chat.typeMessage')}
@@ -1243,6 +1245,9 @@ export const Chat = () => {
                               </span>
                             )}
                           </div>
+                          {!isChatbotConv && onlineUserIds.has(conv.partnerId) && (
+                            <div className="absolute -bottom-0.5 -right-0.5 w-3 h-3 bg-green-500 rounded-full border-2 border-surface dark:border-surface-dark" />
+                          )}
                           {conv.unread && (
                             <div className="absolute -top-1 -right-1 w-5 h-5 bg-red-500 rounded-full border-2 border-surface dark:border-surface-dark flex items-center justify-center">
                               <span className="text-white text-xs font-bold">
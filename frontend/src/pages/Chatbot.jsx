@@ -1,22 +1,30 @@
-import React, { useState, useEffect, useRef } from 'react';
+import React, { useState, useEffect } from 'react';
 import { useNavigate, Link } from 'react-router-dom';
 import { useTranslation } from 'react-i18next';
 import { chatbotApi } from '../api/chatbot';
 import { messagesApi } from '../api/messages';
 import { useAuth } from '../context/AuthContext';
 import { useLanguage } from '../context/LanguageContext';
+import { usePagedConversation } from '../hooks/usePagedConversation';
 
 export const Chatbot = () => {
   const { t } = useTranslation();
   const navigate = useNavigate();
   const { user, loading: authLoading } = useAuth();
   const { currentLanguage } = useLanguage();
-  const [messages, setMessages] = useState([]);
   const [newMessage, setNewMessage] = useState('');
-  const [loading, setLoading] = useState(true);
   const [sending, setSending] = useState(false);
-  const messagesEndRef = useRef(null);
   const [chatbotUserId, setChatbotUserId] = useState(null);
+  const {
+    messages,
+    setMessages,
+    loading,
+    loadMessages,
+    scrollToBottom,
+    messagesEndRef,
+    messagesContainerRef,
+    handleMessagesScroll,
+  } = usePagedConversation(chatbotUserId);
 
   useEffect(() => {
     // Wait for authentication to finish loading
@@ -36,21 +44,13 @@ export const Chatbot = () => {
 
     const initialize = async () => {
       const id = await loadChatbotUserId();
-      if (id) {
-        setChatbotUserId(id);
-        await loadMessages(id);
-      } else {
-        setLoading(false);
-      }
+      // chatbotUserId is not updated yet in this render
+      await loadMessages(id);
     };
 
     initialize();
   }, [user, authLoading]);
 
-  useEffect(() => {
-    scrollToBottom();
-  }, [messages]);
-
   const loadChatbotUserId = async () => {
     try {
       const id = await chatbotApi.getChatbotUserId();
@@ -62,38 +62,6 @@ export const Chatbot = () => {
     }
   };
 
-  const loadMessages = async (chatbotId) => {
-    if (!chatbotId) {
-      setLoading(false);
-      return;
-    }
-
-    try {
-      const data = await messagesApi.getConversation(chatbotId);
-      if (data && Array.isArray(data)) {
-        const sortedMessages = [...data].sort((a, b) => {
-          const timeA = new Date(a.createdAt).getTime();
-          const timeB = new Date(b.createdAt).getTime();
-          return timeA - timeB;
-        });
-        setMessages(sortedMessages);
-      } else {
-        setMessages([]);
-      }
-    } catch (error) {
-      console.error('Failed to load messages:', error);
-      setMessages([]);
-    } finally {
-      setLoading(false);
-    }
-  };
-
-  const scrollToBottom = () => {
-    setTimeout(() => {
-      messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
-    }, 100);
-  };
-
   const sendMessage = async () => {
     if (!newMessage.trim() || sending) return;
     
@@ -284,6 +252,8 @@ export const Chatbot = () => {
         <div className="bg-white dark:bg-gray-800 rounded-2xl shadow-xl overflow-hidden">
           {/* Messages Area */}
           <div
+            ref={messagesContainerRef}
+            onScroll={handleMessagesScroll}
             className="h-[600px] overflow-y-auto px-6 py-4 space-y-4"
             style={{
               backgroundImage: 'radial-gradient(circle at 20% 50%, rgba(147, 51, 234, 0.05) 0%, transparent 50%), radial-gradient(circle at 80% 80%, rgba(236, 72, 153, 0.05) 0%, transparent 50%)'